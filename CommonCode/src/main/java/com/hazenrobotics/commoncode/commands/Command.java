@@ -0,0 +1,158 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.hazenrobotics.commoncode.models.conditions.Condition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Something the robot does over many loops without blocking, such as driving a path or moving an
+ * arm, so that several can run at once from one {@link CommandScheduler}. Every loop the scheduler
+ * calls {@link #execute()} and then {@link #isFinished()}, after {@link #initialize()} when the
+ * command starts, and {@link #end(boolean)} once it finishes or is interrupted. Each method should
+ * return quickly, since every other command waits for it.
+ * <p>
+ * Commands can be combined into groups, either with the group classes or with the methods here,
+ * such as {@code drive.alongWith( raiseArm ).andThen( dropSample )}.
+ *
+ * @see SequentialCommandGroup
+ * @see ParallelCommandGroup
+ * @see ParallelRaceGroup
+ * @see ParallelDeadlineGroup
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public abstract class Command {
+
+	protected final List<Subsystem> requirements = new ArrayList<>( );
+
+	/**
+	 * Adds subsystems which this command uses, so no other command can use them while it runs.
+	 *
+	 * @param subsystems The subsystems used
+	 */
+	public void addRequirements( Subsystem... subsystems ) {
+		for( Subsystem subsystem : subsystems ) {
+			if( !requirements.contains( subsystem ) )
+				requirements.add( subsystem );
+		}
+	}
+
+	/**
+	 * Gets the subsystems which this command uses.
+	 *
+	 * @return The subsystems, which can not be changed through the list
+	 */
+	public List<Subsystem> getRequirements( ) {
+		return Collections.unmodifiableList( requirements );
+	}
+
+	/**
+	 * Checks if this command uses the given subsystem.
+	 *
+	 * @param subsystem The subsystem
+	 * @return True if the subsystem is one of the requirements
+	 */
+	public boolean requires( Subsystem subsystem ) {
+		return requirements.contains( subsystem );
+	}
+
+	/**
+	 * Runs once when the command starts, before its first {@link #execute()}.
+	 */
+	public void initialize( ) {
+	}
+
+	/**
+	 * Runs every loop while the command is running.
+	 */
+	public void execute( ) {
+	}
+
+	/**
+	 * Checks if the command is done, after every {@link #execute()}. Defaults to never being done,
+	 * so the command runs until it is interrupted.
+	 *
+	 * @return True once the command is done
+	 */
+	public boolean isFinished( ) {
+		return false;
+	}
+
+	/**
+	 * Runs once when the command stops, such as to stop its motors.
+	 *
+	 * @param interrupted True if the command was stopped before it finished
+	 */
+	public void end( boolean interrupted ) {
+	}
+
+	/**
+	 * Makes a command which runs this command and then the given commands one after another.
+	 *
+	 * @param next The commands to run afterwards
+	 * @return The combined command
+	 */
+	public SequentialCommandGroup andThen( Command... next ) {
+		SequentialCommandGroup group = new SequentialCommandGroup( this );
+		group.addCommands( next );
+		return group;
+	}
+
+	/**
+	 * Makes a command which runs this command and the given commands at the same time, until all of
+	 * them are done.
+	 *
+	 * @param parallel The commands to run alongside this one
+	 * @return The combined command
+	 */
+	public ParallelCommandGroup alongWith( Command... parallel ) {
+		ParallelCommandGroup group = new ParallelCommandGroup( this );
+		group.addCommands( parallel );
+		return group;
+	}
+
+	/**
+	 * Makes a command which runs this command and the given commands at the same time, until any of
+	 * them is done.
+	 *
+	 * @param parallel The commands to race against this one
+	 * @return The combined command
+	 */
+	public ParallelRaceGroup raceWith( Command... parallel ) {
+		ParallelRaceGroup group = new ParallelRaceGroup( this );
+		group.addCommands( parallel );
+		return group;
+	}
+
+	/**
+	 * Makes a command which runs the given commands alongside this command until this command is
+	 * done, interrupting any of them which are still running.
+	 *
+	 * @param parallel The commands to run alongside this one
+	 * @return The combined command
+	 */
+	public ParallelDeadlineGroup deadlineWith( Command... parallel ) {
+		return new ParallelDeadlineGroup( this, parallel );
+	}
+
+	/**
+	 * Makes a command which runs this command until it is done or the condition is true.
+	 *
+	 * @param condition The condition which stops the command early
+	 * @return The combined command
+	 */
+	public ParallelRaceGroup until( Condition condition ) {
+		return raceWith( new WaitUntilCommand( condition ) );
+	}
+
+	/**
+	 * Makes a command which runs this command until it is done or the time has passed.
+	 *
+	 * @param milliseconds The longest time to run for in milliseconds
+	 * @return The combined command
+	 */
+	public ParallelRaceGroup withTimeout( long milliseconds ) {
+		return raceWith( new WaitCommand( milliseconds ) );
+	}
+}
@@ -0,0 +1,44 @@
+package com.hazenrobotics.commoncode.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A command made of other commands, which requires every subsystem any of them require. The
+ * commands of a group are run by the group rather than being scheduled themselves, so a command
+ * should only be added to one group.
+ *
+ * @see SequentialCommandGroup
+ * @see ParallelCommandGroup
+ * @see ParallelRaceGroup
+ * @see ParallelDeadlineGroup
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public abstract class CommandGroup extends Command {
+
+	protected final List<Command> commands = new ArrayList<>( );
+
+	/**
+	 * Adds commands to the end of the group. Should not be called while the group is running.
+	 *
+	 * @param newCommands The commands to add
+	 */
+	public void addCommands( Command... newCommands ) {
+		for( Command command : newCommands ) {
+			if( command == this || commands.contains( command ) )
+				throw new IllegalArgumentException( "A command can only be added to a group once." );
+			commands.add( command );
+			for( Subsystem subsystem : command.getRequirements( ) )
+				addRequirements( subsystem );
+		}
+	}
+
+	/**
+	 * Gets the number of commands in the group.
+	 *
+	 * @return The number of commands
+	 */
+	public int getCommandCount( ) {
+		return commands.size( );
+	}
+}
@@ -0,0 +1,245 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.hazenrobotics.commoncode.control.LoopTimer;
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs many {@link Command commands} at once from a single loop, so that mechanisms can move while
+ * the robot drives instead of waiting for each blocking move to finish. Every loop the scheduler
+ * first updates every registered {@link Subsystem}, then runs each scheduled command once, ending
+ * any which have finished.
+ * <p>
+ * Only one command can use a subsystem at a time. Scheduling a command which requires a subsystem
+ * already in use interrupts the command using it.
+ * <pre>
+ * CommandScheduler scheduler = new CommandScheduler( );
+ * scheduler.registerSubsystem( drivetrain, arm );
+ * scheduler.runUntilFinished( opModeInterface, new FollowPathCommand( follower, path, drivetrain )
+ *         .deadlineWith( new MotorToPositionCommand( armMotor, 1200, 0.8, arm ) )
+ *         .andThen( new InstantCommand( openClaw, arm ) ) );
+ * </pre>
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class CommandScheduler {
+
+	protected static final long DEFAULT_LOOP_PERIOD_MILLIS = 10;
+
+	protected final List<Subsystem> subsystems = new ArrayList<>( );
+	protected final List<Command> scheduled = new ArrayList<>( );
+	//The command currently using each subsystem
+	protected final Map<Subsystem, Command> owners = new HashMap<>( );
+
+	//Commands scheduled or cancelled by other commands while running, handled once the loop is done
+	protected final List<Command> toSchedule = new ArrayList<>( );
+	protected final List<Command> toCancel = new ArrayList<>( );
+	protected boolean running = false;
+
+	protected final LoopTimer loopTimer = new LoopTimer( DEFAULT_LOOP_PERIOD_MILLIS );
+
+	/**
+	 * Adds subsystems to be updated every loop, before the commands are run.
+	 *
+	 * @param newSubsystems The subsystems to update
+	 */
+	public void registerSubsystem( Subsystem... newSubsystems ) {
+		for( Subsystem subsystem : newSubsystems ) {
+			if( !subsystems.contains( subsystem ) )
+				subsystems.add( subsystem );
+		}
+	}
+
+	/**
+	 * Stops updating subsystems every loop.
+	 *
+	 * @param oldSubsystems The subsystems to stop updating
+	 */
+	public void unregisterSubsystem( Subsystem... oldSubsystems ) {
+		for( Subsystem subsystem : oldSubsystems )
+			subsystems.remove( subsystem );
+	}
+
+	/**
+	 * Starts running commands, interrupting any running commands which use the same subsystems.
+	 * Commands which are already scheduled are left running. If called by a command while the
+	 * scheduler is running, the commands start once the current loop is done.
+	 *
+	 * @param commands The commands to start
+	 */
+	public void schedule( Command... commands ) {
+		for( Command command : commands ) {
+			if( running )
+				toSchedule.add( command );
+			else
+				initialize( command );
+		}
+	}
+
+	/**
+	 * Starts a command straight away, taking its subsystems from any commands using them.
+	 *
+	 * @param command The command to start
+	 */
+	protected void initialize( Command command ) {
+		if( scheduled.contains( command ) )
+			return;
+		for( Subsystem subsystem : command.getRequirements( ) ) {
+			Command owner = owners.get( subsystem );
+			if( owner != null )
+				interrupt( owner );
+		}
+		for( Subsystem subsystem : command.getRequirements( ) )
+			owners.put( subsystem, command );
+		scheduled.add( command );
+		command.initialize( );
+	}
+
+	/**
+	 * Interrupts running commands. If called by a command while the scheduler is running, the
+	 * commands are interrupted once the current loop is done.
+	 *
+	 * @param commands The commands to interrupt
+	 */
+	public void cancel( Command... commands ) {
+		for( Command command : commands ) {
+			if( running )
+				toCancel.add( command );
+			else
+				interrupt( command );
+		}
+	}
+
+	/**
+	 * Interrupts every running command.
+	 */
+	public void cancelAll( ) {
+		for( int i = scheduled.size( ) - 1; i >= 0; i-- )
+			cancel( scheduled.get( i ) );
+	}
+
+	/**
+	 * Ends a command straight away and frees its subsystems, if it is running.
+	 *
+	 * @param command The command to interrupt
+	 */
+	protected void interrupt( Command command ) {
+		if( !scheduled.remove( command ) )
+			return;
+		release( command );
+		command.end( true );
+	}
+
+	/**
+	 * Frees the subsystems used by a command which has stopped.
+	 *
+	 * @param command The command which has stopped
+	 */
+	protected void release( Command command ) {
+		for( Subsystem subsystem : command.getRequirements( ) ) {
+			if( owners.get( subsystem ) == command )
+				owners.remove( subsystem );
+		}
+	}
+
+	/**
+	 * Runs one loop, updating every subsystem and then running every scheduled command once. Should
+	 * be called every loop of an OpMode, or use
+	 * {@link #runUntilFinished(OpModeInterface, Command...)} instead.
+	 */
+	public void run( ) {
+		running = true;
+		try {
+			for( int i = 0; i < subsystems.size( ); i++ )
+				subsystems.get( i ).periodic( );
+			for( int i = 0; i < scheduled.size( ); i++ ) {
+				Command command = scheduled.get( i );
+				command.execute( );
+				if( command.isFinished( ) ) {
+					scheduled.remove( i-- );
+					release( command );
+					command.end( false );
+				}
+			}
+		} finally {
+			running = false;
+		}
+
+		for( int i = 0; i < toCancel.size( ); i++ )
+			interrupt( toCancel.get( i ) );
+		toCancel.clear( );
+		for( int i = 0; i < toSchedule.size( ); i++ )
+			initialize( toSchedule.get( i ) );
+		toSchedule.clear( );
+	}
+
+	/**
+	 * Schedules the given commands, then runs the scheduler until every command has finished or
+	 * the OpMode stops, at the {@link #setLoopPeriod(long) loop period}. Any commands still running
+	 * when the OpMode stops are interrupted.
+	 *
+	 * @param opModeInterface An interface used to idle between loops
+	 * @param commands        The commands to schedule
+	 */
+	public void runUntilFinished( OpModeInterface opModeInterface, Command... commands ) {
+		schedule( commands );
+		loopTimer.start( );
+		while( !scheduled.isEmpty( ) && opModeInterface.opModeIsActive( ) ) {
+			run( );
+			loopTimer.waitForNextLoop( opModeInterface );
+		}
+		cancelAll( );
+	}
+
+	/**
+	 * Checks if a command is running.
+	 *
+	 * @param command The command
+	 * @return True if the command has been started and not yet ended
+	 */
+	public boolean isScheduled( Command command ) {
+		return scheduled.contains( command );
+	}
+
+	/**
+	 * Gets the number of running commands.
+	 *
+	 * @return The number of commands
+	 */
+	public int getScheduledCount( ) {
+		return scheduled.size( );
+	}
+
+	/**
+	 * Gets the command which is using a subsystem.
+	 *
+	 * @param subsystem The subsystem
+	 * @return The command using it, or null if it is free
+	 */
+	public Command getOwner( Subsystem subsystem ) {
+		return owners.get( subsystem );
+	}
+
+	/**
+	 * Changes how often {@link #runUntilFinished(OpModeInterface, Command...)} runs a loop. Defaults
+	 * to 10 milliseconds.
+	 *
+	 * @param periodMillis The time between loops in milliseconds, or 0 to run as fast as possible
+	 */
+	public void setLoopPeriod( long periodMillis ) {
+		loopTimer.setPeriod( periodMillis );
+	}
+
+	/**
+	 * Gets the timer which paces {@link #runUntilFinished(OpModeInterface, Command...)}, such as to
+	 * show its overruns in telemetry.
+	 *
+	 * @return The loop timer
+	 */
+	public LoopTimer getLoopTimer( ) {
+		return loopTimer;
+	}
+}
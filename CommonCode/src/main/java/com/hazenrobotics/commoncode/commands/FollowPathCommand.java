@@ -0,0 +1,48 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.hazenrobotics.commoncode.movement.PurePursuitFollower;
+import com.hazenrobotics.commoncode.movement.paths.Path;
+
+/**
+ * Follows a path with a pure pursuit follower, updating it once every loop of the scheduler
+ * instead of blocking like {@link PurePursuitFollower#follow(Path)}.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class FollowPathCommand extends Command {
+
+	protected final PurePursuitFollower follower;
+	protected final Path path;
+
+	/**
+	 * Creates a command which follows the given path.
+	 *
+	 * @param follower     The follower which drives the wheels
+	 * @param path         The path to follow
+	 * @param requirements The subsystems the follower uses, usually the drivetrain
+	 */
+	public FollowPathCommand( PurePursuitFollower follower, Path path, Subsystem... requirements ) {
+		this.follower = follower;
+		this.path = path;
+		addRequirements( requirements );
+	}
+
+	@Override
+	public void initialize( ) {
+		follower.start( path );
+	}
+
+	@Override
+	public void execute( ) {
+		follower.update( );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return follower.isFinished( );
+	}
+
+	@Override
+	public void end( boolean interrupted ) {
+		follower.stop( );
+	}
+}
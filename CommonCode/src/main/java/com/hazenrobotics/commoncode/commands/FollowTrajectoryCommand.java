@@ -0,0 +1,48 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.hazenrobotics.commoncode.movement.RamseteFollower;
+import com.hazenrobotics.commoncode.movement.paths.Trajectory;
+
+/**
+ * Follows a trajectory with a RAMSETE follower, updating it once every loop of the scheduler
+ * instead of blocking like {@link RamseteFollower#follow(Trajectory)}.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class FollowTrajectoryCommand extends Command {
+
+	protected final RamseteFollower follower;
+	protected final Trajectory trajectory;
+
+	/**
+	 * Creates a command which follows the given trajectory.
+	 *
+	 * @param follower     The follower which drives the wheels
+	 * @param trajectory   The trajectory to follow
+	 * @param requirements The subsystems the follower uses, usually the drivetrain
+	 */
+	public FollowTrajectoryCommand( RamseteFollower follower, Trajectory trajectory, Subsystem... requirements ) {
+		this.follower = follower;
+		this.trajectory = trajectory;
+		addRequirements( requirements );
+	}
+
+	@Override
+	public void initialize( ) {
+		follower.start( trajectory );
+	}
+
+	@Override
+	public void execute( ) {
+		follower.update( );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return follower.isFinished( );
+	}
+
+	@Override
+	public void end( boolean interrupted ) {
+		follower.stop( );
+	}
+}
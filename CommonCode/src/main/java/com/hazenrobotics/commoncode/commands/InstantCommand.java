@@ -0,0 +1,31 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * Runs an action once and finishes straight away, such as opening a claw or resetting odometry.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class InstantCommand extends Command {
+
+	protected final Runnable action;
+
+	/**
+	 * Creates a command which runs the given action when it starts.
+	 *
+	 * @param action       The action to run
+	 * @param requirements The subsystems the action uses
+	 */
+	public InstantCommand( Runnable action, Subsystem... requirements ) {
+		this.action = action;
+		addRequirements( requirements );
+	}
+
+	@Override
+	public void initialize( ) {
+		action.run( );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return true;
+	}
+}
@@ -0,0 +1,44 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.hazenrobotics.commoncode.movement.MotionQueue;
+
+/**
+ * Runs the segments of a motion queue, updating it once every loop of the scheduler instead of
+ * blocking like {@link MotionQueue#run()}.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MotionQueueCommand extends Command {
+
+	protected final MotionQueue queue;
+
+	/**
+	 * Creates a command which runs the given queue.
+	 *
+	 * @param queue        The queue of moves, strafes and turns to run
+	 * @param requirements The subsystems the queue uses, usually the drivetrain
+	 */
+	public MotionQueueCommand( MotionQueue queue, Subsystem... requirements ) {
+		this.queue = queue;
+		addRequirements( requirements );
+	}
+
+	@Override
+	public void initialize( ) {
+		queue.start( );
+	}
+
+	@Override
+	public void execute( ) {
+		queue.update( );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return queue.isFinished( );
+	}
+
+	@Override
+	public void end( boolean interrupted ) {
+		queue.stop( );
+	}
+}
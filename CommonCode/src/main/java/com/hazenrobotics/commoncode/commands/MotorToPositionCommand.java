@@ -0,0 +1,66 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * Moves a motor to an encoder position with the motor controller's own position control, such as
+ * raising an arm or a lift. The motor keeps holding the position after the command finishes, and an
+ * interrupted command holds wherever the motor was instead of dropping it.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MotorToPositionCommand extends Command {
+
+	protected static final int DEFAULT_TOLERANCE = 10;
+
+	protected final DcMotor motor;
+	protected final int targetPosition;
+	protected final double power;
+	protected final int tolerance;
+
+	/**
+	 * Creates a command which moves the motor to the given position, finishing within 10 counts.
+	 *
+	 * @param motor          The motor to move
+	 * @param targetPosition The position to move to in encoder counts
+	 * @param power          The power to move with, between 0 and 1
+	 * @param requirements   The subsystems the motor is part of
+	 */
+	public MotorToPositionCommand( DcMotor motor, int targetPosition, double power, Subsystem... requirements ) {
+		this( motor, targetPosition, power, DEFAULT_TOLERANCE, requirements );
+	}
+
+	/**
+	 * Creates a command which moves the motor to the given position.
+	 *
+	 * @param motor          The motor to move
+	 * @param targetPosition The position to move to in encoder counts
+	 * @param power          The power to move with, between 0 and 1
+	 * @param tolerance      How close to the position in counts the motor has to be to finish
+	 * @param requirements   The subsystems the motor is part of
+	 */
+	public MotorToPositionCommand( DcMotor motor, int targetPosition, double power, int tolerance, Subsystem... requirements ) {
+		this.motor = motor;
+		this.targetPosition = targetPosition;
+		this.power = Math.min( Math.abs( power ), 1 );
+		this.tolerance = Math.abs( tolerance );
+		addRequirements( requirements );
+	}
+
+	@Override
+	public void initialize( ) {
+		motor.setTargetPosition( targetPosition );
+		motor.setMode( DcMotor.RunMode.RUN_TO_POSITION );
+		motor.setPower( power );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return Math.abs( motor.getCurrentPosition( ) - targetPosition ) <= tolerance;
+	}
+
+	@Override
+	public void end( boolean interrupted ) {
+		if( interrupted )
+			motor.setTargetPosition( motor.getCurrentPosition( ) );
+	}
+}
@@ -0,0 +1,26 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * Runs commands at the same time until every one of them has finished.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class ParallelCommandGroup extends ParallelGroup {
+
+	/**
+	 * Creates a group which runs the given commands at the same time.
+	 *
+	 * @param commands The commands to run, which can not require the same subsystem
+	 */
+	public ParallelCommandGroup( Command... commands ) {
+		addCommands( commands );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		for( boolean commandRunning : running ) {
+			if( commandRunning )
+				return false;
+		}
+		return true;
+	}
+}
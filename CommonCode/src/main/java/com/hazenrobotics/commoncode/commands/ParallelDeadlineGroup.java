@@ -0,0 +1,37 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * Runs commands at the same time as a deadline command until the deadline has finished, then
+ * interrupts any which are still running. This suits work which should happen on the way, such as
+ * raising an arm while driving, without letting it hold up what comes next.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class ParallelDeadlineGroup extends ParallelGroup {
+
+	/**
+	 * Creates a group which runs the given commands until the deadline has finished.
+	 *
+	 * @param deadline The command which decides when the group is finished
+	 * @param commands The other commands to run, which can not require the same subsystem as each
+	 *                 other or the deadline
+	 */
+	public ParallelDeadlineGroup( Command deadline, Command... commands ) {
+		addCommands( deadline );
+		addCommands( commands );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		//The deadline is always the first command
+		return !running[0];
+	}
+
+	/**
+	 * Gets the command which decides when the group is finished.
+	 *
+	 * @return The deadline
+	 */
+	public Command getDeadline( ) {
+		return commands.get( 0 );
+	}
+}
@@ -0,0 +1,76 @@
+package com.hazenrobotics.commoncode.commands;
+
+import java.util.Arrays;
+
+/**
+ * A group which runs all of its commands at the same time, so none of them can require the same
+ * subsystem. Commands which finish before the group does are ended and not run again, and any still
+ * running when the group ends are interrupted.
+ *
+ * @see ParallelCommandGroup
+ * @see ParallelRaceGroup
+ * @see ParallelDeadlineGroup
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public abstract class ParallelGroup extends CommandGroup {
+
+	//Whether each command, in the same order, is still running
+	protected boolean[] running = new boolean[0];
+	protected boolean anyFinished = false;
+
+	@Override
+	public void addCommands( Command... newCommands ) {
+		for( Command command : newCommands ) {
+			for( Subsystem subsystem : command.getRequirements( ) ) {
+				if( requires( subsystem ) )
+					throw new IllegalArgumentException( "Commands run at the same time can not require the same subsystem." );
+			}
+			super.addCommands( command );
+		}
+		running = Arrays.copyOf( running, commands.size( ) );
+	}
+
+	@Override
+	public void initialize( ) {
+		anyFinished = false;
+		for( int i = 0; i < commands.size( ); i++ ) {
+			commands.get( i ).initialize( );
+			running[i] = true;
+		}
+	}
+
+	@Override
+	public void execute( ) {
+		for( int i = 0; i < commands.size( ); i++ ) {
+			if( !running[i] )
+				continue;
+			Command command = commands.get( i );
+			command.execute( );
+			if( command.isFinished( ) ) {
+				command.end( false );
+				running[i] = false;
+				anyFinished = true;
+			}
+		}
+	}
+
+	@Override
+	public void end( boolean interrupted ) {
+		for( int i = 0; i < commands.size( ); i++ ) {
+			if( running[i] ) {
+				commands.get( i ).end( true );
+				running[i] = false;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a command in the group is still running.
+	 *
+	 * @param index The position of the command in the group
+	 * @return True if the command has started and not yet ended
+	 */
+	public boolean isRunning( int index ) {
+		return running[index];
+	}
+}
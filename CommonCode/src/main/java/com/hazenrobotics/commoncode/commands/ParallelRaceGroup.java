@@ -0,0 +1,22 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * Runs commands at the same time until any one of them has finished, then interrupts the rest.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class ParallelRaceGroup extends ParallelGroup {
+
+	/**
+	 * Creates a group which races the given commands against each other.
+	 *
+	 * @param commands The commands to run, which can not require the same subsystem
+	 */
+	public ParallelRaceGroup( Command... commands ) {
+		addCommands( commands );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return anyFinished || commands.isEmpty( );
+	}
+}
@@ -0,0 +1,62 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * Runs commands one after another, starting each once the one before it has finished. The group is
+ * finished once the last command is.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class SequentialCommandGroup extends CommandGroup {
+
+	protected int current = -1;
+
+	/**
+	 * Creates a group which runs the given commands in order.
+	 *
+	 * @param commands The commands to run
+	 */
+	public SequentialCommandGroup( Command... commands ) {
+		addCommands( commands );
+	}
+
+	@Override
+	public void initialize( ) {
+		current = 0;
+		if( !commands.isEmpty( ) )
+			commands.get( 0 ).initialize( );
+	}
+
+	@Override
+	public void execute( ) {
+		if( current < 0 || current >= commands.size( ) )
+			return;
+		Command command = commands.get( current );
+		command.execute( );
+		if( command.isFinished( ) ) {
+			command.end( false );
+			current++;
+			if( current < commands.size( ) )
+				commands.get( current ).initialize( );
+		}
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return current >= commands.size( );
+	}
+
+	@Override
+	public void end( boolean interrupted ) {
+		if( interrupted && current >= 0 && current < commands.size( ) )
+			commands.get( current ).end( true );
+		current = -1;
+	}
+
+	/**
+	 * Gets the position of the running command in the group.
+	 *
+	 * @return The index of the command, or -1 if the group is not running
+	 */
+	public int getCurrentIndex( ) {
+		return current;
+	}
+}
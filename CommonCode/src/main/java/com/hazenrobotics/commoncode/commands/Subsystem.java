@@ -0,0 +1,21 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * A part of the robot, such as the drivetrain or an arm, which only one {@link Command} can use at
+ * a time. Commands list the subsystems they use as their requirements, and the
+ * {@link CommandScheduler} interrupts a running command when a new one needs the same subsystem.
+ * <p>
+ * Registered subsystems are also updated every loop of the scheduler, before any command, which
+ * is the place for work that has to happen whatever command is running, such as reading a sensor
+ * for telemetry. Odometry should be updated in exactly one place each loop, since updating it twice
+ * also updates the encoder velocity estimators twice only moments apart. The path and trajectory
+ * followers already update their odometry every loop, so a subsystem should only update odometry
+ * which no follower is using.
+ */
+public interface Subsystem {
+
+	/**
+	 * Runs once every loop of the scheduler the subsystem is registered with, before the commands.
+	 */
+	void periodic( );
+}
@@ -0,0 +1,32 @@
+package com.hazenrobotics.commoncode.commands;
+
+/**
+ * Does nothing until a time has passed since it started. Unlike a
+ * {@link com.hazenrobotics.commoncode.models.conditions.Timer Timer}, the time is counted from when
+ * the command starts rather than when it is made, so it can be used anywhere in a group.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class WaitCommand extends Command {
+
+	protected final long durationNanos;
+	protected long startNanos;
+
+	/**
+	 * Creates a command which waits for the given time.
+	 *
+	 * @param milliseconds The time to wait in milliseconds
+	 */
+	public WaitCommand( long milliseconds ) {
+		durationNanos = Math.max( milliseconds, 0 ) * 1000000;
+	}
+
+	@Override
+	public void initialize( ) {
+		startNanos = System.nanoTime( );
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return System.nanoTime( ) - startNanos >= durationNanos;
+	}
+}
@@ -0,0 +1,28 @@
+package com.hazenrobotics.commoncode.commands;
+
+import com.hazenrobotics.commoncode.models.conditions.Condition;
+
+/**
+ * Does nothing until a condition is true, such as a sensor seeing a sample or a mechanism reaching
+ * its position. The condition is only checked once per loop of the scheduler.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class WaitUntilCommand extends Command {
+
+	protected final Condition condition;
+
+	/**
+	 * Creates a command which waits for the given condition.
+	 *
+	 * @param condition The condition to wait for. Conditions remember being true by default, so one
+	 *                  should be made for each time it is waited for
+	 */
+	public WaitUntilCommand( Condition condition ) {
+		this.condition = condition;
+	}
+
+	@Override
+	public boolean isFinished( ) {
+		return condition.isTrue( );
+	}
+}
@@ -0,0 +1,168 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * Runs a control task on its own thread at a fixed period, so slow code on the OpMode thread such
+ * as telemetry or sensor conditions can not stall the motors or make the loop time jump around.
+ * <p>
+ * The task should only touch its hardware from the executor's thread while it is running. The
+ * OpMode thread hands it setpoints and reads back what it measured through
+ * {@link SingleWriterSlot slots}, so neither thread ever waits for the other.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class ControlExecutor {
+
+	/**
+	 * Something which is updated every period of a {@link ControlExecutor}.
+	 */
+	public interface Task {
+
+		/**
+		 * Runs one loop of the task.
+		 *
+		 * @param dt The time since the last update in seconds, or the period for the first update
+		 */
+		void update( double dt );
+
+		/**
+		 * Runs once on the executor's thread after the last update, whether the executor was stopped
+		 * or the task failed, such as to stop its motors.
+		 */
+		void onStop( );
+	}
+
+	protected final Task task;
+	//Only used on the executor's thread
+	protected final LoopTimer loopTimer;
+
+	protected Thread thread = null;
+	protected volatile boolean running = false;
+	protected volatile long loopCount = 0;
+	protected volatile long overrunCount = 0;
+	protected volatile RuntimeException failure = null;
+
+	/**
+	 * Creates an executor which will run the given task at the given period once started.
+	 *
+	 * @param task         The task to run
+	 * @param periodMillis The time between the starts of updates in milliseconds
+	 */
+	public ControlExecutor( Task task, long periodMillis ) {
+		this.task = task;
+		this.loopTimer = new LoopTimer( Math.max( periodMillis, 1 ) );
+	}
+
+	/**
+	 * Starts running the task on a new thread, if it is not already running.
+	 */
+	public synchronized void start( ) {
+		if( running )
+			return;
+		running = true;
+		failure = null;
+		thread = new Thread( new Runnable( ) {
+			@Override
+			public void run( ) {
+				runLoop( );
+			}
+		}, "ControlExecutor" );
+		thread.setDaemon( true );
+		//Above the OpMode thread, so control keeps its timing when the OpMode is busy
+		thread.setPriority( Thread.MAX_PRIORITY );
+		thread.start( );
+	}
+
+	/**
+	 * Stops running the task, waiting for the current update and the task's
+	 * {@link Task#onStop() onStop} to finish so the hardware can then be used from the OpMode thread
+	 * again.
+	 */
+	public synchronized void stop( ) {
+		running = false;
+		if( thread == null )
+			return;
+		thread.interrupt( );
+		try {
+			thread.join( );
+		} catch( InterruptedException e ) {
+			Thread.currentThread( ).interrupt( );
+		}
+		thread = null;
+	}
+
+	/**
+	 * Runs the task every period until stopped, then lets the task stop. If an update runs past the
+	 * start of the next one, the missed updates are skipped rather than run back to back.
+	 */
+	protected void runLoop( ) {
+		loopTimer.resetStatistics( );
+		loopTimer.start( );
+		double dt = loopTimer.getPeriod( );
+		try {
+			while( running ) {
+				task.update( dt );
+				dt = loopTimer.waitForNextLoop( );
+				loopCount = loopTimer.getLoopCount( );
+				overrunCount = loopTimer.getOverrunCount( );
+			}
+		} catch( RuntimeException e ) {
+			failure = e;
+			running = false;
+		}
+
+		//Clears the interrupt from stop() so it can not fail the hardware writes of the task stopping
+		Thread.interrupted( );
+		try {
+			task.onStop( );
+		} catch( RuntimeException e ) {
+			if( failure == null )
+				failure = e;
+		}
+	}
+
+	/**
+	 * Checks if the task is being run.
+	 *
+	 * @return True if the executor is running
+	 */
+	public boolean isRunning( ) {
+		return running;
+	}
+
+	/**
+	 * Gets the number of updates which have been run.
+	 *
+	 * @return The number of updates
+	 */
+	public long getLoopCount( ) {
+		return loopCount;
+	}
+
+	/**
+	 * Gets the number of updates which took longer than the period.
+	 *
+	 * @return The number of overruns
+	 */
+	public long getOverrunCount( ) {
+		return overrunCount;
+	}
+
+	/**
+	 * Gets the exception which stopped the task, so it can be reported or thrown on the OpMode
+	 * thread.
+	 *
+	 * @return The exception, or null if the task has not failed
+	 */
+	public RuntimeException getFailure( ) {
+		return failure;
+	}
+
+	/**
+	 * Gets the timer which runs the loop, such as to see its jitter histogram. It is updated from the
+	 * executor's thread, so its statistics should only be read once the executor has stopped.
+	 *
+	 * @return The loop timer
+	 */
+	public LoopTimer getLoopTimer( ) {
+		return loopTimer;
+	}
+}
@@ -0,0 +1,53 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * Sine and cosine from a precomputed table with linear interpolation between entries, for math
+ * which runs every loop and does not need full precision. The largest error is about 3e-7, far
+ * smaller than anything a joystick or motor can resolve.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public final class FastTrig {
+
+	//A power of two so the index can wrap around a full turn with a mask
+	private static final int TABLE_SIZE = 4096;
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+	private static final double INDEX_PER_RADIAN = TABLE_SIZE / (2 * Math.PI);
+	//A quarter turn in table entries, used to get cosine from the sine table
+	private static final int QUARTER_TURN = TABLE_SIZE / 4;
+
+	private static final float[] SINE = new float[TABLE_SIZE + 1];
+
+	static {
+		for( int i = 0; i <= TABLE_SIZE; i++ )
+			SINE[i] = (float) Math.sin( i / INDEX_PER_RADIAN );
+	}
+
+	private FastTrig( ) {}
+
+	/**
+	 * Approximates the sine of an angle.
+	 *
+	 * @param radians The angle in radians, which does not need to be normalized
+	 * @return The sine of the angle
+	 */
+	public static float sin( double radians ) {
+		return lookup( radians * INDEX_PER_RADIAN, 0 );
+	}
+
+	/**
+	 * Approximates the cosine of an angle.
+	 *
+	 * @param radians The angle in radians, which does not need to be normalized
+	 * @return The cosine of the angle
+	 */
+	public static float cos( double radians ) {
+		return lookup( radians * INDEX_PER_RADIAN, QUARTER_TURN );
+	}
+
+	private static float lookup( double position, int offset ) {
+		double floor = Math.floor( position );
+		int index = ((int) (long) floor + offset) & TABLE_MASK;
+		float fraction = (float) (position - floor);
+		return SINE[index] + (SINE[index + 1] - SINE[index]) * fraction;
+	}
+}
@@ -0,0 +1,145 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * Fits the gains of a {@link SimpleMotorFeedforward} to measured samples of power, velocity and
+ * acceleration by ordinary least squares. Only the sums the fit needs are kept, so any number of
+ * samples can be added without making new objects.
+ * <p>
+ * Samples where the motor was barely moving are skipped, since static friction makes the power
+ * needed to start moving unpredictable. If every sample has almost no acceleration, such as when
+ * only slow ramps were run, the acceleration gain can not be told apart and is fit as 0.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class FeedforwardFitter {
+
+	protected static final double DEFAULT_MIN_VELOCITY = 0.5;
+	//How small the spread of a column can be, relative to the number of samples, before it is dropped
+	protected static final double DEGENERATE_TOLERANCE = 1e-9;
+
+	protected double minVelocity = DEFAULT_MIN_VELOCITY;
+
+	/*
+	 * The normal equations of the fit, where the columns are the sign of the velocity, the velocity
+	 * and the acceleration. Only the upper triangle of the symmetric matrix is kept.
+	 */
+	protected int count = 0;
+	protected double sumSS, sumSV, sumSA, sumVV, sumVA, sumAA;
+	protected double sumSP, sumVP, sumAP;
+	protected double sumP, sumPP;
+
+	/**
+	 * Changes the slowest velocity a sample can have to be used. Defaults to 0.5.
+	 *
+	 * @param minVelocity The slowest velocity, in the same units as the samples
+	 */
+	public void setMinVelocity( double minVelocity ) {
+		this.minVelocity = Math.abs( minVelocity );
+	}
+
+	/**
+	 * Adds a measured sample.
+	 *
+	 * @param power        The power the motors were given
+	 * @param velocity     The velocity which was measured
+	 * @param acceleration The acceleration which was measured
+	 * @return True if the sample was used, or false if the motor was moving too slowly
+	 */
+	public boolean addSample( double power, double velocity, double acceleration ) {
+		if( Math.abs( velocity ) < minVelocity )
+			return false;
+		double sign = Math.signum( velocity );
+		count++;
+		sumSS += sign * sign;
+		sumSV += sign * velocity;
+		sumSA += sign * acceleration;
+		sumVV += velocity * velocity;
+		sumVA += velocity * acceleration;
+		sumAA += acceleration * acceleration;
+		sumSP += sign * power;
+		sumVP += velocity * power;
+		sumAP += acceleration * power;
+		sumP += power;
+		sumPP += power * power;
+		return true;
+	}
+
+	/**
+	 * Gets the number of samples which have been used.
+	 *
+	 * @return The number of samples
+	 */
+	public int getSampleCount( ) {
+		return count;
+	}
+
+	/**
+	 * Fits the feedforward gains to the samples.
+	 *
+	 * @return The fitted model, or null if there are too few samples to fit it
+	 */
+	public SimpleMotorFeedforward fit( ) {
+		double[] gains = solve( );
+		return gains != null ? new SimpleMotorFeedforward( gains[0], gains[1], gains[2] ) : null;
+	}
+
+	/**
+	 * Gets how much of the variation in power the fitted model explains, where 1 is a perfect fit.
+	 * Values much below 0.9 usually mean the measurements were noisy or the wheels were slipping.
+	 *
+	 * @return The coefficient of determination, or 0 if the model can not be fit
+	 */
+	public double getRSquared( ) {
+		double[] g = solve( );
+		if( g == null )
+			return 0;
+		//The residual sum of squares expanded in terms of the kept sums
+		double explained = g[0] * sumSP + g[1] * sumVP + g[2] * sumAP;
+		double fitted = g[0] * g[0] * sumSS + g[1] * g[1] * sumVV + g[2] * g[2] * sumAA
+				+ 2 * (g[0] * g[1] * sumSV + g[0] * g[2] * sumSA + g[1] * g[2] * sumVA);
+		double residual = sumPP - 2 * explained + fitted;
+		double total = sumPP - sumP * sumP / count;
+		return total > 0 ? 1 - residual / total : 0;
+	}
+
+	/**
+	 * Solves the normal equations, dropping the acceleration column if it has no spread.
+	 *
+	 * @return The gains kS, kV and kA, or null if they can not be solved
+	 */
+	protected double[] solve( ) {
+		if( count < 3 )
+			return null;
+		if( sumAA <= DEGENERATE_TOLERANCE * count ) {
+			double determinant = sumSS * sumVV - sumSV * sumSV;
+			if( Math.abs( determinant ) <= DEGENERATE_TOLERANCE * count * count )
+				return null;
+			return new double[]{
+					(sumSP * sumVV - sumSV * sumVP) / determinant,
+					(sumSS * sumVP - sumSV * sumSP) / determinant,
+					0 };
+		}
+
+		//Cramer's rule, which is plenty precise for a 3 by 3 system
+		double determinant = determinant( sumSS, sumSV, sumSA, sumSV, sumVV, sumVA, sumSA, sumVA, sumAA );
+		if( Math.abs( determinant ) <= DEGENERATE_TOLERANCE * count * count * count )
+			return null;
+		return new double[]{
+				determinant( sumSP, sumSV, sumSA, sumVP, sumVV, sumVA, sumAP, sumVA, sumAA ) / determinant,
+				determinant( sumSS, sumSP, sumSA, sumSV, sumVP, sumVA, sumSA, sumAP, sumAA ) / determinant,
+				determinant( sumSS, sumSV, sumSP, sumSV, sumVV, sumVP, sumSA, sumVA, sumAP ) / determinant };
+	}
+
+	private static double determinant( double a, double b, double c, double d, double e, double f, double g, double h, double i ) {
+		return a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+	}
+
+	/**
+	 * Forgets every sample which has been added.
+	 */
+	public void reset( ) {
+		count = 0;
+		sumSS = sumSV = sumSA = sumVV = sumVA = sumAA = 0;
+		sumSP = sumVP = sumAP = 0;
+		sumP = sumPP = 0;
+	}
+}
@@ -0,0 +1,350 @@
+package com.hazenrobotics.commoncode.control;
+
+import java.util.Arrays;
+
+/**
+ * Measures how long each part of a loop takes, such as reading sensors, checking a condition,
+ * calculating powers, writing to the motors and sending telemetry, to find out what is actually
+ * using up the loop time on the robot.
+ * <p>
+ * Each phase is timed either with {@link #begin(int)} and {@link #end(int)} around it, or with
+ * {@link #mark(int)} at its end, which times it from the previous mark. A phase can be timed more
+ * than once in a loop, and its times are added up. {@link #endLoop()} then stores every phase's time
+ * for the loop, and the minimum, mean and percentiles are found over the last loops in the window.
+ * The times are stored in arrays made once, so profiling does not make new objects, and a disabled
+ * profiler only checks a flag.
+ * <pre>
+ * LoopProfiler profiler = new LoopProfiler( 200, "sensors", "drive", "telemetry" );
+ * int sensors = profiler.getPhase( "sensors" );
+ * ...
+ * profiler.startLoop( );
+ * while( opModeIsActive( ) ) {
+ *     ...
+ *     profiler.mark( sensors );
+ *     ...
+ *     profiler.endLoop( );
+ * }
+ * telemetry.addLine( profiler.toString( ) );
+ * </pre>
+ * The blocking moves of the wheels time their phases under {@link #CONDITION_PHASE},
+ * {@link #DRIVE_PHASE} and {@link #WAIT_PHASE} when given a profiler with those names.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class LoopProfiler {
+
+	/**
+	 * The name of the phase which checks if a blocking move is done, including any sensor reads.
+	 */
+	public static final String CONDITION_PHASE = "condition";
+	/**
+	 * The name of the phase which calculates and writes the powers of a blocking move.
+	 */
+	public static final String DRIVE_PHASE = "drive";
+	/**
+	 * The name of the phase which idles and waits for the next loop of a blocking move.
+	 */
+	public static final String WAIT_PHASE = "wait";
+	/**
+	 * The name of the phase added after all the others, which holds the time of the whole loop.
+	 */
+	public static final String TOTAL_PHASE = "total";
+
+	/**
+	 * A profiler which has no phases and never times anything, used in place of null. It is shared,
+	 * so it can not be turned on or changed.
+	 */
+	public static final LoopProfiler DISABLED = new DisabledLoopProfiler( );
+
+	protected static final double NANOS_PER_SECOND = 1e9;
+
+	protected final String[] names;
+	protected final int totalPhase;
+	protected final int windowSize;
+	protected boolean enabled = true;
+
+	//The time of each phase in each of the last loops, one row per phase used as a ring buffer
+	protected final long[][] samples;
+	protected int sampleIndex = 0;
+	protected int sampleCount = 0;
+
+	//The time of each phase so far in the current loop
+	protected final long[] current;
+	protected final long[] beginNanos;
+	protected long loopStartNanos;
+	protected long lastMarkNanos;
+	//Reused to sort a phase's samples when finding percentiles
+	protected final long[] sorted;
+
+	/**
+	 * Creates a profiler with the given phases, which are numbered in the given order.
+	 *
+	 * @param windowSize The number of loops the statistics are found over
+	 * @param phaseNames The names of the phases
+	 */
+	public LoopProfiler( int windowSize, String... phaseNames ) {
+		if( windowSize < 1 )
+			throw new IllegalArgumentException( "The window must hold at least one loop." );
+		this.windowSize = windowSize;
+		totalPhase = phaseNames.length;
+		names = Arrays.copyOf( phaseNames, totalPhase + 1 );
+		names[totalPhase] = TOTAL_PHASE;
+		samples = new long[names.length][windowSize];
+		current = new long[names.length];
+		beginNanos = new long[names.length];
+		sorted = new long[windowSize];
+	}
+
+	/**
+	 * Turns timing on or off. While off, every timing call returns straight away.
+	 *
+	 * @param enabled True to time loops
+	 */
+	public void setEnabled( boolean enabled ) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Checks if loops are being timed.
+	 *
+	 * @return True if timing is on
+	 */
+	public boolean isEnabled( ) {
+		return enabled;
+	}
+
+	/**
+	 * Finds the number of a phase, which should be done once before looping rather than every loop.
+	 *
+	 * @param name The name of the phase
+	 * @return The number of the phase, or -1 if there is no phase with that name, which is ignored by
+	 * every timing call
+	 */
+	public int getPhase( String name ) {
+		for( int i = 0; i < names.length; i++ ) {
+			if( names[i].equals( name ) )
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the name of a phase.
+	 *
+	 * @param phase The number of the phase
+	 * @return The name
+	 */
+	public String getPhaseName( int phase ) {
+		return names[phase];
+	}
+
+	/**
+	 * Gets the number of phases, including the {@link #TOTAL_PHASE total} at the end.
+	 *
+	 * @return The number of phases
+	 */
+	public int getPhaseCount( ) {
+		return names.length;
+	}
+
+	/**
+	 * Starts timing a new loop, throwing away anything timed since the last loop ended.
+	 */
+	public void startLoop( ) {
+		if( !enabled )
+			return;
+		for( int i = 0; i < current.length; i++ )
+			current[i] = 0;
+		loopStartNanos = lastMarkNanos = System.nanoTime( );
+	}
+
+	/**
+	 * Starts timing a phase.
+	 *
+	 * @param phase The number of the phase
+	 */
+	public void begin( int phase ) {
+		if( !enabled || phase < 0 )
+			return;
+		beginNanos[phase] = System.nanoTime( );
+	}
+
+	/**
+	 * Stops timing a phase, adding the time since it began to its time in this loop.
+	 *
+	 * @param phase The number of the phase
+	 */
+	public void end( int phase ) {
+		if( !enabled || phase < 0 )
+			return;
+		long now = System.nanoTime( );
+		current[phase] += now - beginNanos[phase];
+		lastMarkNanos = now;
+	}
+
+	/**
+	 * Marks the end of a phase, adding the time since the last mark, end or start of the loop to its
+	 * time in this loop.
+	 *
+	 * @param phase The number of the phase
+	 */
+	public void mark( int phase ) {
+		if( !enabled )
+			return;
+		long now = System.nanoTime( );
+		if( phase >= 0 )
+			current[phase] += now - lastMarkNanos;
+		lastMarkNanos = now;
+	}
+
+	/**
+	 * Stores every phase's time for this loop in the window and starts timing the next loop.
+	 */
+	public void endLoop( ) {
+		if( !enabled )
+			return;
+		long now = System.nanoTime( );
+		current[totalPhase] = now - loopStartNanos;
+		for( int i = 0; i < current.length; i++ ) {
+			samples[i][sampleIndex] = current[i];
+			current[i] = 0;
+		}
+		sampleIndex = (sampleIndex + 1) % windowSize;
+		sampleCount = Math.min( sampleCount + 1, windowSize );
+		loopStartNanos = lastMarkNanos = now;
+	}
+
+	/**
+	 * Gets the number of loops the statistics are currently found over.
+	 *
+	 * @return The number of loops, up to the window size
+	 */
+	public int getSampleCount( ) {
+		return sampleCount;
+	}
+
+	/**
+	 * Gets the shortest time of a phase in the window.
+	 *
+	 * @param phase The number of the phase
+	 * @return The time in seconds, or 0 if no loops have ended
+	 */
+	public double getMin( int phase ) {
+		if( sampleCount == 0 )
+			return 0;
+		long min = Long.MAX_VALUE;
+		for( int i = 0; i < sampleCount; i++ )
+			min = Math.min( min, samples[phase][i] );
+		return min / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Gets the longest time of a phase in the window.
+	 *
+	 * @param phase The number of the phase
+	 * @return The time in seconds, or 0 if no loops have ended
+	 */
+	public double getMax( int phase ) {
+		long max = 0;
+		for( int i = 0; i < sampleCount; i++ )
+			max = Math.max( max, samples[phase][i] );
+		return max / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Gets the mean time of a phase in the window.
+	 *
+	 * @param phase The number of the phase
+	 * @return The time in seconds, or 0 if no loops have ended
+	 */
+	public double getMean( int phase ) {
+		if( sampleCount == 0 )
+			return 0;
+		long sum = 0;
+		for( int i = 0; i < sampleCount; i++ )
+			sum += samples[phase][i];
+		return sum / NANOS_PER_SECOND / sampleCount;
+	}
+
+	/**
+	 * Gets the time which the given fraction of loops in the window kept a phase within.
+	 *
+	 * @param phase    The number of the phase
+	 * @param fraction The fraction of loops, such as 0.99
+	 * @return The time in seconds, or 0 if no loops have ended
+	 */
+	public double getPercentile( int phase, double fraction ) {
+		if( sampleCount == 0 )
+			return 0;
+		System.arraycopy( samples[phase], 0, sorted, 0, sampleCount );
+		Arrays.sort( sorted, 0, sampleCount );
+		int index = (int) Math.ceil( Math.max( 0, Math.min( 1, fraction ) ) * sampleCount ) - 1;
+		return sorted[Math.max( index, 0 )] / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Forgets every loop in the window.
+	 */
+	public void reset( ) {
+		sampleIndex = 0;
+		sampleCount = 0;
+		for( int i = 0; i < current.length; i++ )
+			current[i] = 0;
+	}
+
+	/**
+	 * Lists the minimum, mean and 99th percentile time of every phase, one line each.
+	 *
+	 * @return The statistics in milliseconds
+	 */
+	@Override
+	public String toString( ) {
+		StringBuilder builder = new StringBuilder( );
+		for( int i = 0; i < names.length; i++ ) {
+			if( i > 0 )
+				builder.append( '\n' );
+			builder.append( String.format( "%s: min %.2f, mean %.2f, p99 %.2f ms", names[i],
+					getMin( i ) * 1000, getMean( i ) * 1000, getPercentile( i, 0.99 ) * 1000 ) );
+		}
+		return builder.toString( );
+	}
+
+	/**
+	 * The profiler behind {@link #DISABLED}, which stays off and ignores every call which would
+	 * change it.
+	 */
+	private static class DisabledLoopProfiler extends LoopProfiler {
+
+		DisabledLoopProfiler( ) {
+			super( 1 );
+			enabled = false;
+		}
+
+		@Override
+		public void setEnabled( boolean enabled ) {
+		}
+
+		@Override
+		public void startLoop( ) {
+		}
+
+		@Override
+		public void begin( int phase ) {
+		}
+
+		@Override
+		public void end( int phase ) {
+		}
+
+		@Override
+		public void mark( int phase ) {
+		}
+
+		@Override
+		public void endLoop( ) {
+		}
+
+		@Override
+		public void reset( ) {
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package com.hazenrobotics.commoncode.control;
+
+import com.hazenrobotics.commoncode.interfaces.IdleInterface;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a loop at a fixed period, so controllers get the same timestep every loop instead of
+ * whatever the hardware happens to allow. Each loop waits until its deadline, sleeping while there
+ * is plenty of time left and yielding for the last moment so it is not woken late. A loop which
+ * takes longer than the period is counted as an overrun, and the next loop is scheduled from when it
+ * finished rather than trying to catch up.
+ * <p>
+ * How far each loop's timestep was from the period is kept in a histogram, so missed deadlines can
+ * be seen in telemetry with {@link #toString()}. No objects are made while looping.
+ * <pre>
+ * loopTimer.start( );
+ * while( !condition.isTrue( ) ) {
+ *     ...
+ *     double dt = loopTimer.waitForNextLoop( opModeInterface );
+ * }
+ * </pre>
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class LoopTimer {
+
+	protected static final double NANOS_PER_SECOND = 1e9;
+	protected static final int HISTOGRAM_SIZE = 20;
+	protected static final long DEFAULT_BUCKET_WIDTH_NANOS = 500000;
+	//Sleeping can wake up late, so the last part of the wait is spent yielding instead
+	protected static final long SPIN_NANOS = 1000000;
+
+	protected long periodNanos;
+	protected long bucketWidthNanos = DEFAULT_BUCKET_WIDTH_NANOS;
+
+	protected boolean started = false;
+	protected long lastLoopNanos;
+	protected long deadlineNanos;
+	protected long dtNanos;
+
+	protected long loopCount = 0;
+	protected long overrunCount = 0;
+	protected long maxJitterNanos = 0;
+	protected long totalDtNanos = 0;
+	//The number of loops whose timestep was off by each bucket width, with the last bucket holding the rest
+	protected final long[] histogram = new long[HISTOGRAM_SIZE];
+
+	/**
+	 * Creates a timer for loops of the given period.
+	 *
+	 * @param periodMillis The time between the starts of loops in milliseconds, or 0 to not wait
+	 *                     and only measure the time between loops
+	 */
+	public LoopTimer( long periodMillis ) {
+		setPeriod( periodMillis );
+	}
+
+	/**
+	 * Changes the period of the loops, which is used from the next loop onwards.
+	 *
+	 * @param periodMillis The time between the starts of loops in milliseconds, or 0 to not wait
+	 */
+	public void setPeriod( long periodMillis ) {
+		this.periodNanos = Math.max( periodMillis, 0 ) * 1000000;
+	}
+
+	/**
+	 * Gets the period of the loops.
+	 *
+	 * @return The period in seconds, or 0 if the loops do not wait
+	 */
+	public double getPeriod( ) {
+		return periodNanos / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Changes the width of each bucket of the jitter histogram, which also clears it. Defaults to
+	 * 0.5 milliseconds.
+	 *
+	 * @param bucketWidthMicros The width of a bucket in microseconds
+	 */
+	public void setJitterBucketWidth( long bucketWidthMicros ) {
+		this.bucketWidthNanos = Math.max( bucketWidthMicros, 1 ) * 1000;
+		resetStatistics( );
+	}
+
+	/**
+	 * Starts timing loops from now, so the first loop ends one period from now. Should be called
+	 * just before a loop starts, otherwise the time since the last loop ended counts towards the
+	 * first one.
+	 */
+	public void start( ) {
+		started = true;
+		lastLoopNanos = System.nanoTime( );
+		deadlineNanos = lastLoopNanos + periodNanos;
+		dtNanos = periodNanos;
+	}
+
+	/**
+	 * Waits for the start of the next loop without idling first, such as on a thread which has no
+	 * OpMode to idle.
+	 *
+	 * @return The time since the start of the last loop in seconds
+	 */
+	public double waitForNextLoop( ) {
+		return waitForNextLoop( null );
+	}
+
+	/**
+	 * Idles once, letting the hardware and other threads update, then waits for the start of the next
+	 * loop. Starts timing if {@link #start()} has not been called.
+	 *
+	 * @param idleInterface The interface to idle with, or null to not idle
+	 * @return The time since the start of the last loop in seconds
+	 */
+	public double waitForNextLoop( IdleInterface idleInterface ) {
+		if( !started )
+			start( );
+		if( idleInterface != null )
+			idleInterface.idle( );
+
+		long now = System.nanoTime( );
+		if( periodNanos > 0 ) {
+			if( now >= deadlineNanos ) {
+				overrunCount++;
+				deadlineNanos = now;
+			} else {
+				now = sleepUntil( deadlineNanos );
+			}
+			deadlineNanos += periodNanos;
+		}
+
+		dtNanos = now - lastLoopNanos;
+		lastLoopNanos = now;
+		loopCount++;
+		totalDtNanos += dtNanos;
+		if( periodNanos > 0 )
+			recordJitter( Math.abs( dtNanos - periodNanos ) );
+		return dtNanos / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Sleeps until the given time, returning early if the thread is interrupted.
+	 *
+	 * @param deadline The time to wait for from {@link System#nanoTime()}
+	 * @return The time when the wait finished
+	 */
+	protected long sleepUntil( long deadline ) {
+		long now = System.nanoTime( );
+		while( now < deadline && !Thread.currentThread( ).isInterrupted( ) ) {
+			long remaining = deadline - now;
+			if( remaining > SPIN_NANOS )
+				LockSupport.parkNanos( remaining - SPIN_NANOS );
+			else
+				Thread.yield( );
+			now = System.nanoTime( );
+		}
+		return now;
+	}
+
+	/**
+	 * Adds how far a loop's timestep was from the period to the histogram.
+	 *
+	 * @param jitterNanos The difference from the period in nanoseconds
+	 */
+	protected void recordJitter( long jitterNanos ) {
+		maxJitterNanos = Math.max( maxJitterNanos, jitterNanos );
+		histogram[(int) Math.min( jitterNanos / bucketWidthNanos, HISTOGRAM_SIZE - 1 )]++;
+	}
+
+	/**
+	 * Gets the time between the starts of the last two loops.
+	 *
+	 * @return The timestep in seconds
+	 */
+	public double getDt( ) {
+		return dtNanos / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Gets the average time between loops since the statistics were last reset.
+	 *
+	 * @return The average timestep in seconds, or 0 if no loops have run
+	 */
+	public double getMeanDt( ) {
+		return loopCount > 0 ? totalDtNanos / NANOS_PER_SECOND / loopCount : 0;
+	}
+
+	/**
+	 * Gets the number of loops run since the statistics were last reset.
+	 *
+	 * @return The number of loops
+	 */
+	public long getLoopCount( ) {
+		return loopCount;
+	}
+
+	/**
+	 * Gets the number of loops which took longer than the period since the statistics were last
+	 * reset.
+	 *
+	 * @return The number of overruns
+	 */
+	public long getOverrunCount( ) {
+		return overrunCount;
+	}
+
+	/**
+	 * Gets the furthest any loop's timestep has been from the period since the statistics were last
+	 * reset.
+	 *
+	 * @return The largest jitter in seconds
+	 */
+	public double getMaxJitter( ) {
+		return maxJitterNanos / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Gets the number of buckets in the jitter histogram.
+	 *
+	 * @return The number of buckets
+	 */
+	public int getJitterBucketCount( ) {
+		return HISTOGRAM_SIZE;
+	}
+
+	/**
+	 * Gets the width of each bucket of the jitter histogram.
+	 *
+	 * @return The width in seconds
+	 */
+	public double getJitterBucketWidth( ) {
+		return bucketWidthNanos / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Gets the number of loops in a bucket of the jitter histogram. Bucket {@code i} holds loops
+	 * whose timestep was between {@code i} and {@code i + 1} bucket widths from the period, and the
+	 * last bucket holds every loop further off than that.
+	 *
+	 * @param bucket The index of the bucket
+	 * @return The number of loops
+	 */
+	public long getJitterCount( int bucket ) {
+		return histogram[bucket];
+	}
+
+	/**
+	 * Gets the jitter which the given fraction of loops were within, rounded up to a bucket width
+	 * but never more than the largest jitter.
+	 *
+	 * @param fraction The fraction of loops, such as 0.99
+	 * @return The jitter in seconds
+	 */
+	public double getJitterPercentile( double fraction ) {
+		long total = 0;
+		for( long count : histogram )
+			total += count;
+		long needed = (long) Math.ceil( Math.max( 0, Math.min( 1, fraction ) ) * total );
+		long seen = 0;
+		for( int i = 0; i < HISTOGRAM_SIZE - 1; i++ ) {
+			seen += histogram[i];
+			if( seen >= needed )
+				return Math.min( (i + 1) * bucketWidthNanos, maxJitterNanos ) / NANOS_PER_SECOND;
+		}
+		return getMaxJitter( );
+	}
+
+	/**
+	 * Clears the loop and overrun counts and the jitter histogram, without changing the timing of
+	 * the next loop.
+	 */
+	public void resetStatistics( ) {
+		loopCount = 0;
+		overrunCount = 0;
+		maxJitterNanos = 0;
+		totalDtNanos = 0;
+		for( int i = 0; i < HISTOGRAM_SIZE; i++ )
+			histogram[i] = 0;
+	}
+
+	@Override
+	public String toString( ) {
+		return String.format( "dt: %.1f ms, overruns: %d/%d, p99 jitter: %.1f ms, max jitter: %.1f ms",
+				getMeanDt( ) * 1000, overrunCount, loopCount, getJitterPercentile( 0.99 ) * 1000, getMaxJitter( ) * 1000 );
+	}
+}
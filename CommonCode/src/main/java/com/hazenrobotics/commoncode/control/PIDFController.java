@@ -0,0 +1,311 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * A proportional-integral-derivative controller with feedforward terms which can be used to close
+ * position or velocity loops in library code, instead of relying on the motor controller's built
+ * in modes. The time between updates is measured with {@link System#nanoTime()}, and no objects are
+ * allocated while updating so it can safely be called every loop.
+ *
+ * @see Gains
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class PIDFController {
+
+	protected static final double NANOS_PER_SECOND = 1e9;
+	/**
+	 * Updates further apart than this (in seconds) are treated as a fresh start, so a long pause
+	 * between loops does not wind up the integral or produce a derivative spike.
+	 */
+	protected static final double MAX_UPDATE_PERIOD = 0.25;
+
+	protected Gains gains;
+
+	protected double minOutput = -1;
+	protected double maxOutput = 1;
+	//The largest error which gets no static friction feedforward when there is no target velocity
+	protected double staticDeadband = 0;
+
+	protected double integralSum = 0;
+	protected double filteredDerivative = 0;
+	protected double lastMeasurement = 0;
+	protected double lastError = 0;
+	protected double lastOutput = 0;
+	protected long lastUpdateNanos = 0;
+	protected boolean hasUpdated = false;
+
+	/**
+	 * Creates a controller which will use the given gains.
+	 *
+	 * @param gains The proportional, integral, derivative and feedforward gains of the controller
+	 */
+	public PIDFController( Gains gains ) {
+		this.gains = gains;
+	}
+
+	/**
+	 * Changes the gains of the controller. The controller's accumulated state is kept.
+	 *
+	 * @param gains The new gains to use
+	 */
+	public void setGains( Gains gains ) {
+		this.gains = gains;
+	}
+
+	/**
+	 * Gets the gains currently used by the controller.
+	 *
+	 * @return The current gains
+	 */
+	public Gains getGains( ) {
+		return gains;
+	}
+
+	/**
+	 * Limits the output of the controller to the given range. Defaults to -1 to 1, the range of
+	 * motor power.
+	 *
+	 * @param minOutput The smallest output the controller will return
+	 * @param maxOutput The largest output the controller will return
+	 */
+	public void setOutputRange( double minOutput, double maxOutput ) {
+		this.minOutput = Math.min( minOutput, maxOutput );
+		this.maxOutput = Math.max( minOutput, maxOutput );
+	}
+
+	/**
+	 * Stops the static friction feedforward from being applied towards the setpoint while the error
+	 * is within the given deadband, so a position loop which has reached its target does not flip
+	 * between pushing either way every update. Defaults to 0.
+	 *
+	 * @param staticDeadband The largest error which gets no static friction feedforward, such as the
+	 *                       tolerance of a position loop
+	 */
+	public void setStaticDeadband( double staticDeadband ) {
+		this.staticDeadband = Math.abs( staticDeadband );
+	}
+
+	/**
+	 * Clears the integral sum and derivative history, so the next update is treated as the first.
+	 * Should be called before starting to track a new setpoint.
+	 */
+	public void reset( ) {
+		integralSum = 0;
+		filteredDerivative = 0;
+		lastError = 0;
+		lastOutput = 0;
+		hasUpdated = false;
+	}
+
+	/**
+	 * Calculates the controller output for a position loop, where there is no target velocity to
+	 * feed forward. Static friction compensation is applied in the direction of the error, once the
+	 * error is outside of the {@link #setStaticDeadband(double) static deadband}.
+	 *
+	 * @param setpoint    The value which is trying to be reached
+	 * @param measurement The current measured value
+	 * @return The output of the controller, bounded to the {@link #setOutputRange(double, double) output range}
+	 */
+	public double calculate( double setpoint, double measurement ) {
+		return calculate( setpoint, measurement, 0, 0 );
+	}
+
+	/**
+	 * Calculates the controller output for a velocity loop, where the setpoint is also the velocity
+	 * which is fed forward. No static friction compensation is applied for a setpoint of 0, so a
+	 * wheel which should stay still does not buzz on encoder noise.
+	 *
+	 * @param setpoint    The velocity which is trying to be reached
+	 * @param measurement The current measured velocity
+	 * @return The output of the controller, bounded to the {@link #setOutputRange(double, double) output range}
+	 */
+	public double calculateVelocity( double setpoint, double measurement ) {
+		return update( setpoint, measurement, gains.kF * setpoint + gains.kS * Math.signum( setpoint ) );
+	}
+
+	/**
+	 * Calculates the controller output for the given setpoint and measurement using a separate
+	 * feedforward velocity and acceleration, such as ones from a motion profile.
+	 *
+	 * @param setpoint     The value which is trying to be reached
+	 * @param measurement  The current measured value
+	 * @param velocity     The velocity which the feedforward gain {@link Gains#kF} is multiplied by
+	 * @param acceleration The acceleration which the feedforward gain {@link Gains#kA} is multiplied by
+	 * @return The output of the controller, bounded to the {@link #setOutputRange(double, double) output range}
+	 */
+	public double calculate( double setpoint, double measurement, double velocity, double acceleration ) {
+		double error = setpoint - measurement;
+		//Static friction is overcome in the direction of travel, or towards the setpoint when holding still outside of the deadband
+		double staticDirection = velocity != 0 ? Math.signum( velocity ) : Math.abs( error ) > staticDeadband ? Math.signum( error ) : 0;
+		return update( setpoint, measurement, gains.kF * velocity + gains.kA * acceleration + gains.kS * staticDirection );
+	}
+
+	/**
+	 * Updates the feedback terms and adds them to the given feedforward.
+	 *
+	 * @param setpoint    The value which is trying to be reached
+	 * @param measurement The current measured value
+	 * @param feedforward The output which is added regardless of the error
+	 * @return The output of the controller, bounded to the {@link #setOutputRange(double, double) output range}
+	 */
+	protected double update( double setpoint, double measurement, double feedforward ) {
+		long now = System.nanoTime( );
+		double dt = hasUpdated ? (now - lastUpdateNanos) / NANOS_PER_SECOND : 0;
+		double error = setpoint - measurement;
+
+		if( dt > 0 && dt <= MAX_UPDATE_PERIOD ) {
+			integralSum += error * dt;
+			//Bounds the integral so that the integral term alone can never exceed the integral limit
+			if( gains.kI != 0 ) {
+				double maxIntegral = gains.integralLimit / Math.abs( gains.kI );
+				integralSum = Math.max( -maxIntegral, Math.min( maxIntegral, integralSum ) );
+			}
+			//Uses the change in measurement rather than error so that setpoint changes do not kick the output
+			double derivative = -(measurement - lastMeasurement) / dt;
+			filteredDerivative += (1 - gains.derivativeFilter) * (derivative - filteredDerivative);
+		} else if( dt > MAX_UPDATE_PERIOD ) {
+			filteredDerivative = 0;
+		}
+
+		double output = gains.kP * error + gains.kI * integralSum + gains.kD * filteredDerivative + feedforward;
+
+		lastMeasurement = measurement;
+		lastError = error;
+		lastUpdateNanos = now;
+		hasUpdated = true;
+		lastOutput = Math.max( minOutput, Math.min( maxOutput, output ) );
+		return lastOutput;
+	}
+
+	/**
+	 * Gets the error (setpoint minus measurement) from the last update.
+	 *
+	 * @return The last error, or 0 if the controller has not been updated since being reset
+	 */
+	public double getLastError( ) {
+		return lastError;
+	}
+
+	/**
+	 * Gets the output returned by the last update.
+	 *
+	 * @return The last output, or 0 if the controller has not been updated since being reset
+	 */
+	public double getLastOutput( ) {
+		return lastOutput;
+	}
+
+	/**
+	 * Checks if the last error was within a tolerance of the setpoint.
+	 *
+	 * @param tolerance The largest error which still counts as being at the setpoint
+	 * @return True if the controller has been updated and the last error is within the tolerance
+	 */
+	public boolean atSetpoint( double tolerance ) {
+		return hasUpdated && Math.abs( lastError ) <= tolerance;
+	}
+
+	/**
+	 * Stores the gains for a {@link PIDFController}.
+	 */
+	public static class Gains {
+
+		/**
+		 * The gain multiplied by the error.
+		 */
+		public double kP;
+
+		/**
+		 * The gain multiplied by the integral of the error over time (in seconds.)
+		 */
+		public double kI;
+
+		/**
+		 * The gain multiplied by the rate of change of the error per second.
+		 */
+		public double kD;
+
+		/**
+		 * The feedforward gain multiplied by the target velocity.
+		 */
+		public double kF;
+
+		/**
+		 * The feedforward gain multiplied by the target acceleration.
+		 */
+		public double kA = 0;
+
+		/**
+		 * The feedforward output added in the direction of the target velocity (or of the error when
+		 * there is no target velocity and it is outside of the controller's static deadband) to
+		 * overcome static friction.
+		 */
+		public double kS = 0;
+
+		/**
+		 * The largest magnitude the integral term can contribute to the output, defaults to 0.25.
+		 */
+		public double integralLimit = 0.25;
+
+		/**
+		 * How much of the previous derivative is kept each update, between 0 (no filtering) and
+		 * less than 1 (heavy filtering); defaults to 0.5.
+		 */
+		public double derivativeFilter = 0.5;
+
+		/**
+		 * Creates gains for a proportional-integral-derivative controller without feedforward.
+		 *
+		 * @param kP The proportional gain
+		 * @param kI The integral gain
+		 * @param kD The derivative gain
+		 */
+		public Gains( double kP, double kI, double kD ) {
+			this( kP, kI, kD, 0 );
+		}
+
+		/**
+		 * Creates gains for a proportional-integral-derivative controller with a velocity
+		 * feedforward.
+		 *
+		 * @param kP The proportional gain
+		 * @param kI The integral gain
+		 * @param kD The derivative gain
+		 * @param kF The velocity feedforward gain
+		 */
+		public Gains( double kP, double kI, double kD, double kF ) {
+			this.kP = kP;
+			this.kI = kI;
+			this.kD = kD;
+			this.kF = kF;
+		}
+
+		/**
+		 * Creates gains for a proportional-integral-derivative controller with all of the
+		 * feedforward terms.
+		 *
+		 * @param kP The proportional gain
+		 * @param kI The integral gain
+		 * @param kD The derivative gain
+		 * @param kF The velocity feedforward gain
+		 * @param kA The acceleration feedforward gain
+		 * @param kS The static friction feedforward
+		 */
+		public Gains( double kP, double kI, double kD, double kF, double kA, double kS ) {
+			this( kP, kI, kD, kF );
+			this.kA = kA;
+			this.kS = kS;
+		}
+
+		/**
+		 * Creates a copy of other gains, so defaults can be given to a controller without sharing
+		 * them with every other controller using the same defaults.
+		 *
+		 * @param other The gains to copy
+		 */
+		public Gains( Gains other ) {
+			this( other.kP, other.kI, other.kD, other.kF, other.kA, other.kS );
+			integralLimit = other.integralLimit;
+			derivativeFilter = other.derivativeFilter;
+		}
+	}
+}
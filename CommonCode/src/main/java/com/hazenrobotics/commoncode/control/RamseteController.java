@@ -0,0 +1,100 @@
+package com.hazenrobotics.commoncode.control;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+import com.hazenrobotics.commoncode.movement.paths.TrajectoryState;
+
+/**
+ * A nonlinear controller for robots which can't strafe, which calculates the forwards and turning
+ * velocities needed to track a reference state from a trajectory. It corrects errors in position
+ * and heading together, so the robot converges back onto the trajectory smoothly instead of
+ * turning in place to fix its heading.
+ * <p>
+ * The results are stored in the controller and read with {@link #getVelocity()} and
+ * {@link #getAngularVelocity()}, so calculating does not allocate anything.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class RamseteController {
+
+	protected static final double METERS_PER_INCH = 0.0254;
+	//Below this heading error the limit of sin(x)/x is used to avoid dividing by zero
+	protected static final double SMALL_ANGLE = 1e-6;
+
+	/**
+	 * The commonly used aggressiveness, in per square meter
+	 */
+	public static final double DEFAULT_B = 2.0;
+
+	/**
+	 * The commonly used damping
+	 */
+	public static final double DEFAULT_ZETA = 0.7;
+
+	//Stored per square inch since all distances are in inches
+	protected final double b;
+	protected final double zeta;
+
+	protected double velocity = 0;
+	protected double angularVelocity = 0;
+
+	/**
+	 * Creates a controller with the commonly used gains, b = 2 per square meter and zeta = 0.7.
+	 */
+	public RamseteController( ) {
+		this( DEFAULT_B, DEFAULT_ZETA );
+	}
+
+	/**
+	 * Creates a controller with the given gains.
+	 *
+	 * @param b    How aggressively errors are corrected, in per square meter (like the values
+	 *             usually published for this controller) and greater than 0
+	 * @param zeta The damping of the correction, between 0 and 1
+	 */
+	public RamseteController( double b, double zeta ) {
+		this.b = b * METERS_PER_INCH * METERS_PER_INCH;
+		this.zeta = zeta;
+	}
+
+	/**
+	 * Calculates the velocities which will make the robot track the reference state.
+	 *
+	 * @param current   The current pose of the robot
+	 * @param reference The state of the trajectory the robot should be at
+	 */
+	public void calculate( Pose current, TrajectoryState reference ) {
+		//The error relative to the robot
+		double deltaX = reference.pose.x - current.x;
+		double deltaY = reference.pose.y - current.y;
+		double cos = Math.cos( current.heading );
+		double sin = Math.sin( current.heading );
+		double forwardError = deltaX * cos + deltaY * sin;
+		double leftError = -deltaX * sin + deltaY * cos;
+		double headingError = Math.IEEEremainder( reference.pose.heading - current.heading, 2 * Math.PI );
+
+		double referenceVelocity = reference.velocity;
+		double referenceAngularVelocity = reference.angularVelocity;
+		double gain = 2 * zeta * Math.sqrt( referenceAngularVelocity * referenceAngularVelocity + b * referenceVelocity * referenceVelocity );
+		double sinc = Math.abs( headingError ) < SMALL_ANGLE ? 1 : Math.sin( headingError ) / headingError;
+
+		velocity = referenceVelocity * Math.cos( headingError ) + gain * forwardError;
+		angularVelocity = referenceAngularVelocity + gain * headingError + b * referenceVelocity * sinc * leftError;
+	}
+
+	/**
+	 * Gets the forwards velocity from the last calculation.
+	 *
+	 * @return The velocity in inches per second
+	 */
+	public double getVelocity( ) {
+		return velocity;
+	}
+
+	/**
+	 * Gets the turning velocity from the last calculation.
+	 *
+	 * @return The counter-clockwise angular velocity in radians per second
+	 */
+	public double getAngularVelocity( ) {
+		return angularVelocity;
+	}
+}
@@ -0,0 +1,140 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * Shapes joystick input, such as to ignore small movements around the center (the deadband) and
+ * to give finer control at low speeds while still reaching full power at the edge. The curve is
+ * calculated once into a table when it is made, so applying it every loop is just a table lookup
+ * and a linear interpolation no matter how complicated the curve is.
+ * <p>
+ * Curves are symmetric: negative inputs give the negative of the output for the positive input.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class ResponseCurve {
+
+	//How many steps the table divides the input from 0 to 1 into
+	protected static final int TABLE_STEPS = 1024;
+
+	/**
+	 * A curve which passes the input straight through.
+	 */
+	public static final ResponseCurve LINEAR = linear( 0f );
+
+	protected final float[] table = new float[TABLE_STEPS + 1];
+
+	/**
+	 * Creates a curve from the output at each step of the table, which subclasses or the static
+	 * factories fill in.
+	 */
+	protected ResponseCurve( ) {}
+
+	/**
+	 * Creates a straight line curve with a deadband.
+	 *
+	 * @param deadband How far the input has to move from the center before there is any output,
+	 *                 between 0f and 1f
+	 * @return The new curve
+	 */
+	public static ResponseCurve linear( float deadband ) {
+		return exponential( deadband, 0f );
+	}
+
+	/**
+	 * Creates a curve which blends between a straight line and a cube, which is gentle near the
+	 * center and steeper towards the edge.
+	 *
+	 * @param deadband How far the input has to move from the center before there is any output,
+	 *                 between 0f and 1f
+	 * @param expo     How much of the cube to use, where 0f is a straight line and 1f is a pure cube
+	 * @return The new curve
+	 */
+	public static ResponseCurve exponential( float deadband, float expo ) {
+		ResponseCurve curve = new ResponseCurve( );
+		float cube = Math.max( 0f, Math.min( 1f, expo ) );
+		for( int i = 0; i <= TABLE_STEPS; i++ ) {
+			double x = curve.removeDeadband( i, deadband );
+			curve.table[i] = (float) ((1 - cube) * x + cube * x * x * x);
+		}
+		return curve;
+	}
+
+	/**
+	 * Creates a curve which cubes the input after the deadband.
+	 *
+	 * @param deadband How far the input has to move from the center before there is any output,
+	 *                 between 0f and 1f
+	 * @return The new curve
+	 */
+	public static ResponseCurve cubic( float deadband ) {
+		return exponential( deadband, 1f );
+	}
+
+	/**
+	 * Creates a curve which raises the input to a power after the deadband.
+	 *
+	 * @param deadband How far the input has to move from the center before there is any output,
+	 *                 between 0f and 1f
+	 * @param exponent The power to raise the input to, where larger values give finer control near
+	 *                 the center
+	 * @return The new curve
+	 */
+	public static ResponseCurve power( float deadband, float exponent ) {
+		ResponseCurve curve = new ResponseCurve( );
+		for( int i = 0; i <= TABLE_STEPS; i++ )
+			curve.table[i] = (float) Math.pow( curve.removeDeadband( i, deadband ), exponent );
+		return curve;
+	}
+
+	/**
+	 * Creates a curve made of straight lines between points, such as to have a slow range for
+	 * lining up and a fast range for crossing the field. Inputs below the first point give the first
+	 * point's output and inputs above the last give the last point's output.
+	 *
+	 * @param points Pairs of input and output values for inputs between 0f and 1f, in order of
+	 *               increasing input
+	 * @return The new curve
+	 */
+	public static ResponseCurve piecewise( float... points ) {
+		if( points.length < 4 || points.length % 2 != 0 )
+			throw new IllegalArgumentException( "A piecewise curve needs at least two pairs of input and output values." );
+		for( int i = 2; i < points.length; i += 2 ) {
+			if( points[i] <= points[i - 2] )
+				throw new IllegalArgumentException( "The inputs of a piecewise curve must be increasing." );
+		}
+
+		ResponseCurve curve = new ResponseCurve( );
+		int point = 0;
+		for( int i = 0; i <= TABLE_STEPS; i++ ) {
+			float x = (float) i / TABLE_STEPS;
+			while( point < points.length - 4 && x > points[point + 2] )
+				point += 2;
+			float fraction = (x - points[point]) / (points[point + 2] - points[point]);
+			fraction = Math.max( 0f, Math.min( 1f, fraction ) );
+			curve.table[i] = points[point + 1] + (points[point + 3] - points[point + 1]) * fraction;
+		}
+		return curve;
+	}
+
+	/**
+	 * Rescales a table step so the input starts at 0 at the edge of the deadband and reaches 1 at
+	 * full input.
+	 */
+	private double removeDeadband( int step, float deadband ) {
+		double x = (double) step / TABLE_STEPS;
+		if( x <= deadband || deadband >= 1 )
+			return 0;
+		return (x - deadband) / (1 - deadband);
+	}
+
+	/**
+	 * Applies the curve to an input.
+	 *
+	 * @param input The input, such as a joystick axis, between -1f and 1f
+	 * @return The shaped output
+	 */
+	public float apply( float input ) {
+		float position = Math.min( Math.abs( input ), 1f ) * TABLE_STEPS;
+		int index = Math.min( (int) position, TABLE_STEPS - 1 );
+		float output = table[index] + (table[index + 1] - table[index]) * (position - index);
+		return input < 0 ? -output : output;
+	}
+}
@@ -0,0 +1,75 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * A model of how much motor power is needed to move at a velocity and acceleration: enough to
+ * overcome static friction, plus an amount proportional to the velocity and to the acceleration.
+ * With a well fit model most of the power can be calculated ahead of time, leaving only small
+ * errors for feedback to correct.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class SimpleMotorFeedforward {
+
+	/**
+	 * The power needed to overcome static friction.
+	 */
+	public final double kS;
+
+	/**
+	 * The power needed per unit of velocity.
+	 */
+	public final double kV;
+
+	/**
+	 * The power needed per unit of acceleration.
+	 */
+	public final double kA;
+
+	/**
+	 * Creates a feedforward model with the given gains.
+	 *
+	 * @param kS The power needed to overcome static friction
+	 * @param kV The power needed per unit of velocity
+	 * @param kA The power needed per unit of acceleration
+	 */
+	public SimpleMotorFeedforward( double kS, double kV, double kA ) {
+		this.kS = kS;
+		this.kV = kV;
+		this.kA = kA;
+	}
+
+	/**
+	 * Calculates the power needed to move at a velocity while accelerating.
+	 *
+	 * @param velocity     The target velocity
+	 * @param acceleration The target acceleration
+	 * @return The motor power, which may be outside of -1 to 1 if the target is not achievable
+	 */
+	public double calculate( double velocity, double acceleration ) {
+		return kS * Math.signum( velocity ) + kV * velocity + kA * acceleration;
+	}
+
+	/**
+	 * Calculates the power needed to hold a constant velocity.
+	 *
+	 * @param velocity The target velocity
+	 * @return The motor power, which may be outside of -1 to 1 if the target is not achievable
+	 */
+	public double calculate( double velocity ) {
+		return calculate( velocity, 0 );
+	}
+
+	/**
+	 * Calculates the fastest velocity which can be held with the given power.
+	 *
+	 * @param maxPower The largest power which can be used, such as 1
+	 * @return The velocity which can be reached
+	 */
+	public double getMaxVelocity( double maxPower ) {
+		return kV > 0 ? Math.max( 0, maxPower - kS ) / kV : Double.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public String toString( ) {
+		return String.format( "kS: %.4f, kV: %.5f, kA: %.5f", kS, kV, kA );
+	}
+}
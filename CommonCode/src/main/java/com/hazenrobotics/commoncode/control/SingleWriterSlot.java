@@ -0,0 +1,114 @@
+package com.hazenrobotics.commoncode.control;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands a group of numbers from one thread to another without locks, such as setpoints from the
+ * OpMode thread to a {@link ControlExecutor}, or measured state back. Only one thread may write to
+ * a slot, but any number can read it.
+ * <p>
+ * Writes are guarded by a sequence number which is odd while a write is in progress, so a reader
+ * that overlaps a write simply reads again, and always gets a whole group of values from the same
+ * write. Neither side ever waits on the other or makes new objects.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class SingleWriterSlot {
+
+	protected final AtomicLongArray values;
+	protected volatile long sequence = 0;
+
+	/**
+	 * Creates a slot holding the given number of values, which all start as 0.
+	 *
+	 * @param size The number of values
+	 */
+	public SingleWriterSlot( int size ) {
+		values = new AtomicLongArray( size );
+	}
+
+	/**
+	 * Starts a write. The values should then be set and {@link #endWrite()} called, and readers
+	 * will only see the new values once it is.
+	 */
+	public void beginWrite( ) {
+		sequence = sequence + 1;
+	}
+
+	/**
+	 * Sets a value during a write.
+	 *
+	 * @param index The index of the value
+	 * @param value The new value
+	 */
+	public void set( int index, double value ) {
+		values.set( index, Double.doubleToRawLongBits( value ) );
+	}
+
+	/**
+	 * Finishes a write, letting readers see the new values.
+	 */
+	public void endWrite( ) {
+		sequence = sequence + 1;
+	}
+
+	/**
+	 * Writes every value at once.
+	 *
+	 * @param newValues The new values, at least as many as the slot holds
+	 */
+	public void write( double... newValues ) {
+		beginWrite( );
+		for( int i = 0; i < values.length( ); i++ )
+			set( i, newValues[i] );
+		endWrite( );
+	}
+
+	/**
+	 * Copies the values of the last finished write, trying again if a write happens while reading.
+	 *
+	 * @param result The array the values are copied into, at least as long as the slot
+	 * @return The version of the values which were read, which goes up with every write
+	 */
+	public long read( double[] result ) {
+		while( true ) {
+			long before = sequence;
+			if( (before & 1) == 0 ) {
+				for( int i = 0; i < values.length( ); i++ )
+					result[i] = Double.longBitsToDouble( values.get( i ) );
+				if( sequence == before )
+					return before / 2;
+			}
+			Thread.yield( );
+		}
+	}
+
+	/**
+	 * Gets a single value from the last write, which is enough when the values do not need to be
+	 * from the same write.
+	 *
+	 * @param index The index of the value
+	 * @return The value
+	 */
+	public double get( int index ) {
+		return Double.longBitsToDouble( values.get( index ) );
+	}
+
+	/**
+	 * Gets the version of the last finished write, such as to check if anything new has been
+	 * written without reading the values.
+	 *
+	 * @return The version, which goes up with every write
+	 */
+	public long getVersion( ) {
+		return sequence / 2;
+	}
+
+	/**
+	 * Gets the number of values in the slot.
+	 *
+	 * @return The number of values
+	 */
+	public int getSize( ) {
+		return values.length( );
+	}
+}
@@ -0,0 +1,106 @@
+package com.hazenrobotics.commoncode.control;
+
+/**
+ * Limits how quickly a value such as a motor power can change, so a stick slammed from full
+ * forwards to full backwards ramps over a set time instead of jumping in one loop. Speeding up and
+ * slowing down can have separate limits, since slowing down can usually be done harder without the
+ * wheels slipping. The limits are per second using {@link System#nanoTime()}, so they behave the
+ * same no matter how fast the loop runs.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class SlewRateLimiter {
+
+	protected static final double NANOS_PER_SECOND = 1e9;
+	/**
+	 * The longest time (in seconds) one update can ramp over, so a long pause between loops does
+	 * not allow a sudden jump.
+	 */
+	protected static final double MAX_UPDATE_PERIOD = 0.25;
+
+	protected float riseRate;
+	protected float fallRate;
+
+	protected float value = 0;
+	protected long lastUpdateNanos = 0;
+	protected boolean hasUpdated = false;
+
+	/**
+	 * Creates a limiter which speeds up and slows down at the same rate.
+	 *
+	 * @param rate The largest change per second
+	 */
+	public SlewRateLimiter( float rate ) {
+		this( rate, rate );
+	}
+
+	/**
+	 * Creates a limiter with separate rates for moving away from and back towards zero.
+	 *
+	 * @param riseRate The largest change per second while the magnitude is increasing
+	 * @param fallRate The largest change per second while the magnitude is decreasing
+	 */
+	public SlewRateLimiter( float riseRate, float fallRate ) {
+		setRates( riseRate, fallRate );
+	}
+
+	/**
+	 * Changes the rates the value is allowed to change at.
+	 *
+	 * @param riseRate The largest change per second while the magnitude is increasing
+	 * @param fallRate The largest change per second while the magnitude is decreasing
+	 */
+	public void setRates( float riseRate, float fallRate ) {
+		this.riseRate = Math.abs( riseRate );
+		this.fallRate = Math.abs( fallRate );
+	}
+
+	/**
+	 * Moves the value towards the input as far as the rates allow in the time since the last update.
+	 *
+	 * @param input The value which is trying to be reached
+	 * @return The limited value
+	 */
+	public float calculate( float input ) {
+		long now = System.nanoTime( );
+		float dt = hasUpdated ? (float) Math.min( (now - lastUpdateNanos) / NANOS_PER_SECOND, MAX_UPDATE_PERIOD ) : 0f;
+		lastUpdateNanos = now;
+		hasUpdated = true;
+
+		if( value != 0 && (input == 0 || (input > 0) != (value > 0) || Math.abs( input ) < Math.abs( value )) ) {
+			//Slows down towards the input, or towards zero first if the input is on the other side of it
+			float target = (input > 0) == (value > 0) ? input : 0f;
+			float fallStep = fallRate * dt;
+			if( Math.abs( value - target ) > fallStep ) {
+				value -= Math.copySign( fallStep, value );
+				return value;
+			}
+			//Spends whatever time is left over speeding up past zero
+			dt -= fallRate > 0 ? Math.abs( value - target ) / fallRate : dt;
+			value = target;
+			if( target == input )
+				return value;
+		}
+		float riseStep = riseRate * dt;
+		value += Math.max( -riseStep, Math.min( riseStep, input - value ) );
+		return value;
+	}
+
+	/**
+	 * Gets the value from the last update.
+	 *
+	 * @return The current limited value
+	 */
+	public float getValue( ) {
+		return value;
+	}
+
+	/**
+	 * Sets the value straight away, such as to 0 when the robot is stopped by other code.
+	 *
+	 * @param value The new value
+	 */
+	public void reset( float value ) {
+		this.value = value;
+		hasUpdated = false;
+	}
+}
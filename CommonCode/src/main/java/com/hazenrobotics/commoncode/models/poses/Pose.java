@@ -0,0 +1,126 @@
+package com.hazenrobotics.commoncode.models.poses;
+
+/**
+ * The position and heading of the robot on the field. Distances are in inches and the heading is
+ * in radians, counter-clockwise positive from the field's x axis. Poses are mutable so they can be
+ * reused every loop without allocating new objects.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class Pose {
+
+	//Below this change in heading the series expansions are used to avoid dividing by zero
+	protected static final double SMALL_ANGLE = 1e-6;
+
+	/**
+	 * The x position in inches
+	 */
+	public double x = 0;
+
+	/**
+	 * The y position in inches
+	 */
+	public double y = 0;
+
+	/**
+	 * The heading in radians, which is continuous rather than wrapped to one rotation
+	 */
+	public double heading = 0;
+
+	/**
+	 * Default constructor for Pose, which starts at the origin facing along the x axis.
+	 */
+	public Pose( ) {
+	}
+
+	/**
+	 * Creates a pose at the given position and heading.
+	 *
+	 * @param x       The x position in inches
+	 * @param y       The y position in inches
+	 * @param heading The heading in radians
+	 */
+	public Pose( double x, double y, double heading ) {
+		set( x, y, heading );
+	}
+
+	/**
+	 * Creates a copy of another pose.
+	 *
+	 * @param other The pose to copy
+	 */
+	public Pose( Pose other ) {
+		set( other );
+	}
+
+	/**
+	 * Sets the position and heading of this pose.
+	 *
+	 * @param x       The x position in inches
+	 * @param y       The y position in inches
+	 * @param heading The heading in radians
+	 * @return This pose
+	 */
+	public Pose set( double x, double y, double heading ) {
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		return this;
+	}
+
+	/**
+	 * Sets the position and heading of this pose to those of another.
+	 *
+	 * @param other The pose to copy
+	 * @return This pose
+	 */
+	public Pose set( Pose other ) {
+		return set( other.x, other.y, other.heading );
+	}
+
+	/**
+	 * Moves this pose by a movement given relative to the robot, following the constant curvature
+	 * arc the robot would have taken (the pose exponential) rather than a straight line, which keeps
+	 * the estimate exact for movements made while turning.
+	 *
+	 * @param forward       The distance moved forwards in inches
+	 * @param left          The distance moved to the left in inches
+	 * @param headingChange The change in heading in radians, counter-clockwise positive
+	 * @return This pose
+	 */
+	public Pose integrateTwist( double forward, double left, double headingChange ) {
+		double sinTerm;
+		double cosTerm;
+		if( Math.abs( headingChange ) < SMALL_ANGLE ) {
+			sinTerm = 1 - headingChange * headingChange / 6;
+			cosTerm = headingChange / 2;
+		} else {
+			sinTerm = Math.sin( headingChange ) / headingChange;
+			cosTerm = (1 - Math.cos( headingChange )) / headingChange;
+		}
+		//The movement along the arc, still relative to the heading at the start of it
+		double relativeX = forward * sinTerm - left * cosTerm;
+		double relativeY = forward * cosTerm + left * sinTerm;
+
+		double cos = Math.cos( heading );
+		double sin = Math.sin( heading );
+		x += relativeX * cos - relativeY * sin;
+		y += relativeX * sin + relativeY * cos;
+		heading += headingChange;
+		return this;
+	}
+
+	/**
+	 * Gets the distance between this and another pose's positions.
+	 *
+	 * @param other The pose to measure to
+	 * @return The distance in inches
+	 */
+	public double distanceTo( Pose other ) {
+		return Math.hypot( other.x - x, other.y - y );
+	}
+
+	@Override
+	public String toString( ) {
+		return String.format( "(%.2f, %.2f, %.1f°)", x, y, Math.toDegrees( heading ) );
+	}
+}
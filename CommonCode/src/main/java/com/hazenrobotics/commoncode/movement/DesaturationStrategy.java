@@ -0,0 +1,42 @@
+package com.hazenrobotics.commoncode.movement;
+
+/**
+ * How wheel coefficients are brought back within full power when moving and turning together
+ * would need more than a motor can give.
+ *
+ * @see MecanumWheels#setDesaturationStrategy(DesaturationStrategy)
+ * @see TwoWheels#setDesaturationStrategy(DesaturationStrategy)
+ */
+public enum DesaturationStrategy {
+	/**
+	 * Scales every wheel down by the same amount, so the robot keeps the direction of its motion but
+	 * loses both speed and turning. This is how the wheels have always behaved.
+	 */
+	PROPORTIONAL,
+	/**
+	 * Keeps the turning part of the motion and scales down only the moving part to fit in the power
+	 * left over, so heading corrections still work at full speed.
+	 */
+	ROTATION_PRIORITY,
+	/**
+	 * Keeps the moving part of the motion and scales down only the turning part to fit in the power
+	 * left over.
+	 */
+	TRANSLATION_PRIORITY;
+
+	/**
+	 * Finds how much of an amount can be added to a wheel's base coefficient before it goes past 1
+	 * or -1.
+	 *
+	 * @param amount The coefficient which is being scaled
+	 * @param base   The coefficient which is kept
+	 * @return The largest multiple of the amount which fits, which may be more than 1
+	 */
+	static float headroom( float amount, float base ) {
+		if( amount > 0 )
+			return (1 - base) / amount;
+		if( amount < 0 )
+			return (-1 - base) / amount;
+		return Float.POSITIVE_INFINITY;
+	}
+}
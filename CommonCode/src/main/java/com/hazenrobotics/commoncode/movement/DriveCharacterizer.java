@@ -0,0 +1,351 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.FeedforwardFitter;
+import com.hazenrobotics.commoncode.control.SimpleMotorFeedforward;
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+import com.hazenrobotics.commoncode.models.distances.Distance;
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * Measures how the drivetrain's speed responds to power and fits a {@link SimpleMotorFeedforward}
+ * to it, so profiled and teleop driving can calculate most of the power they need ahead of time.
+ * <p>
+ * Two kinds of test are run while logging the timestamped distance driven by the wheels:
+ * <ul>
+ * <li>{@link #runQuasiStatic(double, double) Quasi-static} tests slowly ramp the power up, so the
+ * robot barely accelerates and the power is almost all static friction and velocity.</li>
+ * <li>{@link #runStep(double, double) Step} tests apply a constant power straight away, so the
+ * robot accelerates hard and the acceleration gain can be measured.</li>
+ * </ul>
+ * Every test is added to the fit, which is best with at least one of each kind in each direction.
+ * The velocity and acceleration of each sample come from a curve fit through the distances either
+ * side of it, so they line up in time with the power, rather than lagging behind it like the
+ * wheels' velocity estimates do.
+ * The motors are switched to RUN_WITHOUT_ENCODER during each test, so the power is what the motors
+ * actually get rather than a speed for the motor controller to hold, and switched back afterwards.
+ * The power is written straight to the motors, skipping the wheels' traction control and voltage
+ * compensation, so the logged power is exactly what the motors received.
+ * Each test stops after the robot has driven the {@link #setMaxDistance(Distance) maximum
+ * distance}, so make sure there is room in front of and behind the robot.
+ *
+ * @see TwoWheelsCharacterizer
+ * @see MecanumCharacterizer
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public abstract class DriveCharacterizer {
+
+	protected static final DistanceUnit DISTANCE_UNIT = DistanceUnit.INCH;
+	protected static final int MAX_SAMPLES = 2048;
+	protected static final double DEFAULT_MAX_DISTANCE = 60;
+	protected static final double NANOS_PER_SECOND = 1e9;
+	//How many samples either side of each sample its velocity and acceleration are fit through
+	protected static final int FIT_WINDOW = 4;
+	//How long to wait for the robot to stop after a test
+	protected static final double STOP_TIMEOUT = 2;
+
+	protected final OpModeInterface opModeInterface;
+	protected final FeedforwardFitter fitter = new FeedforwardFitter( );
+	protected double maxDistance = DEFAULT_MAX_DISTANCE;
+
+	//The log of the last test, made once so logging does not make new objects
+	protected final double[] sampleTimes = new double[MAX_SAMPLES];
+	protected final double[] samplePowers = new double[MAX_SAMPLES];
+	protected final double[] sampleDistances = new double[MAX_SAMPLES];
+	//Calculated from the distances once the test is done
+	protected final double[] sampleVelocities = new double[MAX_SAMPLES];
+	protected int sampleCount = 0;
+	//The run mode of the wheels before the current test, restored once it is done
+	protected DcMotor.RunMode savedMode;
+
+	/**
+	 * Creates a characterizer.
+	 *
+	 * @param opModeInterface An interface used to idle while testing
+	 */
+	protected DriveCharacterizer( OpModeInterface opModeInterface ) {
+		this.opModeInterface = opModeInterface;
+	}
+
+	/**
+	 * Changes how far the robot can drive in each test. Defaults to 60 inches.
+	 *
+	 * @param maxDistance The furthest distance to drive
+	 */
+	public void setMaxDistance( Distance maxDistance ) {
+		this.maxDistance = Math.abs( maxDistance.getValue( DISTANCE_UNIT ) );
+	}
+
+	/**
+	 * Slowly ramps the power up from 0 and adds the measurements to the fit. Stops once the given
+	 * power is reached, the maximum distance has been driven, or the OpMode stops.
+	 *
+	 * @param rampRate The power added every second, such as 0.1
+	 * @param maxPower The power to ramp up to, which is negative to drive backwards
+	 * @throws IllegalArgumentException If the ramp rate is 0
+	 */
+	public void runQuasiStatic( double rampRate, double maxPower ) {
+		if( rampRate == 0 )
+			throw new IllegalArgumentException( "The ramp rate of a quasi-static test can not be 0." );
+		runTest( Math.abs( rampRate ), maxPower, Math.abs( maxPower / rampRate ) );
+	}
+
+	/**
+	 * Applies a constant power and adds the measurements to the fit. Stops once the time has passed,
+	 * the maximum distance has been driven, or the OpMode stops.
+	 *
+	 * @param power   The power to apply, which is negative to drive backwards
+	 * @param seconds The longest time to apply the power for
+	 */
+	public void runStep( double power, double seconds ) {
+		runTest( 0, power, seconds );
+	}
+
+	/**
+	 * Runs a test, logging the distance every loop, then adds the log to the fit.
+	 *
+	 * @param rampRate The power added every second, or 0 to apply the full power straight away
+	 * @param power    The largest power, which is negative to drive backwards
+	 * @param seconds  The longest time to run for
+	 */
+	protected void runTest( double rampRate, double power, double seconds ) {
+		double sign = Math.signum( power );
+		double magnitude = Math.min( Math.abs( power ), 1 );
+
+		beginOpenLoop( );
+		try {
+			updateEncoders( );
+			double startDistance = getDistance( );
+			long startNanos = System.nanoTime( );
+			sampleCount = 0;
+			while( opModeInterface.opModeIsActive( ) && sampleCount < MAX_SAMPLES ) {
+				double time = (System.nanoTime( ) - startNanos) / NANOS_PER_SECOND;
+				if( time > seconds || Math.abs( getDistance( ) - startDistance ) >= maxDistance )
+					break;
+				double applied = sign * (rampRate > 0 ? Math.min( rampRate * time, magnitude ) : magnitude);
+				drive( applied );
+				opModeInterface.idle( );
+
+				updateEncoders( );
+				sampleTimes[sampleCount] = (System.nanoTime( ) - startNanos) / NANOS_PER_SECOND;
+				samplePowers[sampleCount] = applied;
+				sampleDistances[sampleCount] = getDistance( );
+				sampleCount++;
+			}
+			stopWheels( );
+		} finally {
+			endOpenLoop( );
+		}
+		addLogToFit( );
+		waitForStop( );
+	}
+
+	/**
+	 * Switches the wheels to RUN_WITHOUT_ENCODER, remembering the mode they were in. In
+	 * RUN_USING_ENCODER the motor controller treats the power as a speed to hold, which would hide
+	 * the very response being measured.
+	 */
+	protected void beginOpenLoop( ) {
+		savedMode = getMode( );
+		setMode( DcMotor.RunMode.RUN_WITHOUT_ENCODER );
+	}
+
+	/**
+	 * Switches the wheels back to the mode they were in before {@link #beginOpenLoop()}.
+	 */
+	protected void endOpenLoop( ) {
+		setMode( savedMode );
+	}
+
+	/**
+	 * Adds the logged samples to the fit, finding each sample's velocity and acceleration from a
+	 * least-squares parabola through the distances either side of it. Since the window is centered
+	 * on the sample, the velocity and acceleration are for the same moment as its power; a velocity
+	 * estimated from only earlier readings lags behind, which wrongly moves part of the velocity gain
+	 * into the acceleration gain. Samples too close to the ends for a full window are not added.
+	 */
+	protected void addLogToFit( ) {
+		for( int i = 0; i < sampleCount; i++ ) {
+			//The ends are only given a velocity from their neighbours, so the log can still be read back
+			int next = Math.min( i + 1, sampleCount - 1 );
+			int previous = Math.max( next - 1, 0 );
+			double dt = sampleTimes[next] - sampleTimes[previous];
+			sampleVelocities[i] = dt > 0 ? (sampleDistances[next] - sampleDistances[previous]) / dt : 0;
+		}
+
+		for( int i = FIT_WINDOW; i < sampleCount - FIT_WINDOW; i++ ) {
+			//Sums for the normal equations of distance = c0 + c1 * t + c2 * t^2, with t relative to the sample
+			double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+			double d0 = 0, d1 = 0, d2 = 0;
+			for( int j = i - FIT_WINDOW; j <= i + FIT_WINDOW; j++ ) {
+				double t = sampleTimes[j] - sampleTimes[i];
+				double tt = t * t;
+				double d = sampleDistances[j] - sampleDistances[i];
+				s0 += 1;
+				s1 += t;
+				s2 += tt;
+				s3 += tt * t;
+				s4 += tt * tt;
+				d0 += d;
+				d1 += t * d;
+				d2 += tt * d;
+			}
+			//Solved with Cramer's rule, since the matrix is only 3 by 3 and symmetric
+			double determinant = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+			if( determinant <= 0 )
+				continue;
+			double c1 = (s0 * (d1 * s4 - s3 * d2) - d0 * (s1 * s4 - s3 * s2) + s2 * (s1 * d2 - d1 * s2)) / determinant;
+			double c2 = (s0 * (s2 * d2 - d1 * s3) - s1 * (s1 * d2 - d1 * s2) + d0 * (s1 * s3 - s2 * s2)) / determinant;
+			sampleVelocities[i] = c1;
+			fitter.addSample( samplePowers[i], c1, 2 * c2 );
+		}
+	}
+
+	/**
+	 * Waits for the robot to stop moving, so the next test starts from rest.
+	 */
+	protected void waitForStop( ) {
+		long startNanos = System.nanoTime( );
+		do {
+			opModeInterface.idle( );
+			updateEncoders( );
+		} while( opModeInterface.opModeIsActive( ) && Math.abs( getVelocity( ) ) > 0.1
+				&& (System.nanoTime( ) - startNanos) / NANOS_PER_SECOND < STOP_TIMEOUT );
+	}
+
+	/**
+	 * Fits the feedforward model to every test which has been run.
+	 *
+	 * @return The fitted model, with velocities in inches per second, or null if there is not
+	 * enough data to fit it
+	 */
+	public SimpleMotorFeedforward getFeedforward( ) {
+		return fitter.fit( );
+	}
+
+	/**
+	 * Gets the fitter holding the measurements of every test, such as to check how well the model
+	 * fits with {@link FeedforwardFitter#getRSquared()}.
+	 *
+	 * @return The fitter
+	 */
+	public FeedforwardFitter getFitter( ) {
+		return fitter;
+	}
+
+	/**
+	 * Gets the number of samples logged in the last test.
+	 *
+	 * @return The number of samples
+	 */
+	public int getSampleCount( ) {
+		return sampleCount;
+	}
+
+	/**
+	 * Gets when a sample of the last test was logged.
+	 *
+	 * @param index The index of the sample
+	 * @return The time since the test started in seconds
+	 */
+	public double getSampleTime( int index ) {
+		return sampleTimes[index];
+	}
+
+	/**
+	 * Gets the power applied in a sample of the last test.
+	 *
+	 * @param index The index of the sample
+	 * @return The power
+	 */
+	public double getSamplePower( int index ) {
+		return samplePowers[index];
+	}
+
+	/**
+	 * Gets the distance driven in a sample of the last test.
+	 *
+	 * @param index The index of the sample
+	 * @return The distance in inches
+	 */
+	public double getSampleDistance( int index ) {
+		return sampleDistances[index];
+	}
+
+	/**
+	 * Gets the velocity of a sample of the last test, calculated from the distances around it.
+	 *
+	 * @param index The index of the sample
+	 * @return The velocity in inches per second
+	 */
+	public double getSampleVelocity( int index ) {
+		return sampleVelocities[index];
+	}
+
+	/**
+	 * Forgets every test which has been run.
+	 */
+	public void reset( ) {
+		fitter.reset( );
+		sampleCount = 0;
+	}
+
+	/**
+	 * Gets every motor driving the wheels, in the same order every time.
+	 *
+	 * @return The motors
+	 */
+	protected abstract DcMotor[] getMotors( );
+
+	/**
+	 * Sets the run mode of the wheels through the wheels, so they know which mode they are in.
+	 *
+	 * @param mode The mode to run the motors in
+	 */
+	protected abstract void setMode( DcMotor.RunMode mode );
+
+	/**
+	 * Gets the run mode the wheels are in.
+	 *
+	 * @return The mode
+	 */
+	protected abstract DcMotor.RunMode getMode( );
+
+	/**
+	 * Drives every wheel forwards with the same power, written straight to the motors.
+	 *
+	 * @param power The power, which is negative to drive backwards
+	 */
+	protected void drive( double power ) {
+		DcMotor[] motors = getMotors( );
+		for( int i = 0; i < motors.length; i++ )
+			motors[i].setPower( power );
+	}
+
+	/**
+	 * Stops the wheels.
+	 */
+	protected void stopWheels( ) {
+		drive( 0 );
+	}
+
+	/**
+	 * Reads the wheels' encoders once, updating their positions and velocities.
+	 */
+	protected abstract void updateEncoders( );
+
+	/**
+	 * Gets how far the wheels have driven forwards on average, from the last encoder update.
+	 *
+	 * @return The distance in inches
+	 */
+	protected abstract double getDistance( );
+
+	/**
+	 * Gets the average forwards velocity of the wheels, from the last encoder update.
+	 *
+	 * @return The velocity in inches per second
+	 */
+	protected abstract double getVelocity( );
+}
@@ -0,0 +1,233 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.models.distances.Distance;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * Works out the calibration multiplier and effective robot diameter of an encoder configuration
+ * from trial moves and turns, instead of tuning them by hand. Each trial pairs the counts the
+ * wheels recorded with what a reference such as a range sensor or gyro measured, and the values are
+ * the least-squares fit through every trial, so the more trials are added the less a single noisy
+ * reading matters.
+ * <p>
+ * The multiplier is fit first from the moves, then the robot diameter is fit from the turns using
+ * that multiplier, since turning counts depend on both.
+ *
+ * @see com.hazenrobotics.commoncode.testclasses.TwoWheelsCalibration
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class EncoderCalibrator {
+
+	protected static final DistanceUnit DISTANCE_UNIT = DistanceUnit.INCH;
+
+	protected final int countsPerRev;
+	protected final Distance wheelDiameter;
+	protected final double countsPerUnit;
+
+	//Sums of the trials, which are all the least-squares fits need
+	protected int moveCount = 0;
+	protected double moveCountsDistance = 0;
+	protected double moveDistanceSquared = 0;
+	protected double moveCountsSquared = 0;
+	protected int turnCount = 0;
+	protected double turnCountsAngle = 0;
+	protected double turnAngleSquared = 0;
+	protected double turnCountsSquared = 0;
+
+	/**
+	 * Creates a calibrator for wheels with the given encoders and size.
+	 *
+	 * @param countsPerRev  The number of counts the encoders for the motor in use have per
+	 *                      revolution of the output shaft of the motor
+	 * @param wheelDiameter The diameter of the wheel which is being spun by the motor
+	 */
+	public EncoderCalibrator( int countsPerRev, Distance wheelDiameter ) {
+		this.countsPerRev = countsPerRev;
+		this.wheelDiameter = wheelDiameter;
+		countsPerUnit = countsPerRev / (Math.PI * wheelDiameter.getValue( DISTANCE_UNIT ));
+	}
+
+	/**
+	 * Adds a straight move where the wheels turned the given number of counts on average while the
+	 * robot really moved the given distance.
+	 *
+	 * @param counts   The average counts of the wheels, positive when moving forwards
+	 * @param distance The distance a reference measured the robot move, positive when forwards
+	 */
+	public void addMove( double counts, Distance distance ) {
+		double inches = distance.getValue( DISTANCE_UNIT );
+		moveCount++;
+		moveCountsDistance += counts * inches;
+		moveDistanceSquared += inches * inches;
+		moveCountsSquared += counts * counts;
+	}
+
+	/**
+	 * Adds a straight move recorded by {@link TwoEncoderWheels}.
+	 *
+	 * @param counts   The change in each wheel's counts during the move
+	 * @param distance The distance a reference measured the robot move, positive when forwards
+	 */
+	public void addMove( TwoEncoderWheels.Counts counts, Distance distance ) {
+		addMove( (counts.left + counts.right) / 2.0, distance );
+	}
+
+	/**
+	 * Adds a straight move recorded by {@link MecanumEncoderWheels}.
+	 *
+	 * @param counts   The change in each wheel's counts during the move
+	 * @param distance The distance a reference measured the robot move, positive when forwards
+	 */
+	public void addMove( MecanumEncoderWheels.Counts counts, Distance distance ) {
+		addMove( (counts.leftFront + counts.leftBack + counts.rightFront + counts.rightBack) / 4.0, distance );
+	}
+
+	/**
+	 * Adds a turn in place where each wheel turned the given number of counts on average while the
+	 * robot really turned the given angle.
+	 *
+	 * @param counts  The average counts of the wheels, positive when the right wheels move forwards
+	 *                and the left wheels backwards
+	 * @param radians The angle a reference such as a gyro or {@link
+	 *                com.hazenrobotics.commoncode.sensors.HeadingProvider} measured the robot turn,
+	 *                counter-clockwise positive
+	 */
+	public void addTurn( double counts, double radians ) {
+		turnCount++;
+		turnCountsAngle += counts * radians;
+		turnAngleSquared += radians * radians;
+		turnCountsSquared += counts * counts;
+	}
+
+	/**
+	 * Adds a turn in place recorded by {@link TwoEncoderWheels}.
+	 *
+	 * @param counts  The change in each wheel's counts during the turn
+	 * @param radians The angle a reference such as a gyro or {@link
+	 *                com.hazenrobotics.commoncode.sensors.HeadingProvider} measured the robot turn,
+	 *                counter-clockwise positive
+	 */
+	public void addTurn( TwoEncoderWheels.Counts counts, double radians ) {
+		addTurn( (counts.right - counts.left) / 2.0, radians );
+	}
+
+	/**
+	 * Adds a turn in place recorded by {@link MecanumEncoderWheels}.
+	 *
+	 * @param counts  The change in each wheel's counts during the turn
+	 * @param radians The angle a reference such as a gyro or {@link
+	 *                com.hazenrobotics.commoncode.sensors.HeadingProvider} measured the robot turn,
+	 *                counter-clockwise positive
+	 */
+	public void addTurn( MecanumEncoderWheels.Counts counts, double radians ) {
+		addTurn( (-counts.leftFront - counts.leftBack + counts.rightFront + counts.rightBack) / 4.0, radians );
+	}
+
+	/**
+	 * Gets the fitted calibration multiplier, being how many times more counts the wheels need than
+	 * their size suggests to move a given distance.
+	 *
+	 * @return The multiplier, or 1 if no moves have been added
+	 */
+	public float getCalibrationMultiplier( ) {
+		if( moveCount == 0 || moveDistanceSquared == 0 )
+			return 1f;
+		//Least-squares slope through the origin of counts against distance
+		return (float) (moveCountsDistance / moveDistanceSquared / countsPerUnit);
+	}
+
+	/**
+	 * Gets the fitted effective robot diameter, which is usually a bit larger than the measured
+	 * distance between the wheels since they scrub sideways while turning.
+	 *
+	 * @return The robot diameter, or null if no turns have been added
+	 */
+	public Distance getRobotDiameter( ) {
+		if( turnCount == 0 || turnAngleSquared == 0 )
+			return null;
+		//Each wheel moves half of the robot diameter for every radian turned
+		double countsPerRadian = turnCountsAngle / turnAngleSquared;
+		double diameter = 2 * countsPerRadian / (countsPerUnit * getCalibrationMultiplier( ));
+		return new Distance( (float) diameter, DISTANCE_UNIT );
+	}
+
+	/**
+	 * Gets the root mean square of how far the moves were from the fitted multiplier, such as to
+	 * check if the reference readings were reliable.
+	 *
+	 * @return The error in inches, or 0 if no moves have been added
+	 */
+	public double getMoveError( ) {
+		if( moveCount == 0 || moveDistanceSquared == 0 )
+			return 0;
+		double countsPerInch = moveCountsDistance / moveDistanceSquared;
+		//The sum of squared residuals of counts against the fitted line, converted back to inches
+		double residual = moveCountsSquared - moveCountsDistance * countsPerInch;
+		return Math.sqrt( Math.max( residual, 0 ) / moveCount ) / countsPerInch;
+	}
+
+	/**
+	 * Gets the root mean square of how far the turns were from the fitted robot diameter.
+	 *
+	 * @return The error in radians, or 0 if no turns have been added
+	 */
+	public double getTurnError( ) {
+		if( turnCount == 0 || turnAngleSquared == 0 )
+			return 0;
+		double countsPerRadian = turnCountsAngle / turnAngleSquared;
+		double residual = turnCountsSquared - turnCountsAngle * countsPerRadian;
+		return Math.sqrt( Math.max( residual, 0 ) / turnCount ) / Math.abs( countsPerRadian );
+	}
+
+	/**
+	 * Gets the number of moves which have been added.
+	 *
+	 * @return The number of moves
+	 */
+	public int getMoveCount( ) {
+		return moveCount;
+	}
+
+	/**
+	 * Gets the number of turns which have been added.
+	 *
+	 * @return The number of turns
+	 */
+	public int getTurnCount( ) {
+		return turnCount;
+	}
+
+	/**
+	 * Creates a configuration for {@link TwoEncoderWheels} with the fitted values.
+	 *
+	 * @param fallbackDiameter The robot diameter to use if no turns have been added
+	 * @return The tuned configuration
+	 */
+	public TwoEncoderWheels.EncoderConfiguration toTwoWheelsConfiguration( Distance fallbackDiameter ) {
+		Distance robotDiameter = getRobotDiameter( );
+		return new TwoEncoderWheels.EncoderConfiguration( countsPerRev, wheelDiameter,
+				robotDiameter != null ? robotDiameter : fallbackDiameter, getCalibrationMultiplier( ) );
+	}
+
+	/**
+	 * Creates a configuration for {@link MecanumEncoderWheels} with the fitted values.
+	 *
+	 * @param fallbackDiameter The robot diameter to use if no turns have been added
+	 * @return The tuned configuration
+	 */
+	public MecanumEncoderWheels.EncoderConfiguration toMecanumConfiguration( Distance fallbackDiameter ) {
+		Distance robotDiameter = getRobotDiameter( );
+		return new MecanumEncoderWheels.EncoderConfiguration( countsPerRev, wheelDiameter,
+				robotDiameter != null ? robotDiameter : fallbackDiameter, getCalibrationMultiplier( ) );
+	}
+
+	/**
+	 * Forgets every move and turn which has been added.
+	 */
+	public void reset( ) {
+		moveCount = turnCount = 0;
+		moveCountsDistance = moveDistanceSquared = moveCountsSquared = 0;
+		turnCountsAngle = turnAngleSquared = turnCountsSquared = 0;
+	}
+}
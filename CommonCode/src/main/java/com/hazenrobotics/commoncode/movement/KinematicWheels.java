@@ -0,0 +1,558 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.LoopProfiler;
+import com.hazenrobotics.commoncode.control.LoopTimer;
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+import com.hazenrobotics.commoncode.models.angles.directions.RotationDirection;
+import com.hazenrobotics.commoncode.models.angles.directions.SimpleDirection;
+import com.hazenrobotics.commoncode.models.conditions.Condition;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+/**
+ * Controller for any number of wheels, where how each wheel moves the robot is described by a row
+ * of a geometry matrix instead of being written out for each kind of drive. Each wheel's power is
+ * its forwards factor times the forwards motion, plus its left factor times the left motion, plus
+ * its turn factor times the counter-clockwise motion. The factors are kept in primitive arrays, so
+ * driving any number of wheels is the same short loop and never makes new objects.
+ * <p>
+ * {@link WheelConfiguration} has factories for six (or any even number of) wheel tank drives,
+ * mecanum drives, X-drives and other omni wheel layouts.
+ *
+ * @see WheelConfiguration
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class KinematicWheels implements Wheels {
+
+	public static final SpeedSettings DEFAULT_SPEEDS = new SpeedSettings( 0.5f, 0.5f, 0.3f );
+	//Factors smaller than this are treated as the wheel not moving the robot that way at all
+	protected static final double FACTOR_THRESHOLD = 1e-9;
+	//Blocking moves run their loop this often unless it takes longer
+	protected static final long DEFAULT_LOOP_PERIOD_MILLIS = 10;
+
+	protected OpModeInterface opModeInterface;
+	protected SpeedSettings speeds;
+
+	protected final DcMotor[] motors;
+	protected final int wheelCount;
+
+	//The geometry matrix, one row per wheel, stored by column
+	protected final double[] forwardFactors;
+	protected final double[] leftFactors;
+	protected final double[] turnFactors;
+
+	//The pseudo-inverse of the geometry matrix, which turns wheel motion back into robot motion
+	protected final double[] forwardFromWheels;
+	protected final double[] leftFromWheels;
+	protected final double[] turnFromWheels;
+
+	//Reused for every power calculation so driving does not make new objects
+	protected final double[] powers;
+	//Paces every blocking loop, so controllers see the same timestep each loop
+	protected final LoopTimer loopTimer = new LoopTimer( DEFAULT_LOOP_PERIOD_MILLIS );
+	//Times the phases of blocking moves, which does nothing unless a profiler is set
+	protected LoopProfiler profiler = LoopProfiler.DISABLED;
+	protected int conditionPhase = -1;
+	protected int waitPhase = -1;
+
+	/**
+	 * Initializes the class to use the wheels with the given configuration of names, directions
+	 * and geometry, and speed settings.
+	 *
+	 * @param opModeInterface An interface from which the wheel motors can be accessed
+	 * @param wheelConfig     Specifies the settings for the wheels such as the names and geometry
+	 * @param speeds          The speed settings to use for the different movement types
+	 */
+	public KinematicWheels( OpModeInterface opModeInterface, WheelConfiguration wheelConfig, SpeedSettings speeds ) {
+		this.opModeInterface = opModeInterface;
+		this.speeds = speeds;
+
+		wheelCount = wheelConfig.names.length;
+		motors = new DcMotor[wheelCount];
+		for( int i = 0; i < wheelCount; i++ ) {
+			motors[i] = opModeInterface.getMotor( wheelConfig.names[i] );
+			motors[i].setDirection( wheelConfig.directions[i] );
+		}
+
+		forwardFactors = wheelConfig.forwardFactors.clone( );
+		leftFactors = wheelConfig.leftFactors.clone( );
+		turnFactors = wheelConfig.turnFactors.clone( );
+		forwardFromWheels = new double[wheelCount];
+		leftFromWheels = new double[wheelCount];
+		turnFromWheels = new double[wheelCount];
+		calculatePseudoInverse( );
+		powers = new double[wheelCount];
+	}
+
+	/**
+	 * Initializes the class to use the wheels with the given configuration, keeping the default
+	 * speed settings.
+	 *
+	 * @param opModeInterface An interface from which the wheel motors can be accessed
+	 * @param wheelConfig     Specifies the settings for the wheels such as the names and geometry
+	 */
+	public KinematicWheels( OpModeInterface opModeInterface, WheelConfiguration wheelConfig ) {
+		this( opModeInterface, wheelConfig, DEFAULT_SPEEDS );
+	}
+
+	/**
+	 * Calculates the least squares inverse of the geometry matrix, (MᵀM)⁻¹Mᵀ. Directions which no
+	 * wheel can move in, such as sideways for a tank drive, are left out so the rest can still be
+	 * solved.
+	 */
+	private void calculatePseudoInverse( ) {
+		double[][] columns = { forwardFactors, leftFactors, turnFactors };
+		double[][] results = { forwardFromWheels, leftFromWheels, turnFromWheels };
+
+		int[] used = new int[3];
+		int usedCount = 0;
+		for( int column = 0; column < 3; column++ ) {
+			if( dot( columns[column], columns[column] ) > FACTOR_THRESHOLD )
+				used[usedCount++] = column;
+		}
+
+		//Builds MᵀM beside the identity, then reduces it so the identity side becomes the inverse
+		double[][] augmented = new double[usedCount][2 * usedCount];
+		for( int row = 0; row < usedCount; row++ ) {
+			for( int column = 0; column < usedCount; column++ )
+				augmented[row][column] = dot( columns[used[row]], columns[used[column]] );
+			augmented[row][usedCount + row] = 1;
+		}
+		for( int pivot = 0; pivot < usedCount; pivot++ ) {
+			int best = pivot;
+			for( int row = pivot + 1; row < usedCount; row++ ) {
+				if( Math.abs( augmented[row][pivot] ) > Math.abs( augmented[best][pivot] ) )
+					best = row;
+			}
+			if( Math.abs( augmented[best][pivot] ) < FACTOR_THRESHOLD )
+				throw new IllegalArgumentException( "The wheel geometry has directions which cannot be told apart." );
+			double[] swap = augmented[pivot];
+			augmented[pivot] = augmented[best];
+			augmented[best] = swap;
+
+			double scale = augmented[pivot][pivot];
+			for( int column = 0; column < 2 * usedCount; column++ )
+				augmented[pivot][column] /= scale;
+			for( int row = 0; row < usedCount; row++ ) {
+				double factor = augmented[row][pivot];
+				if( row == pivot || factor == 0 )
+					continue;
+				for( int column = 0; column < 2 * usedCount; column++ )
+					augmented[row][column] -= factor * augmented[pivot][column];
+			}
+		}
+
+		for( int row = 0; row < usedCount; row++ ) {
+			double[] result = results[used[row]];
+			for( int wheel = 0; wheel < wheelCount; wheel++ ) {
+				double sum = 0;
+				for( int column = 0; column < usedCount; column++ )
+					sum += augmented[row][usedCount + column] * columns[used[column]][wheel];
+				result[wheel] = sum;
+			}
+		}
+	}
+
+	private static double dot( double[] a, double[] b ) {
+		double sum = 0;
+		for( int i = 0; i < a.length; i++ )
+			sum += a[i] * b[i];
+		return sum;
+	}
+
+	@Override
+	public void move( Condition condition, SimpleDirection direction ) {
+		move( condition, direction, speeds.move );
+	}
+
+	/**
+	 * Moves directly forward until a given condition is true at a given speed.
+	 *
+	 * @param condition Will move until this condition is true
+	 * @param direction Determines if the wheels will move forward or backwards
+	 * @param speed     The percent of maximum speed which wheels will move at, should be between 0f
+	 *                  and 1f
+	 */
+	public void move( Condition condition, SimpleDirection direction, float speed ) {
+		runByMotion( condition, direction == SimpleDirection.FORWARDS ? 1f : -1f, 0f, 0f, Math.abs( speed ) );
+	}
+
+	/**
+	 * Strafes until a given condition is true, if the wheels are able to strafe.
+	 *
+	 * @param condition  Will strafe until this condition is true
+	 * @param forward    How much to move forwards compared to left
+	 * @param strafeLeft How much to move left compared to forwards, where 1f moves straight left and
+	 *                   -1f moves straight right
+	 */
+	public void strafe( Condition condition, float forward, float strafeLeft ) {
+		runByMotion( condition, forward, strafeLeft, 0f, speeds.strafe );
+	}
+
+	@Override
+	public void turn( Condition condition, RotationDirection direction ) {
+		turn( condition, direction, speeds.turn );
+	}
+
+	/**
+	 * Turns the robot in a given direction until a condition is true at a given speed.
+	 *
+	 * @param condition Will turn until this condition is true
+	 * @param direction Determines what direction the turn will be towards
+	 * @param speed     The percent of maximum speed which wheels will move at, should be between 0f
+	 *                  and 1f
+	 */
+	public void turn( Condition condition, RotationDirection direction, float speed ) {
+		runByMotion( condition, 0f, 0f, direction == RotationDirection.CLOCKWISE ? -1f : 1f, Math.abs( speed ) );
+	}
+
+	/**
+	 * Drives with the given motion until a condition is true, then stops.
+	 *
+	 * @param condition        Will drive until this condition is true
+	 * @param forward          How much to move forwards
+	 * @param left             How much to move left
+	 * @param counterClockwise How much to turn counter-clockwise
+	 * @param speed            The percent of maximum speed which wheels will move at, should be
+	 *                         between 0f and 1f
+	 */
+	public void runByMotion( Condition condition, float forward, float left, float counterClockwise, float speed ) {
+		drive( forward, left, counterClockwise, speed );
+		loopTimer.start( );
+		profiler.startLoop( );
+		while( !condition.isTrue( ) ) {
+			profiler.mark( conditionPhase );
+			loopTimer.waitForNextLoop( opModeInterface );
+			profiler.mark( waitPhase );
+			profiler.endLoop( );
+		}
+		stop( );
+	}
+
+	/**
+	 * Sets the wheel powers to move forwards, move left and turn counter-clockwise all at once. If
+	 * any wheel would need more than full power, all of them are scaled down together so the
+	 * motion keeps its direction.
+	 *
+	 * @param forward          How much to move forwards, between -1f and 1f
+	 * @param left             How much to move left, between -1f and 1f
+	 * @param counterClockwise How much to turn counter-clockwise, between -1f and 1f
+	 * @param speed            The speed at which the wheels will move, must be between -1 and 1
+	 */
+	public void drive( float forward, float left, float counterClockwise, float speed ) {
+		calculatePowers( forward, left, counterClockwise, powers );
+		setPower( powers, speed );
+	}
+
+	/**
+	 * Calculates the relative power of each wheel for a motion, using the geometry matrix.
+	 *
+	 * @param forward          How much to move forwards
+	 * @param left             How much to move left
+	 * @param counterClockwise How much to turn counter-clockwise
+	 * @param result           The array the power of each wheel will be stored in, in the order of
+	 *                         the configuration
+	 * @return The given array
+	 */
+	public double[] calculatePowers( double forward, double left, double counterClockwise, double[] result ) {
+		for( int i = 0; i < wheelCount; i++ )
+			result[i] = forwardFactors[i] * forward + leftFactors[i] * left + turnFactors[i] * counterClockwise;
+		return result;
+	}
+
+	/**
+	 * Calculates how the robot moved from how far each wheel moved, the reverse of
+	 * {@link #calculatePowers(double, double, double, double[])}. With more wheels than directions
+	 * the result is the least squares best fit, so a slipping wheel only has a partial effect.
+	 *
+	 * @param wheelMotion How far each wheel moved (or how fast it is going), in the order of the
+	 *                    configuration
+	 * @param result      An array of at least three values which the forwards, left and
+	 *                    counter-clockwise motion will be stored in, in the units of the wheel motion
+	 * @return The given array
+	 */
+	public double[] calculateMotion( double[] wheelMotion, double[] result ) {
+		double forward = 0;
+		double left = 0;
+		double turn = 0;
+		for( int i = 0; i < wheelCount; i++ ) {
+			forward += forwardFromWheels[i] * wheelMotion[i];
+			left += leftFromWheels[i] * wheelMotion[i];
+			turn += turnFromWheels[i] * wheelMotion[i];
+		}
+		result[0] = forward;
+		result[1] = left;
+		result[2] = turn;
+		return result;
+	}
+
+	/**
+	 * Sets the power of each wheel based on relative powers at a given speed until another power is
+	 * set. The powers are scaled down together if any is over 1.
+	 *
+	 * @param relativePowers The relative power of each wheel, in the order of the configuration
+	 * @param speed          The speed at which the wheels will move, must be between -1 and 1
+	 */
+	public void setPower( double[] relativePowers, float speed ) {
+		//Bounds the speed to be between -1 and 1 so the motors are not set to an improper power level
+		speed = Math.max( -1f, Math.min( 1f, speed ) );
+		double magnitude = 1;
+		for( int i = 0; i < wheelCount; i++ )
+			magnitude = Math.max( magnitude, Math.abs( relativePowers[i] ) );
+		for( int i = 0; i < wheelCount; i++ )
+			motors[i].setPower( relativePowers[i] * speed / magnitude );
+	}
+
+	/**
+	 * Stops the movement of the wheels.
+	 */
+	public void stop( ) {
+		for( DcMotor motor : motors )
+			motor.setPower( 0 );
+	}
+
+	/**
+	 * Gets the encoder position of each wheel.
+	 *
+	 * @param result The array each position will be stored in, in the order of the configuration
+	 * @return The given array
+	 */
+	public int[] getCurrentPositions( int[] result ) {
+		for( int i = 0; i < wheelCount; i++ )
+			result[i] = motors[i].getCurrentPosition( );
+		return result;
+	}
+
+	/**
+	 * Changes how often blocking moves check their condition, so a move ends at a steady point after
+	 * the condition becomes true rather than whenever the hardware allows. Defaults to 10
+	 * milliseconds.
+	 *
+	 * @param periodMillis The time between loops in milliseconds, or 0 to run as fast as possible
+	 */
+	public void setLoopPeriod( long periodMillis ) {
+		loopTimer.setPeriod( periodMillis );
+	}
+
+	/**
+	 * Gets the timer which paces blocking moves, such as to show its overruns and jitter in
+	 * telemetry.
+	 *
+	 * @return The loop timer
+	 */
+	public LoopTimer getLoopTimer( ) {
+		return loopTimer;
+	}
+
+	/**
+	 * Times the condition and waiting phases of blocking moves with the given profiler, using the
+	 * phases named {@link LoopProfiler#CONDITION_PHASE} and {@link LoopProfiler#WAIT_PHASE}. The
+	 * powers are only written once before the loop, so there is no driving phase. Phases the
+	 * profiler does not have are not timed.
+	 *
+	 * @param profiler The profiler, or null to stop profiling
+	 */
+	public void setProfiler( LoopProfiler profiler ) {
+		this.profiler = profiler != null ? profiler : LoopProfiler.DISABLED;
+		conditionPhase = this.profiler.getPhase( LoopProfiler.CONDITION_PHASE );
+		waitPhase = this.profiler.getPhase( LoopProfiler.WAIT_PHASE );
+	}
+
+	/**
+	 * Gets the profiler which times blocking moves.
+	 *
+	 * @return The profiler, which is {@link LoopProfiler#DISABLED} if none has been set
+	 */
+	public LoopProfiler getProfiler( ) {
+		return profiler;
+	}
+
+	/**
+	 * Gets the number of wheels.
+	 *
+	 * @return The number of wheels
+	 */
+	public int getWheelCount( ) {
+		return wheelCount;
+	}
+
+	/**
+	 * Gets the motor of one wheel.
+	 *
+	 * @param index The index of the wheel in the configuration
+	 * @return The wheel's motor
+	 */
+	public DcMotor getMotor( int index ) {
+		return motors[index];
+	}
+
+	/**
+	 * Stores the speed settings the wheels will use when no others are specified.
+	 * Speeds for moving, strafing, and turning can be specified
+	 */
+	public static class SpeedSettings {
+
+		public float move;
+		public float strafe;
+		public float turn;
+
+		/**
+		 * Initializes the different speed values with the given settings.
+		 *
+		 * @param moveSpeed   The speed which the wheels will move at unless otherwise specified -
+		 *                    Should be between 0 and 1
+		 * @param strafeSpeed The speed which the wheels will strafe at unless otherwise specified -
+		 *                    Should be between 0 and 1
+		 * @param turnSpeed   The speed which the wheels will turn at unless otherwise specified -
+		 *                    Should be between 0 and 1
+		 */
+		public SpeedSettings( float moveSpeed, float strafeSpeed, float turnSpeed ) {
+			this.move = moveSpeed;
+			this.strafe = strafeSpeed;
+			this.turn = turnSpeed;
+		}
+	}
+
+	/**
+	 * The names, directions and geometry of each wheel. The geometry is given as how much power
+	 * each wheel needs for the robot to move forwards, move left and turn counter-clockwise, usually
+	 * scaled so the largest factor for each motion is 1.
+	 */
+	public static class WheelConfiguration {
+
+		protected final String[] names;
+		protected final DcMotorSimple.Direction[] directions;
+		protected final double[] forwardFactors;
+		protected final double[] leftFactors;
+		protected final double[] turnFactors;
+
+		/**
+		 * Creates a configuration from a geometry matrix.
+		 *
+		 * @param names          The name of each wheel's motor
+		 * @param directions     The direction of each wheel's motor
+		 * @param forwardFactors The power each wheel needs to move the robot forwards
+		 * @param leftFactors    The power each wheel needs to move the robot left
+		 * @param turnFactors    The power each wheel needs to turn the robot counter-clockwise
+		 */
+		public WheelConfiguration( String[] names, DcMotorSimple.Direction[] directions, double[] forwardFactors, double[] leftFactors, double[] turnFactors ) {
+			int count = names.length;
+			if( count == 0 )
+				throw new IllegalArgumentException( "There must be at least one wheel." );
+			if( directions.length != count || forwardFactors.length != count || leftFactors.length != count || turnFactors.length != count )
+				throw new IllegalArgumentException( "Every wheel needs a name, direction and row of the geometry matrix." );
+			this.names = names.clone( );
+			this.directions = directions.clone( );
+			this.forwardFactors = forwardFactors.clone( );
+			this.leftFactors = leftFactors.clone( );
+			this.turnFactors = turnFactors.clone( );
+		}
+
+		/**
+		 * Creates a configuration for a tank drive with any number of wheels on each side, such as a
+		 * six wheel drive. The left motors are reversed.
+		 *
+		 * @param leftNames  The names of the left side's motors
+		 * @param rightNames The names of the right side's motors
+		 * @return The new configuration
+		 */
+		public static WheelConfiguration tank( String[] leftNames, String[] rightNames ) {
+			int count = leftNames.length + rightNames.length;
+			String[] names = new String[count];
+			DcMotorSimple.Direction[] directions = new DcMotorSimple.Direction[count];
+			double[] forward = new double[count];
+			double[] turn = new double[count];
+			for( int i = 0; i < count; i++ ) {
+				boolean isLeft = i < leftNames.length;
+				names[i] = isLeft ? leftNames[i] : rightNames[i - leftNames.length];
+				directions[i] = isLeft ? DcMotorSimple.Direction.REVERSE : DcMotorSimple.Direction.FORWARD;
+				forward[i] = 1;
+				//Turning counter-clockwise drives the left side backwards and the right side forwards
+				turn[i] = isLeft ? -1 : 1;
+			}
+			return new WheelConfiguration( names, directions, forward, new double[count], turn );
+		}
+
+		/**
+		 * Creates a configuration for a mecanum drive, with the same directions and mixing as
+		 * {@link MecanumWheels}.
+		 *
+		 * @param leftFrontName  The name of the front left motor
+		 * @param leftBackName   The name of the back left motor
+		 * @param rightFrontName The name of the front right motor
+		 * @param rightBackName  The name of the back right motor
+		 * @return The new configuration
+		 */
+		public static WheelConfiguration mecanum( String leftFrontName, String leftBackName, String rightFrontName, String rightBackName ) {
+			return new WheelConfiguration(
+					new String[]{ leftFrontName, leftBackName, rightFrontName, rightBackName },
+					new DcMotorSimple.Direction[]{ DcMotorSimple.Direction.REVERSE, DcMotorSimple.Direction.REVERSE, DcMotorSimple.Direction.FORWARD, DcMotorSimple.Direction.FORWARD },
+					new double[]{ 1, 1, 1, 1 },
+					new double[]{ -1, 1, 1, -1 },
+					new double[]{ -1, -1, 1, 1 } );
+		}
+
+		/**
+		 * Creates a configuration for an X-drive, with an omni wheel at each corner turned 45
+		 * degrees so that they all point around the center of the robot. The left motors are
+		 * reversed, so the wheels turn the same way as a mecanum drive's.
+		 *
+		 * @param leftFrontName  The name of the front left motor
+		 * @param leftBackName   The name of the back left motor
+		 * @param rightFrontName The name of the front right motor
+		 * @param rightBackName  The name of the back right motor
+		 * @return The new configuration
+		 */
+		public static WheelConfiguration xDrive( String leftFrontName, String leftBackName, String rightFrontName, String rightBackName ) {
+			double quarter = Math.PI / 4;
+			return omni(
+					new String[]{ leftFrontName, leftBackName, rightFrontName, rightBackName },
+					new DcMotorSimple.Direction[]{ DcMotorSimple.Direction.REVERSE, DcMotorSimple.Direction.REVERSE, DcMotorSimple.Direction.FORWARD, DcMotorSimple.Direction.FORWARD },
+					new double[]{ 1, -1, 1, -1 },
+					new double[]{ 1, 1, -1, -1 },
+					new double[]{ -quarter, quarter, quarter, -quarter } );
+		}
+
+		/**
+		 * Creates a configuration for omni wheels at any positions and angles, such as a three
+		 * wheeled kiwi drive. Each wheel's factors are how much of the robot's motion at the wheel is
+		 * along the direction it drives, and each motion is scaled so its largest factor is 1.
+		 *
+		 * @param names       The name of each wheel's motor
+		 * @param directions  The direction of each wheel's motor
+		 * @param x           How far forwards of the center of the robot each wheel is, in any unit
+		 * @param y           How far left of the center of the robot each wheel is, in the same unit
+		 * @param driveAngles The direction each wheel drives the robot when given positive power,
+		 *                    in radians counter-clockwise from forwards
+		 * @return The new configuration
+		 */
+		public static WheelConfiguration omni( String[] names, DcMotorSimple.Direction[] directions, double[] x, double[] y, double[] driveAngles ) {
+			int count = names.length;
+			double[] forward = new double[count];
+			double[] left = new double[count];
+			double[] turn = new double[count];
+			for( int i = 0; i < count; i++ ) {
+				double cos = Math.cos( driveAngles[i] );
+				double sin = Math.sin( driveAngles[i] );
+				forward[i] = cos;
+				left[i] = sin;
+				//Turning moves the wheel's position at right angles to where it is from the center
+				turn[i] = -y[i] * cos + x[i] * sin;
+			}
+			normalize( forward );
+			normalize( left );
+			normalize( turn );
+			return new WheelConfiguration( names, directions, forward, left, turn );
+		}
+
+		private static void normalize( double[] factors ) {
+			double largest = 0;
+			for( double factor : factors )
+				largest = Math.max( largest, Math.abs( factor ) );
+			if( largest > FACTOR_THRESHOLD ) {
+				for( int i = 0; i < factors.length; i++ )
+					factors[i] /= largest;
+			}
+		}
+	}
+}
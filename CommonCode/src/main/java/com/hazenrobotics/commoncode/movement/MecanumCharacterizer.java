@@ -0,0 +1,61 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * A drive characterizer for {@link MecanumEncoderWheels}, which drives all four wheels forwards with
+ * the same power and measures their average velocity.
+ *
+ * @see DriveCharacterizer
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MecanumCharacterizer extends DriveCharacterizer {
+
+	protected final MecanumEncoderWheels wheels;
+	protected final DcMotor[] motors;
+
+	/**
+	 * Creates a characterizer for the given wheels.
+	 *
+	 * @param wheels The wheels which will be tested
+	 */
+	public MecanumCharacterizer( MecanumEncoderWheels wheels ) {
+		super( wheels.opModeInterface );
+		this.wheels = wheels;
+		motors = new DcMotor[]{ wheels.leftFront, wheels.leftBack, wheels.rightFront, wheels.rightBack };
+	}
+
+	@Override
+	protected DcMotor[] getMotors( ) {
+		return motors;
+	}
+
+	@Override
+	protected void setMode( DcMotor.RunMode mode ) {
+		wheels.setMode( mode );
+	}
+
+	@Override
+	protected DcMotor.RunMode getMode( ) {
+		return wheels.getMode( );
+	}
+
+	@Override
+	protected void updateEncoders( ) {
+		wheels.updateEncoders( );
+	}
+
+	@Override
+	protected double getDistance( ) {
+		int counts = (wheels.leftFrontEncoder.getPosition( ) + wheels.leftBackEncoder.getPosition( )
+				+ wheels.rightFrontEncoder.getPosition( ) + wheels.rightBackEncoder.getPosition( )) / 4;
+		return wheels.encoderConfig.getDistanceValue( counts );
+	}
+
+	@Override
+	protected double getVelocity( ) {
+		double counts = (wheels.leftFrontEncoder.getVelocity( ) + wheels.leftBackEncoder.getVelocity( )
+				+ wheels.rightFrontEncoder.getVelocity( ) + wheels.rightBackEncoder.getVelocity( )) / 4;
+		return wheels.encoderConfig.getVelocityValue( counts );
+	}
+}
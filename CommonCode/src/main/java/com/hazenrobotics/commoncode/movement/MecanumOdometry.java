@@ -0,0 +1,193 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+import com.hazenrobotics.commoncode.sensors.HeadingProvider;
+
+/**
+ * Odometry for {@link MecanumEncoderWheels}, which uses the forward kinematics of the four wheels to
+ * turn each update's wheel movements into a forwards, sideways and turning movement of the robot,
+ * then integrates that into the field pose. The heading can optionally come from a
+ * {@link HeadingProvider} such as a gyro sensor instead of the wheels, which is more reliable since
+ * mecanum wheels tend to slip while turning.
+ *
+ * @see MecanumEncoderWheels
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MecanumOdometry implements Odometry {
+
+	protected static final double NANOS_PER_SECOND = 1e9;
+
+	protected final MecanumEncoderWheels wheels;
+	protected final Pose pose = new Pose( );
+
+	protected HeadingProvider headingProvider = null;
+	//Added to the heading provider's heading so that it matches the pose's heading
+	protected double headingOffset = 0;
+	/*
+	 * Strafing moves the robot less than the wheels' distance when the rollers slip, so the
+	 * sideways movement is multiplied by this to correct it.
+	 */
+	protected double strafeMultiplier = 1;
+
+	protected int lastLeftFront;
+	protected int lastLeftBack;
+	protected int lastRightFront;
+	protected int lastRightBack;
+	protected long lastUpdateNanos;
+
+	protected double forwardVelocity = 0;
+	protected double leftVelocity = 0;
+	protected double angularVelocity = 0;
+
+	/**
+	 * Creates odometry which tracks the given wheels, starting at the origin facing along the x
+	 * axis.
+	 *
+	 * @param wheels The wheels whose encoders will be integrated
+	 */
+	public MecanumOdometry( MecanumEncoderWheels wheels ) {
+		this.wheels = wheels;
+		wheels.updateEncoders( );
+		lastLeftFront = wheels.leftFrontEncoder.getPosition( );
+		lastLeftBack = wheels.leftBackEncoder.getPosition( );
+		lastRightFront = wheels.rightFrontEncoder.getPosition( );
+		lastRightBack = wheels.rightBackEncoder.getPosition( );
+		lastUpdateNanos = System.nanoTime( );
+	}
+
+	/**
+	 * Creates odometry which tracks the given wheels, taking its heading from the given provider
+	 * rather than the wheels.
+	 *
+	 * @param wheels          The wheels whose encoders will be integrated
+	 * @param headingProvider The source of the robot's heading, such as a gyro sensor
+	 */
+	public MecanumOdometry( MecanumEncoderWheels wheels, HeadingProvider headingProvider ) {
+		this( wheels );
+		setHeadingProvider( headingProvider );
+	}
+
+	/**
+	 * Makes the heading come from the given provider instead of the wheels, keeping the current
+	 * heading.
+	 *
+	 * @param headingProvider The source of the robot's heading, or null to use the wheels again
+	 */
+	public void setHeadingProvider( HeadingProvider headingProvider ) {
+		this.headingProvider = headingProvider;
+		if( headingProvider != null )
+			headingOffset = pose.heading - headingProvider.getHeadingRadians( );
+	}
+
+	/**
+	 * Changes the multiplier for sideways movement, which corrects for the rollers slipping while
+	 * strafing. Defaults to 1.
+	 *
+	 * @param strafeMultiplier The actual sideways distance moved divided by the distance measured
+	 */
+	public void setStrafeMultiplier( double strafeMultiplier ) {
+		this.strafeMultiplier = strafeMultiplier;
+	}
+
+	@Override
+	public void update( ) {
+		//Read through the shared estimators so their velocities are kept up to date as well
+		wheels.updateEncoders( );
+		int leftFront = wheels.leftFrontEncoder.getPosition( );
+		int leftBack = wheels.leftBackEncoder.getPosition( );
+		int rightFront = wheels.rightFrontEncoder.getPosition( );
+		int rightBack = wheels.rightBackEncoder.getPosition( );
+		long now = System.nanoTime( );
+
+		MecanumEncoderWheels.EncoderConfiguration config = wheels.encoderConfig;
+		double leftFrontDistance = config.getDistanceValue( leftFront - lastLeftFront );
+		double leftBackDistance = config.getDistanceValue( leftBack - lastLeftBack );
+		double rightFrontDistance = config.getDistanceValue( rightFront - lastRightFront );
+		double rightBackDistance = config.getDistanceValue( rightBack - lastRightBack );
+		lastLeftFront = leftFront;
+		lastLeftBack = leftBack;
+		lastRightFront = rightFront;
+		lastRightBack = rightBack;
+
+		//Forward kinematics, the inverse of the wheel coefficients used to move, strafe and turn
+		double forward = (leftFrontDistance + leftBackDistance + rightFrontDistance + rightBackDistance) / 4;
+		double left = strafeMultiplier * (-leftFrontDistance + leftBackDistance + rightFrontDistance - rightBackDistance) / 4;
+		//Each wheel travels half of the robot diameter for every radian turned
+		double headingChange = (-leftFrontDistance - leftBackDistance + rightFrontDistance + rightBackDistance) / 4
+				/ (config.getRobotDiameterValue( ) / 2);
+		if( headingProvider != null )
+			headingChange = headingProvider.getHeadingRadians( ) + headingOffset - pose.heading;
+
+		pose.integrateTwist( forward, left, headingChange );
+
+		//The wheels' least-squares velocities are much smoother than this update's change over its time
+		double leftFrontVelocity = config.getVelocityValue( wheels.leftFrontEncoder.getVelocity( ) );
+		double leftBackVelocity = config.getVelocityValue( wheels.leftBackEncoder.getVelocity( ) );
+		double rightFrontVelocity = config.getVelocityValue( wheels.rightFrontEncoder.getVelocity( ) );
+		double rightBackVelocity = config.getVelocityValue( wheels.rightBackEncoder.getVelocity( ) );
+		forwardVelocity = (leftFrontVelocity + leftBackVelocity + rightFrontVelocity + rightBackVelocity) / 4;
+		leftVelocity = strafeMultiplier * (-leftFrontVelocity + leftBackVelocity + rightFrontVelocity - rightBackVelocity) / 4;
+
+		double dt = (now - lastUpdateNanos) / NANOS_PER_SECOND;
+		lastUpdateNanos = now;
+		if( headingProvider == null )
+			angularVelocity = (-leftFrontVelocity - leftBackVelocity + rightFrontVelocity + rightBackVelocity) / 4
+					/ (config.getRobotDiameterValue( ) / 2);
+		else if( dt > 0 )
+			angularVelocity = headingChange / dt;
+	}
+
+	/**
+	 * Gets the robot's forwards velocity, estimated from the wheels' recent encoder readings.
+	 *
+	 * @return The velocity in inches per second, relative to the robot
+	 */
+	public double getForwardVelocity( ) {
+		return forwardVelocity;
+	}
+
+	/**
+	 * Gets the robot's sideways velocity, estimated from the wheels' recent encoder readings.
+	 *
+	 * @return The velocity to the left in inches per second, relative to the robot
+	 */
+	public double getLeftVelocity( ) {
+		return leftVelocity;
+	}
+
+	/**
+	 * Gets the robot's turning velocity measured in the last update.
+	 *
+	 * @return The counter-clockwise angular velocity in radians per second
+	 */
+	public double getAngularVelocity( ) {
+		return angularVelocity;
+	}
+
+	@Override
+	public Pose getPose( Pose result ) {
+		return result.set( pose );
+	}
+
+	@Override
+	public double getX( ) {
+		return pose.x;
+	}
+
+	@Override
+	public double getY( ) {
+		return pose.y;
+	}
+
+	@Override
+	public double getHeadingRadians( ) {
+		return pose.heading;
+	}
+
+	@Override
+	public void setPose( double x, double y, double heading ) {
+		pose.set( x, y, heading );
+		if( headingProvider != null )
+			headingOffset = heading - headingProvider.getHeadingRadians( );
+	}
+}
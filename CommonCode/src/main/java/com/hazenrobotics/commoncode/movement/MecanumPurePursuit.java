@@ -0,0 +1,90 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.PIDFController;
+import com.hazenrobotics.commoncode.movement.paths.Path;
+
+/**
+ * A pure pursuit follower for {@link MecanumWheels}, which strafes straight towards the lookahead
+ * point while separately turning to a target heading, since mecanum wheels do not need to face the
+ * way they are moving.
+ *
+ * @see PurePursuitFollower
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MecanumPurePursuit extends PurePursuitFollower {
+
+	protected static final PIDFController.Gains DEFAULT_HEADING_GAINS = new PIDFController.Gains( 1.5, 0, 0.05 );
+
+	protected final MecanumWheels wheels;
+	protected final PIDFController headingController = new PIDFController( new PIDFController.Gains( DEFAULT_HEADING_GAINS ) );
+	protected final MecanumWheels.Coefficients coefficients = new MecanumWheels.Coefficients( );
+	//The heading to hold while following, or NaN to face along the path
+	protected double targetHeading = Double.NaN;
+
+	/**
+	 * Creates a follower for the given wheels which follows at their default strafe speed.
+	 *
+	 * @param wheels   The wheels which will drive
+	 * @param odometry The odometry which gives the robot's live pose
+	 */
+	public MecanumPurePursuit( MecanumWheels wheels, Odometry odometry ) {
+		this( wheels, odometry, wheels.speeds.strafe );
+	}
+
+	/**
+	 * Creates a follower for the given wheels.
+	 *
+	 * @param wheels   The wheels which will drive
+	 * @param odometry The odometry which gives the robot's live pose
+	 * @param speed    The percent of maximum speed which wheels will move at, should be between 0f
+	 *                 and 1f
+	 */
+	public MecanumPurePursuit( MecanumWheels wheels, Odometry odometry, float speed ) {
+		super( wheels.opModeInterface, wheels.loopTimer, odometry, speed );
+		this.wheels = wheels;
+	}
+
+	/**
+	 * Makes the robot hold a heading while following paths, rather than facing along them.
+	 *
+	 * @param heading The heading in radians, counter-clockwise positive, or NaN to face along the path
+	 */
+	public void setTargetHeading( double heading ) {
+		targetHeading = heading;
+	}
+
+	/**
+	 * Changes the gains used to turn towards the target heading.
+	 *
+	 * @param gains The gains of the heading controller, where the error is in radians and the
+	 *              output is a turning coefficient
+	 */
+	public void setHeadingGains( PIDFController.Gains gains ) {
+		headingController.setGains( gains );
+	}
+
+	@Override
+	public void start( Path path ) {
+		super.start( path );
+		headingController.reset( );
+	}
+
+	@Override
+	protected void drive( double forward, double left, float speed ) {
+		double distance = Math.hypot( forward, left );
+		double heading = Double.isNaN( targetHeading ) ? lookaheadPose.heading : targetHeading;
+		//Turns the shortest way to the heading, which may be more than one rotation away from the pose's heading
+		double headingError = Math.IEEEremainder( heading - pose.heading, 2 * Math.PI );
+		float turn = (float) headingController.calculate( pose.heading + headingError, pose.heading );
+
+		float forwardPower = distance > 0 ? (float) (forward / distance) : 0f;
+		float rightPower = distance > 0 ? (float) (-left / distance) : 0f;
+		wheels.calculateMotion( forwardPower, rightPower, -turn, coefficients );
+		wheels.setPower( coefficients, speed );
+	}
+
+	@Override
+	protected void stopWheels( ) {
+		wheels.stop( );
+	}
+}
@@ -1,10 +1,15 @@
 package com.hazenrobotics.commoncode.movement;
 
+import com.hazenrobotics.commoncode.control.LoopProfiler;
+import com.hazenrobotics.commoncode.control.LoopTimer;
+import com.hazenrobotics.commoncode.control.PIDFController;
 import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
 import com.hazenrobotics.commoncode.models.angles.Angle;
 import com.hazenrobotics.commoncode.models.angles.directions.RotationDirection;
 import com.hazenrobotics.commoncode.models.angles.directions.SimpleDirection;
 import com.hazenrobotics.commoncode.models.conditions.Condition;
+import com.hazenrobotics.commoncode.sensors.HeadingProvider;
+import com.hazenrobotics.commoncode.sensors.VoltageCompensator;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
@@ -27,6 +32,42 @@ public class MecanumWheels implements Wheels {
 
 	protected static final Coefficients ZEROED_COEFFICIENTS = new Coefficients( 0f, 0f, 0f, 0f );
 	protected static final SpeedSettings DEFAULT_SPEEDS = new SpeedSettings( 0.5f, 0.5f, 0.3f );
+	protected static final PIDFController.Gains DEFAULT_HEADING_GAINS = new PIDFController.Gains( 1.5, 0, 0.05 );
+	//Coefficients with less turning than this are treated as not meaning to turn at all
+	protected static final float TURNING_THRESHOLD = 0.001f;
+	//Blocking moves run their loop this often unless it takes longer
+	protected static final long DEFAULT_LOOP_PERIOD_MILLIS = 10;
+
+	/*
+	 * Heading hold keeps the robot pointed in the direction it started in during moves and strafes
+	 * by mixing a turn correction from the heading provider's error into the coefficients.
+	 */
+	protected HeadingProvider headingProvider = null;
+	protected final PIDFController headingController = new PIDFController( new PIDFController.Gains( DEFAULT_HEADING_GAINS ) );
+	protected boolean holdingHeading = false;
+	protected double targetHeading = 0;
+	protected final Coefficients heldCoefficients = new Coefficients( );
+	//Reused for moves, turns and strafes, so they call the overridable calculate methods without making new objects
+	protected final Coefficients moveCoefficients = new Coefficients( );
+	protected final Coefficients turnCoefficients = new Coefficients( );
+	protected final Coefficients strafeCoefficients = new Coefficients( );
+
+	protected DesaturationStrategy desaturationStrategy = DesaturationStrategy.PROPORTIONAL;
+	//Scales the written powers by the battery voltage, or null to write them unchanged
+	protected VoltageCompensator voltageCompensator = null;
+	//The run mode the motors were last set to, kept so voltage compensation does not read it every loop
+	protected DcMotor.RunMode runMode;
+	//How much the moving and turning parts of the last coefficients were scaled down to fit
+	protected float translationScale = 1f;
+	protected float rotationScale = 1f;
+	protected boolean outputSaturated = false;
+	//Paces every blocking loop, so controllers see the same timestep each loop
+	protected final LoopTimer loopTimer = new LoopTimer( DEFAULT_LOOP_PERIOD_MILLIS );
+	//Times the phases of blocking moves, which does nothing unless a profiler is set
+	protected LoopProfiler profiler = LoopProfiler.DISABLED;
+	protected int conditionPhase = -1;
+	protected int drivePhase = -1;
+	protected int waitPhase = -1;
 
 	/**
 	 * Initializes the class to use the four wheels with the given configuration of names and speed
@@ -48,6 +89,7 @@ public class MecanumWheels implements Wheels {
 		leftBack.setDirection( wheelConfig.leftBackDirection );
 		rightFront.setDirection( wheelConfig.rightFrontDirection );
 		rightBack.setDirection( wheelConfig.rightBackDirection );
+		runMode = leftFront.getMode( );
 
 		this.speeds = speeds;
 	}
@@ -77,7 +119,7 @@ public class MecanumWheels implements Wheels {
 	 *                  1f
 	 */
 	public void move( Condition condition, SimpleDirection direction, float speed ) {
-		runByCoefficients( condition, calculateMove( direction ), Math.abs( speed ) );
+		runByCoefficients( condition, calculateMove( direction, moveCoefficients ), Math.abs( speed ) );
 	}
 
 	/**
@@ -87,14 +129,25 @@ public class MecanumWheels implements Wheels {
 	 * @return The coefficients calculated to move in the given direction
 	 */
 	public Coefficients calculateMove( SimpleDirection direction ) {
-		Coefficients coefficients = new Coefficients( );
+		return calculateMove( direction, new Coefficients( ) );
+	}
+
+	/**
+	 * Calculates the coefficient values for the wheels needed to move in the given direction. The
+	 * coefficients are stored in the given object, so no new object is made.
+	 *
+	 * @param direction Determines if the wheels will move forward or backwards
+	 * @param result    The coefficients which will be set
+	 * @return The given coefficients
+	 */
+	public Coefficients calculateMove( SimpleDirection direction, Coefficients result ) {
 		//Moves forwards or backwards based on direction
-		float coefficient = direction.equals( SimpleDirection.FORWARDS ) ? 1f : -1f;
-		coefficients.leftFront = coefficient;
-		coefficients.leftBack = coefficient;
-		coefficients.rightFront = coefficient;
-		coefficients.rightBack = coefficient;
-		return coefficients;
+		float coefficient = direction == SimpleDirection.FORWARDS ? 1f : -1f;
+		result.leftFront = coefficient;
+		result.leftBack = coefficient;
+		result.rightFront = coefficient;
+		result.rightBack = coefficient;
+		return result;
 	}
 
 	/**
@@ -116,7 +169,7 @@ public class MecanumWheels implements Wheels {
 	 *                    1f
 	 */
 	public void strafe( Condition condition, Angle strafeAngle, float speed ) {
-		runByCoefficients( condition, calculateStrafe( strafeAngle ), Math.abs( speed ) );
+		runByCoefficients( condition, calculateStrafe( strafeAngle, strafeCoefficients ), Math.abs( speed ) );
 	}
 
 	/**
@@ -126,6 +179,18 @@ public class MecanumWheels implements Wheels {
 	 * @return The coefficients calculated to strafe towards the given angle
 	 */
 	public Coefficients calculateStrafe( Angle strafeAngle ) {
+		return calculateStrafe( strafeAngle, new Coefficients( ) );
+	}
+
+	/**
+	 * Calculates the coefficient values for the wheels needed to strafe towards the given angle. The
+	 * coefficients are stored in the given object, so no new object is made.
+	 *
+	 * @param strafeAngle The angle which will be strafed towards
+	 * @param result      The coefficients which will be set
+	 * @return The given coefficients
+	 */
+	public Coefficients calculateStrafe( Angle strafeAngle, Coefficients result ) {
 		float strafeAngleRadians = strafeAngle.getRadians( );
 		//Relative x and y movement from angle of movement
 		float x = (float) Math.sin( strafeAngleRadians );
@@ -136,12 +201,33 @@ public class MecanumWheels implements Wheels {
 		//Used to prevent setting motor to power over 1
 		float scale = Math.max( 1, magnitude );
 
-		Coefficients coefficients = new Coefficients( );
-		coefficients.leftFront = (y - x) / scale;
-		coefficients.leftBack = (y + x) / scale;
-		coefficients.rightFront = (y - x) / scale;
-		coefficients.rightBack = (y - x) / scale;
-		return coefficients;
+		//Diagonal wheels get the same power, so the sides balance and the robot does not turn
+		result.leftFront = (y - x) / scale;
+		result.leftBack = (y + x) / scale;
+		result.rightFront = (y + x) / scale;
+		result.rightBack = (y - x) / scale;
+		return result;
+	}
+
+	/**
+	 * Calculates the coefficient values for the wheels needed to move forwards, strafe right and turn
+	 * clockwise all at once, scaled down together if needed so no coefficient is over 1. The
+	 * coefficients are stored in the given object, so no new object is made.
+	 *
+	 * @param forward   How much to move forwards, between -1f and 1f
+	 * @param right     How much to strafe right, between -1f and 1f
+	 * @param clockwise How much to turn clockwise, between -1f and 1f
+	 * @param result    The coefficients which will be set
+	 * @return The given coefficients
+	 */
+	public Coefficients calculateMotion( float forward, float right, float clockwise, Coefficients result ) {
+		//Used to prevent setting motor to power over 1
+		float scale = Math.max( 1, Math.abs( forward ) + Math.abs( right ) + Math.abs( clockwise ) );
+		result.leftFront = (forward + right + clockwise) / scale;
+		result.rightFront = (forward - right - clockwise) / scale;
+		result.leftBack = (forward - right + clockwise) / scale;
+		result.rightBack = (forward + right - clockwise) / scale;
+		return result;
 	}
 
 	@Override
@@ -157,7 +243,7 @@ public class MecanumWheels implements Wheels {
 	 * @param speed     The percent of maximum speed which wheels will turn at, must be between -1f and 1f
 	 */
 	public void turn( Condition condition, RotationDirection direction, float speed ) {
-		runByCoefficients( condition, calculateTurn( direction ), Math.abs( speed ) );
+		runByCoefficients( condition, calculateTurn( direction, turnCoefficients ), Math.abs( speed ) );
 	}
 
 
@@ -168,16 +254,27 @@ public class MecanumWheels implements Wheels {
 	 * @return The coefficients calculated to turn in the given direction
 	 */
 	public Coefficients calculateTurn( RotationDirection direction ) {
+		return calculateTurn( direction, new Coefficients( ) );
+	}
+
+	/**
+	 * Calculates the coefficient values for the wheels need to turn in the given direction. The
+	 * coefficients are stored in the given object, so no new object is made.
+	 *
+	 * @param direction Determines what direction the turn will be towards
+	 * @param result    The coefficients which will be set
+	 * @return The given coefficients
+	 */
+	public Coefficients calculateTurn( RotationDirection direction, Coefficients result ) {
 		//Makes one side or the other move backwards to turn left or right based on the angle
 		int leftCoefficient = direction == RotationDirection.CLOCKWISE ? 1 : -1;
 		int rightCoefficient = direction == RotationDirection.CLOCKWISE ? -1 : 1;
 
-		Coefficients coefficients = new Coefficients( );
-		coefficients.leftFront = leftCoefficient;
-		coefficients.leftBack = leftCoefficient;
-		coefficients.rightFront = rightCoefficient;
-		coefficients.rightBack = rightCoefficient;
-		return coefficients;
+		result.leftFront = leftCoefficient;
+		result.leftBack = leftCoefficient;
+		result.rightFront = rightCoefficient;
+		result.rightBack = rightCoefficient;
+		return result;
 	}
 
 	/**
@@ -192,15 +289,242 @@ public class MecanumWheels implements Wheels {
 		coefficients = speed < 0 ? coefficients.negated( ) : coefficients;
 		speed = Math.abs( speed );
 
+		beginHeadingHold( coefficients );
 		setPower( coefficients, speed );
+		loopTimer.start( );
+		profiler.startLoop( );
 		while( !condition.isTrue( ) ) {
-			opModeInterface.idle( );
+			profiler.mark( conditionPhase );
+			updatePower( coefficients, speed );
+			profiler.mark( drivePhase );
+			loopTimer.waitForNextLoop( opModeInterface );
+			profiler.mark( waitPhase );
+			profiler.endLoop( );
 		}
 		stop( );
 	}
 
 	/**
-	 * Sets the power of the wheels based on the relative value of the wheel coefficients at a given speed until another power is set
+	 * Makes moves and strafes hold the heading the robot started them at, correcting any drift as
+	 * it happens instead of needing a separate turn afterwards. Uses the default heading gains.
+	 *
+	 * @param headingProvider The source of the robot's heading, such as a gyro sensor
+	 * @see #enableHeadingHold(HeadingProvider, PIDFController.Gains)
+	 */
+	public void enableHeadingHold( HeadingProvider headingProvider ) {
+		enableHeadingHold( headingProvider, new PIDFController.Gains( DEFAULT_HEADING_GAINS ) );
+	}
+
+	/**
+	 * Makes moves and strafes hold the heading the robot started them at, correcting any drift as
+	 * it happens instead of needing a separate turn afterwards. Turns are left uncorrected.
+	 *
+	 * @param headingProvider The source of the robot's heading, such as a gyro sensor
+	 * @param gains           The gains of the heading controller, where the error is in radians and
+	 *                        the output is a turning coefficient
+	 */
+	public void enableHeadingHold( HeadingProvider headingProvider, PIDFController.Gains gains ) {
+		this.headingProvider = headingProvider;
+		headingController.setGains( gains );
+	}
+
+	/**
+	 * Stops moves and strafes from correcting their heading.
+	 */
+	public void disableHeadingHold( ) {
+		headingProvider = null;
+		holdingHeading = false;
+	}
+
+	/**
+	 * Checks if moves and strafes will hold their heading.
+	 *
+	 * @return True if heading hold is enabled
+	 */
+	public boolean isHeadingHoldEnabled( ) {
+		return headingProvider != null;
+	}
+
+	/**
+	 * Called every loop of a blocking move to write the powers again. Only rewrites them while the
+	 * heading is being held, since nothing else changes them during the move.
+	 *
+	 * @param coefficients The coefficients of the movement
+	 * @param speed        The speed at which the wheels are moving
+	 */
+	protected void updatePower( Coefficients coefficients, float speed ) {
+		if( holdingHeading )
+			setPower( holdHeading( coefficients ), speed );
+	}
+
+	/**
+	 * Starts holding the current heading if heading hold is enabled and the given coefficients do
+	 * not already turn the robot.
+	 *
+	 * @param coefficients The coefficients of the movement which is about to start
+	 */
+	protected void beginHeadingHold( Coefficients coefficients ) {
+		//The clockwise turning part of the coefficients, which would fight with holding the heading
+		float turning = (coefficients.leftFront + coefficients.leftBack - coefficients.rightFront - coefficients.rightBack) / 4;
+		holdingHeading = headingProvider != null && Math.abs( turning ) < TURNING_THRESHOLD;
+		if( holdingHeading ) {
+			targetHeading = headingProvider.getHeadingRadians( );
+			headingController.reset( );
+		}
+	}
+
+	/**
+	 * Calculates how much the robot needs to turn counter-clockwise to get back to the held heading.
+	 *
+	 * @return The counter-clockwise turning coefficient, or 0 if the heading is not being held
+	 */
+	protected float calculateHeadingCorrection( ) {
+		if( !holdingHeading )
+			return 0f;
+		return (float) headingController.calculate( targetHeading, headingProvider.getHeadingRadians( ) );
+	}
+
+	/**
+	 * Mixes the heading correction into the given coefficients. The result is stored in a reused
+	 * object, so it is only valid until the next call.
+	 *
+	 * @param coefficients The coefficients of the current movement
+	 * @return The corrected coefficients, or the given coefficients if the heading is not being held
+	 */
+	protected Coefficients holdHeading( Coefficients coefficients ) {
+		if( !holdingHeading )
+			return coefficients;
+		float correction = calculateHeadingCorrection( );
+		//Turning counter-clockwise slows the left wheels and speeds up the right ones
+		heldCoefficients.leftFront = coefficients.leftFront - correction;
+		heldCoefficients.leftBack = coefficients.leftBack - correction;
+		heldCoefficients.rightFront = coefficients.rightFront + correction;
+		heldCoefficients.rightBack = coefficients.rightBack + correction;
+		return heldCoefficients;
+	}
+
+	/**
+	 * Changes how coefficients which need more than full power are scaled down. Defaults to
+	 * {@link DesaturationStrategy#PROPORTIONAL}.
+	 *
+	 * @param desaturationStrategy The strategy to use
+	 */
+	public void setDesaturationStrategy( DesaturationStrategy desaturationStrategy ) {
+		this.desaturationStrategy = desaturationStrategy;
+	}
+
+	/**
+	 * Gets how coefficients which need more than full power are scaled down.
+	 *
+	 * @return The current strategy
+	 */
+	public DesaturationStrategy getDesaturationStrategy( ) {
+		return desaturationStrategy;
+	}
+
+	/**
+	 * Scales every power written to the wheels by the given compensator, so that the wheels move at
+	 * the same speed however charged the battery is. Only wheels {@link #setMode set} to
+	 * {@link DcMotor.RunMode#RUN_WITHOUT_ENCODER} are scaled, since the motor controller's own
+	 * velocity loop already corrects for the voltage in the other modes. If a scaled power would be
+	 * more than 1, every power is scaled down together so the robot still drives in the same
+	 * direction.
+	 *
+	 * @param voltageCompensator The compensator to use, which can be shared with other mechanisms
+	 */
+	public void enableVoltageCompensation( VoltageCompensator voltageCompensator ) {
+		this.voltageCompensator = voltageCompensator;
+	}
+
+	/**
+	 * Writes powers to the wheels unchanged again.
+	 */
+	public void disableVoltageCompensation( ) {
+		voltageCompensator = null;
+	}
+
+	/**
+	 * Checks if the powers written to the wheels are scaled by the battery voltage.
+	 *
+	 * @return True if voltage compensation is enabled
+	 */
+	public boolean isVoltageCompensationEnabled( ) {
+		return voltageCompensator != null;
+	}
+
+	/**
+	 * Checks if the last coefficients set needed more than full power, so had to be scaled down.
+	 *
+	 * @return True if the last power set was clipped, otherwise false
+	 */
+	public boolean isOutputSaturated( ) {
+		return outputSaturated;
+	}
+
+	/**
+	 * Gets how much the moving part of the last coefficients set was scaled down.
+	 *
+	 * @return The scale between 0 and 1, where 1 means it was not scaled down
+	 */
+	public float getTranslationScale( ) {
+		return translationScale;
+	}
+
+	/**
+	 * Gets how much the turning part of the last coefficients set was scaled down.
+	 *
+	 * @return The scale between 0 and 1, where 1 means it was not scaled down
+	 */
+	public float getRotationScale( ) {
+		return rotationScale;
+	}
+
+	/**
+	 * Changes how often blocking moves run their loop, so heading hold and other controllers get a
+	 * steady timestep. Defaults to 10 milliseconds.
+	 *
+	 * @param periodMillis The time between loops in milliseconds, or 0 to run as fast as possible
+	 */
+	public void setLoopPeriod( long periodMillis ) {
+		loopTimer.setPeriod( periodMillis );
+	}
+
+	/**
+	 * Gets the timer which paces blocking moves, such as to show its overruns and jitter in
+	 * telemetry.
+	 *
+	 * @return The loop timer
+	 */
+	public LoopTimer getLoopTimer( ) {
+		return loopTimer;
+	}
+
+	/**
+	 * Times the condition, driving and waiting phases of blocking moves with the given profiler,
+	 * using the phases named {@link LoopProfiler#CONDITION_PHASE}, {@link LoopProfiler#DRIVE_PHASE}
+	 * and {@link LoopProfiler#WAIT_PHASE}. Phases the profiler does not have are not timed.
+	 *
+	 * @param profiler The profiler, or null to stop profiling
+	 */
+	public void setProfiler( LoopProfiler profiler ) {
+		this.profiler = profiler != null ? profiler : LoopProfiler.DISABLED;
+		conditionPhase = this.profiler.getPhase( LoopProfiler.CONDITION_PHASE );
+		drivePhase = this.profiler.getPhase( LoopProfiler.DRIVE_PHASE );
+		waitPhase = this.profiler.getPhase( LoopProfiler.WAIT_PHASE );
+	}
+
+	/**
+	 * Gets the profiler which times blocking moves.
+	 *
+	 * @return The profiler, which is {@link LoopProfiler#DISABLED} if none has been set
+	 */
+	public LoopProfiler getProfiler( ) {
+		return profiler;
+	}
+
+	/**
+	 * Sets the power of the wheels based on the relative value of the wheel coefficients at a given speed until another power is set.
+	 * Coefficients over 1 are scaled down using the {@link #setDesaturationStrategy(DesaturationStrategy) desaturation strategy}.
 	 *
 	 * @param coefficients The coefficients which the wheels will proportionally move by
 	 * @param speed        The speed at which the wheels will move
@@ -209,18 +533,114 @@ public class MecanumWheels implements Wheels {
 		//If the magnitude of speed is greater than 1, it reduces its magnitude to 1 so that the motor power is never set to over 1
 		speed = boundRange( speed );
 		double magnitude = coefficients.getLargestMagnitude( );
-		magnitude = magnitude < 1 ? 1 : magnitude;
-		leftFront.setPower( coefficients.leftFront * speed / magnitude );
-		leftBack.setPower( coefficients.leftBack * speed / magnitude );
-		rightFront.setPower( coefficients.rightFront * speed / magnitude );
-		rightBack.setPower( coefficients.rightBack * speed / magnitude );
+		outputSaturated = magnitude > 1;
+		if( !outputSaturated || desaturationStrategy == DesaturationStrategy.PROPORTIONAL ) {
+			magnitude = magnitude < 1 ? 1 : magnitude;
+			translationScale = rotationScale = (float) (1 / magnitude);
+			writePower( (float) (coefficients.leftFront * speed / magnitude), (float) (coefficients.leftBack * speed / magnitude),
+					(float) (coefficients.rightFront * speed / magnitude), (float) (coefficients.rightBack * speed / magnitude) );
+			return;
+		}
+
+		//Splits the coefficients into a clockwise turn, which adds to the left wheels and takes from the right, and the rest
+		float rotation = (coefficients.leftFront + coefficients.leftBack - coefficients.rightFront - coefficients.rightBack) / 4;
+		float leftFrontTranslation = coefficients.leftFront - rotation;
+		float leftBackTranslation = coefficients.leftBack - rotation;
+		float rightFrontTranslation = coefficients.rightFront + rotation;
+		float rightBackTranslation = coefficients.rightBack + rotation;
+
+		if( desaturationStrategy == DesaturationStrategy.ROTATION_PRIORITY ) {
+			float keptRotation = boundRange( rotation );
+			rotationScale = rotation != 0 ? keptRotation / rotation : 1f;
+			translationScale = Math.min( Math.min( DesaturationStrategy.headroom( leftFrontTranslation, keptRotation ), DesaturationStrategy.headroom( leftBackTranslation, keptRotation ) ),
+					Math.min( DesaturationStrategy.headroom( rightFrontTranslation, -keptRotation ), DesaturationStrategy.headroom( rightBackTranslation, -keptRotation ) ) );
+			translationScale = Math.max( 0f, Math.min( 1f, translationScale ) );
+		} else {
+			float translationMagnitude = Math.max( Math.max( Math.abs( leftFrontTranslation ), Math.abs( leftBackTranslation ) ), Math.max( Math.abs( rightFrontTranslation ), Math.abs( rightBackTranslation ) ) );
+			translationScale = translationMagnitude > 1 ? 1 / translationMagnitude : 1f;
+			rotationScale = Math.min( Math.min( DesaturationStrategy.headroom( rotation, leftFrontTranslation * translationScale ), DesaturationStrategy.headroom( rotation, leftBackTranslation * translationScale ) ),
+					Math.min( DesaturationStrategy.headroom( -rotation, rightFrontTranslation * translationScale ), DesaturationStrategy.headroom( -rotation, rightBackTranslation * translationScale ) ) );
+			rotationScale = Math.max( 0f, Math.min( 1f, rotationScale ) );
+		}
+
+		float scaledRotation = rotation * rotationScale;
+		writePower( (leftFrontTranslation * translationScale + scaledRotation) * speed, (leftBackTranslation * translationScale + scaledRotation) * speed,
+				(rightFrontTranslation * translationScale - scaledRotation) * speed, (rightBackTranslation * translationScale - scaledRotation) * speed );
 	}
 
+	/**
+	 * Sets the power of each motor. Everything which sets the power of the wheels while moving goes
+	 * through here, so subclasses can adjust the final powers. The powers are
+	 * {@link #enableVoltageCompensation(VoltageCompensator) compensated for the battery voltage} here.
+	 *
+	 * @param leftFrontPower  The power of the front left wheel, between -1 and 1
+	 * @param leftBackPower   The power of the back left wheel, between -1 and 1
+	 * @param rightFrontPower The power of the front right wheel, between -1 and 1
+	 * @param rightBackPower  The power of the back right wheel, between -1 and 1
+	 */
+	protected void writePower( float leftFrontPower, float leftBackPower, float rightFrontPower, float rightBackPower ) {
+		if( voltageCompensator != null ) {
+			float scale = getCompensationScale( (float) voltageCompensator.getScale( ) );
+			float largest = Math.max( Math.max( Math.abs( leftFrontPower ), Math.abs( leftBackPower ) ),
+					Math.max( Math.abs( rightFrontPower ), Math.abs( rightBackPower ) ) ) * scale;
+			float limit = largest > 1 ? 1 / largest : 1f;
+			leftFrontPower *= scale * limit;
+			leftBackPower *= scale * limit;
+			rightFrontPower *= scale * limit;
+			rightBackPower *= scale * limit;
+		}
+		leftFront.setPower( leftFrontPower );
+		leftBack.setPower( leftBackPower );
+		rightFront.setPower( rightFrontPower );
+		rightBack.setPower( rightBackPower );
+	}
+
+	/**
+	 * Gets the number the powers are multiplied by to compensate for the battery voltage, from the
+	 * cached run mode so the motors are not read every loop.
+	 *
+	 * @param scale The compensator's scale
+	 * @return The scale if the motors run without their encoders, otherwise 1 since the motor
+	 * controller already corrects for the voltage
+	 */
+	protected float getCompensationScale( float scale ) {
+		return runMode == DcMotor.RunMode.RUN_WITHOUT_ENCODER ? scale : 1f;
+	}
+
+	/**
+	 * Sets the run mode of every wheel. Voltage compensation decides which powers to scale from the
+	 * mode set here instead of reading it from the hub every loop, so the wheels' modes should be
+	 * changed through this rather than on the motors directly.
+	 *
+	 * @param mode The mode to run the motors in
+	 */
+	public void setMode( DcMotor.RunMode mode ) {
+		leftFront.setMode( mode );
+		leftBack.setMode( mode );
+		rightFront.setMode( mode );
+		rightBack.setMode( mode );
+		runMode = mode;
+	}
+
+	/**
+	 * Gets the run mode the wheels were last set to.
+	 *
+	 * @return The mode, as set through {@link #setMode(DcMotor.RunMode)} or read when the wheels
+	 * were made
+	 */
+	public DcMotor.RunMode getMode( ) {
+		return runMode;
+	}
+
+
 	/**
 	 * Stops the movement of the wheels
 	 */
 	public void stop( ) {
-		setPower( ZEROED_COEFFICIENTS, 1f );
+		leftFront.setPower( 0 );
+		leftBack.setPower( 0 );
+		rightFront.setPower( 0 );
+		rightBack.setPower( 0 );
 	}
 
 	/**
@@ -230,7 +650,7 @@ public class MecanumWheels implements Wheels {
 	 * @return a float between -1 and 1, being -1 or 1 if the value was more or less than the range,
 	 * and just the original value if it was not
 	 */
-	private static float boundRange( float value ) {
+	protected static float boundRange( float value ) {
 		//If the magnitude is greater than 1, it reduces its magnitude to 1
 		return Math.abs( value ) > 1 ? (value > 0 ? 1 : -1) : (value);
 	}
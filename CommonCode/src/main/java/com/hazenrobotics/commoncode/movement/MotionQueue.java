@@ -0,0 +1,523 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.PIDFController;
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+import com.hazenrobotics.commoncode.models.angles.Angle;
+import com.hazenrobotics.commoncode.models.angles.directions.RotationDirection;
+import com.hazenrobotics.commoncode.models.angles.directions.SimpleDirection;
+import com.hazenrobotics.commoncode.models.distances.Distance;
+import com.hazenrobotics.commoncode.models.poses.Pose;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a series of moves, strafes and turns for {@link MecanumWheels} one after another without
+ * stopping between them. Each segment is queued ahead of time relative to where the one before it
+ * ends, and once the robot is within the blend radius of a corner it starts on the next segment,
+ * only slowing down as much as the angle of the corner needs. Positions are tracked with
+ * {@link Odometry}, so errors in one segment are corrected by the next rather than adding up.
+ * <p>
+ * Turns between two moves are blended in by turning while driving the next move. A turn at the end
+ * of the queue is done in place once the robot has stopped.
+ * <p>
+ * The queue finishes once the robot is within the end tolerances of the last target, or earlier as
+ * decided by its {@link #setExitPolicy(MoveExitPolicy) exit policy}.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MotionQueue {
+
+	protected static final DistanceUnit DISTANCE_UNIT = DistanceUnit.INCH;
+	protected static final PIDFController.Gains DEFAULT_HEADING_GAINS = new PIDFController.Gains( 1.5, 0, 0.05 );
+	protected static final double DEFAULT_BLEND_RADIUS = 6;
+	protected static final double DEFAULT_SLOWDOWN_DISTANCE = 12;
+	protected static final double DEFAULT_POSITION_TOLERANCE = 1;
+	protected static final double DEFAULT_HEADING_TOLERANCE = Math.toRadians( 2 );
+	protected static final float DEFAULT_CORNER_SPEED = 0.2f;
+	//Corners which would have to be taken slower than this are stopped at rather than blended
+	protected static final float STOPPING_SPEED = 0.02f;
+	//The smallest fraction of the speed used while slowing down, so the robot does not stall short of the end
+	protected static final double MIN_SLOWDOWN_SPEED = 0.25;
+	//The smallest turning used outside the heading tolerance, so the robot does not stall short of the heading
+	protected static final float MIN_TURN_SPEED = 0.05f;
+	protected static final long DEFAULT_SETTLE_TIME_MILLIS = 500;
+	protected static final long NANOS_PER_MILLI = 1000000;
+
+	protected final MecanumWheels wheels;
+	protected final Odometry odometry;
+	protected final OpModeInterface opModeInterface;
+	protected final PIDFController headingController = new PIDFController( new PIDFController.Gains( DEFAULT_HEADING_GAINS ) );
+
+	protected double blendRadius = DEFAULT_BLEND_RADIUS;
+	protected double slowdownDistance = DEFAULT_SLOWDOWN_DISTANCE;
+	protected double positionTolerance = DEFAULT_POSITION_TOLERANCE;
+	protected double headingTolerance = DEFAULT_HEADING_TOLERANCE;
+	protected float cornerSpeed = DEFAULT_CORNER_SPEED;
+	protected MoveExitPolicy exitPolicy = new MoveExitPolicy( ).setSettle( 0, DEFAULT_SETTLE_TIME_MILLIS );
+
+	protected final List<Segment> segments = new ArrayList<>( );
+
+	//The absolute targets of the queued segments, calculated when the queue is started
+	protected double[] targetX = new double[0];
+	protected double[] targetY = new double[0];
+	protected double[] targetHeading = new double[0];
+	protected float[] targetSpeed = new float[0];
+	protected float[] targetTurnSpeed = new float[0];
+	//The speed each target can be passed through at, which is 0 for the last
+	protected float[] passingSpeed = new float[0];
+	protected int targetCount = 0;
+	protected int currentTarget = 0;
+	protected boolean finished = true;
+	protected MoveOutcome outcome = null;
+	protected long startNanos = 0;
+	protected long settledSinceNanos = 0;
+	protected double settledHeadingError = 0;
+
+	protected final Pose pose = new Pose( );
+	protected final MecanumWheels.Coefficients coefficients = new MecanumWheels.Coefficients( );
+
+	/**
+	 * Creates an empty queue for the given wheels.
+	 *
+	 * @param wheels   The wheels which will drive
+	 * @param odometry The odometry which gives the robot's live pose
+	 */
+	public MotionQueue( MecanumWheels wheels, Odometry odometry ) {
+		this.wheels = wheels;
+		this.odometry = odometry;
+		this.opModeInterface = wheels.opModeInterface;
+	}
+
+	/**
+	 * Queues a move directly forwards or backwards at the default move speed.
+	 *
+	 * @param distance  The distance to move
+	 * @param direction Determines if the robot will move forward or backwards
+	 * @return This queue
+	 */
+	public MotionQueue move( Distance distance, SimpleDirection direction ) {
+		return move( distance, direction, wheels.speeds.move );
+	}
+
+	/**
+	 * Queues a move directly forwards or backwards.
+	 *
+	 * @param distance  The distance to move
+	 * @param direction Determines if the robot will move forward or backwards
+	 * @param speed     The percent of maximum speed which wheels will move at, should be between 0f
+	 *                  and 1f
+	 * @return This queue
+	 */
+	public MotionQueue move( Distance distance, SimpleDirection direction, float speed ) {
+		double value = distance.getValue( DISTANCE_UNIT );
+		segments.add( new Segment( direction == SimpleDirection.FORWARDS ? value : -value, 0, 0, Math.abs( speed ) ) );
+		return this;
+	}
+
+	/**
+	 * Queues a strafe at the default strafe speed.
+	 *
+	 * @param distance    The distance to strafe
+	 * @param strafeAngle The angle to strafe towards, counter-clockwise from the direction the robot
+	 *                    is facing
+	 * @return This queue
+	 */
+	public MotionQueue strafe( Distance distance, Angle strafeAngle ) {
+		return strafe( distance, strafeAngle, wheels.speeds.strafe );
+	}
+
+	/**
+	 * Queues a strafe.
+	 *
+	 * @param distance    The distance to strafe
+	 * @param strafeAngle The angle to strafe towards, counter-clockwise from the direction the robot
+	 *                    is facing
+	 * @param speed       The percent of maximum speed which wheels will move at, should be between 0f
+	 *                    and 1f
+	 * @return This queue
+	 */
+	public MotionQueue strafe( Distance distance, Angle strafeAngle, float speed ) {
+		double value = distance.getValue( DISTANCE_UNIT );
+		double angle = strafeAngle.getRadians( );
+		segments.add( new Segment( value * Math.cos( angle ), value * Math.sin( angle ), 0, Math.abs( speed ) ) );
+		return this;
+	}
+
+	/**
+	 * Queues a turn at the default turn speed.
+	 *
+	 * @param angle     The angle to turn
+	 * @param direction Determines what direction the turn will be towards
+	 * @return This queue
+	 */
+	public MotionQueue turn( Angle angle, RotationDirection direction ) {
+		return turn( angle, direction, wheels.speeds.turn );
+	}
+
+	/**
+	 * Queues a turn.
+	 *
+	 * @param angle     The angle to turn
+	 * @param direction Determines what direction the turn will be towards
+	 * @param speed     The percent of maximum speed which wheels will turn at, should be between 0f
+	 *                  and 1f
+	 * @return This queue
+	 */
+	public MotionQueue turn( Angle angle, RotationDirection direction, float speed ) {
+		double radians = angle.getRadians( );
+		segments.add( new Segment( 0, 0, direction == RotationDirection.CLOCKWISE ? -radians : radians, Math.abs( speed ) ) );
+		return this;
+	}
+
+	/**
+	 * Removes every queued segment. Does not affect a queue which is already running.
+	 */
+	public void clear( ) {
+		segments.clear( );
+	}
+
+	/**
+	 * Gets how many segments are queued.
+	 *
+	 * @return The number of segments
+	 */
+	public int getSegmentCount( ) {
+		return segments.size( );
+	}
+
+	/**
+	 * Changes how close to a corner the robot has to get before it starts on the next segment.
+	 * Larger radii cut corners more but carry more speed through them. Defaults to 6 inches.
+	 *
+	 * @param blendRadius The distance from each corner at which the next segment is started
+	 */
+	public void setBlendRadius( Distance blendRadius ) {
+		this.blendRadius = Math.abs( blendRadius.getValue( DISTANCE_UNIT ) );
+	}
+
+	/**
+	 * Changes the slowest speed the robot is allowed to take a right angle corner at; gentler
+	 * corners are taken faster and straight ones at full speed. Defaults to 0.2f.
+	 *
+	 * @param cornerSpeed The percent of maximum speed at sharp corners, should be between 0f and 1f
+	 */
+	public void setCornerSpeed( float cornerSpeed ) {
+		this.cornerSpeed = Math.abs( cornerSpeed );
+	}
+
+	/**
+	 * Changes the distance before a corner or the end at which the robot starts to slow down.
+	 * Defaults to 12 inches.
+	 *
+	 * @param slowdownDistance The distance to start slowing down at
+	 */
+	public void setSlowdownDistance( Distance slowdownDistance ) {
+		this.slowdownDistance = Math.abs( slowdownDistance.getValue( DISTANCE_UNIT ) );
+	}
+
+	/**
+	 * Changes how close to the final position and heading the robot has to be to finish. Defaults
+	 * to 1 inch and 2 degrees.
+	 *
+	 * @param positionTolerance The distance to the end which counts as having reached it
+	 * @param headingTolerance  The heading error which counts as having reached the final heading
+	 */
+	public void setEndTolerance( Distance positionTolerance, Angle headingTolerance ) {
+		this.positionTolerance = Math.abs( positionTolerance.getValue( DISTANCE_UNIT ) );
+		this.headingTolerance = Math.abs( headingTolerance.getRadians( ) );
+	}
+
+	/**
+	 * Changes the gains used to turn towards each segment's heading.
+	 *
+	 * @param gains The gains of the heading controller, where the error is in radians and the
+	 *              output is a turning coefficient
+	 */
+	public void setHeadingGains( PIDFController.Gains gains ) {
+		headingController.setGains( gains );
+	}
+
+	/**
+	 * Changes when the queue gives up on reaching the end exactly. Only the timeout and the settle
+	 * time of the policy are used, since the queue measures the robot's pose rather than counts: the
+	 * queue has settled once the robot is within the position tolerance of the end and its heading
+	 * has not closed in by more than the heading tolerance for the settle time. Defaults to settling
+	 * after half a second and timing out after 30 seconds.
+	 *
+	 * @param exitPolicy The policy to use for the following runs
+	 */
+	public void setExitPolicy( MoveExitPolicy exitPolicy ) {
+		this.exitPolicy = exitPolicy;
+	}
+
+	/**
+	 * Gets the policy which decides when the queue gives up on reaching the end exactly.
+	 *
+	 * @return The current exit policy
+	 */
+	public MoveExitPolicy getExitPolicy( ) {
+		return exitPolicy;
+	}
+
+	/**
+	 * Runs every queued segment, returning once the robot reaches the end, the
+	 * {@link #setExitPolicy(MoveExitPolicy) exit policy} finishes it early, or the OpMode stops. The
+	 * queue is kept, so it can be run again from wherever the robot is afterwards.
+	 *
+	 * @return Why the queue finished
+	 */
+	public MoveOutcome run( ) {
+		start( );
+		wheels.loopTimer.start( );
+		while( !update( ) && opModeInterface.opModeIsActive( ) ) {
+			wheels.loopTimer.waitForNextLoop( opModeInterface );
+		}
+		stop( );
+		return outcome;
+	}
+
+	/**
+	 * Starts running the queued segments from the robot's current pose, without blocking.
+	 * {@link #update()} must then be called every loop.
+	 */
+	public void start( ) {
+		odometry.update( );
+		odometry.getPose( pose );
+		planTargets( );
+		headingController.reset( );
+		currentTarget = 0;
+		finished = targetCount == 0;
+		outcome = finished ? MoveOutcome.COMPLETED : null;
+		startNanos = System.nanoTime( );
+		settledSinceNanos = 0;
+	}
+
+	/**
+	 * Turns the relative segments into absolute targets starting from the current pose. Turns are
+	 * merged into the move after them, and a turn at the end becomes a target of its own.
+	 */
+	protected void planTargets( ) {
+		int size = segments.size( );
+		if( targetX.length < size ) {
+			targetX = new double[size];
+			targetY = new double[size];
+			targetHeading = new double[size];
+			targetSpeed = new float[size];
+			targetTurnSpeed = new float[size];
+			passingSpeed = new float[size];
+		}
+
+		double x = pose.x;
+		double y = pose.y;
+		double heading = pose.heading;
+		float turnSpeed = wheels.speeds.turn;
+		boolean turnPending = false;
+		targetCount = 0;
+		for( Segment segment : segments ) {
+			if( segment.isTurn( ) ) {
+				heading += segment.turn;
+				turnSpeed = segment.speed;
+				turnPending = true;
+				continue;
+			}
+			double cos = Math.cos( heading );
+			double sin = Math.sin( heading );
+			x += segment.forward * cos - segment.left * sin;
+			y += segment.forward * sin + segment.left * cos;
+			addTarget( x, y, heading, segment.speed, turnSpeed );
+			turnPending = false;
+		}
+		if( turnPending )
+			addTarget( x, y, heading, 0, turnSpeed );
+
+		for( int i = 0; i < targetCount; i++ )
+			passingSpeed[i] = i == targetCount - 1 ? 0f : calculateCornerSpeed( i );
+	}
+
+	private void addTarget( double x, double y, double heading, float speed, float turnSpeed ) {
+		targetX[targetCount] = x;
+		targetY[targetCount] = y;
+		targetHeading[targetCount] = heading;
+		targetSpeed[targetCount] = speed;
+		targetTurnSpeed[targetCount] = turnSpeed;
+		targetCount++;
+	}
+
+	/**
+	 * Finds how fast the robot can pass through a corner, based on how sharply the direction
+	 * changes there. Turns in place have no direction, so the robot stops for them.
+	 */
+	protected float calculateCornerSpeed( int index ) {
+		double startX = index > 0 ? targetX[index - 1] : pose.x;
+		double startY = index > 0 ? targetY[index - 1] : pose.y;
+		double inX = targetX[index] - startX;
+		double inY = targetY[index] - startY;
+		double outX = targetX[index + 1] - targetX[index];
+		double outY = targetY[index + 1] - targetY[index];
+		double lengths = Math.hypot( inX, inY ) * Math.hypot( outX, outY );
+		if( lengths == 0 )
+			return 0f;
+		double cos = (inX * outX + inY * outY) / lengths;
+		float speed = Math.min( targetSpeed[index], targetSpeed[index + 1] );
+		float limit = Math.min( cornerSpeed, speed );
+		//Full speed through a straight corner down to the corner speed at a right angle, then down to stopping to reverse
+		float passing = (float) (cos >= 0 ? limit + (speed - limit) * cos : limit * (1 + cos));
+		return passing > STOPPING_SPEED ? passing : 0f;
+	}
+
+	/**
+	 * Updates the odometry and drives towards the current target, moving on to the next one once
+	 * the robot is within the blend radius. Stops the wheels once the last target is reached, or
+	 * once the {@link #setExitPolicy(MoveExitPolicy) exit policy} finishes the queue early.
+	 *
+	 * @return True if every segment has been finished (or none were started), otherwise false
+	 */
+	public boolean update( ) {
+		if( finished )
+			return true;
+		long now = System.nanoTime( );
+		if( exitPolicy.getTimeout( ) > 0 && now - startNanos >= exitPolicy.getTimeout( ) * NANOS_PER_MILLI )
+			return finish( MoveOutcome.TIMED_OUT );
+
+		odometry.update( );
+		odometry.getPose( pose );
+
+		double distance = Math.hypot( targetX[currentTarget] - pose.x, targetY[currentTarget] - pose.y );
+		while( currentTarget < targetCount - 1 && distance <= getSwitchDistance( currentTarget ) ) {
+			currentTarget++;
+			distance = Math.hypot( targetX[currentTarget] - pose.x, targetY[currentTarget] - pose.y );
+		}
+
+		//Turns the shortest way to the heading, which may be more than one rotation away from the pose's heading
+		double headingError = Math.IEEEremainder( targetHeading[currentTarget] - pose.heading, 2 * Math.PI );
+		if( currentTarget == targetCount - 1 && distance <= positionTolerance ) {
+			double error = Math.abs( headingError );
+			if( error <= headingTolerance )
+				return finish( MoveOutcome.COMPLETED );
+			//Stops waiting for the last of the heading once it has stopped closing in for the settle time
+			if( settledSinceNanos == 0 || error < settledHeadingError - headingTolerance ) {
+				settledSinceNanos = now;
+				settledHeadingError = error;
+			} else if( exitPolicy.isSettleEnabled( ) && now - settledSinceNanos >= exitPolicy.settleTimeMillis * NANOS_PER_MILLI )
+				return finish( MoveOutcome.SETTLED );
+		} else {
+			settledSinceNanos = 0;
+		}
+
+		float turnSpeed = targetTurnSpeed[currentTarget];
+		headingController.setOutputRange( -turnSpeed, turnSpeed );
+		float turn = (float) headingController.calculate( pose.heading + headingError, pose.heading );
+		//Small heading errors give too little output to overcome friction, so the output is kept above a minimum
+		if( Math.abs( headingError ) > headingTolerance && Math.abs( turn ) < MIN_TURN_SPEED )
+			turn = (float) Math.signum( headingError ) * Math.min( MIN_TURN_SPEED, turnSpeed );
+
+		//Slows down towards the speed the target can be passed through at, or to a stop
+		float speed = targetSpeed[currentTarget];
+		boolean stopping = passingSpeed[currentTarget] == 0;
+		double remaining = distance - getSwitchDistance( currentTarget );
+		if( slowdownDistance > 0 && remaining < slowdownDistance ) {
+			double endSpeed = stopping ? speed * MIN_SLOWDOWN_SPEED : passingSpeed[currentTarget];
+			speed = (float) Math.max( endSpeed, speed * Math.max( 0, remaining ) / slowdownDistance );
+		}
+		//Eases off inside the tolerance so the robot settles on the target instead of circling it
+		if( stopping && distance < positionTolerance )
+			speed *= (float) (distance / positionTolerance);
+
+		double forward = 0;
+		double left = 0;
+		if( distance > 0 ) {
+			double deltaX = (targetX[currentTarget] - pose.x) / distance;
+			double deltaY = (targetY[currentTarget] - pose.y) / distance;
+			double cos = Math.cos( pose.heading );
+			double sin = Math.sin( pose.heading );
+			forward = deltaX * cos + deltaY * sin;
+			left = -deltaX * sin + deltaY * cos;
+		}
+		wheels.calculateMotion( (float) (forward * speed), (float) (-left * speed), -turn, coefficients );
+		wheels.setPower( coefficients, 1f );
+		return false;
+	}
+
+	/**
+	 * Stops the wheels and finishes the queue for the given reason.
+	 *
+	 * @param outcome Why the queue finished
+	 * @return True, so it can be returned from {@link #update()}
+	 */
+	protected boolean finish( MoveOutcome outcome ) {
+		this.outcome = outcome;
+		finished = true;
+		wheels.stop( );
+		return true;
+	}
+
+	/**
+	 * Gets how close the robot has to get to a target to move on to the next one. Targets which
+	 * have to be stopped at are driven all the way to, rather than blended.
+	 */
+	protected double getSwitchDistance( int index ) {
+		return passingSpeed[index] > 0 ? blendRadius : positionTolerance;
+	}
+
+	/**
+	 * Checks if the queue has finished running.
+	 *
+	 * @return True if every segment has been finished or the queue was not started
+	 */
+	public boolean isFinished( ) {
+		return finished;
+	}
+
+	/**
+	 * Gets which segment target the robot is currently driving towards, where turns are counted as
+	 * part of the move after them.
+	 *
+	 * @return The index of the current target
+	 */
+	public int getCurrentTarget( ) {
+		return currentTarget;
+	}
+
+	/**
+	 * Gets why the queue last finished.
+	 *
+	 * @return The outcome, which is {@link MoveOutcome#INTERRUPTED} if the queue was stopped early,
+	 * or null if it is still running
+	 */
+	public MoveOutcome getOutcome( ) {
+		return outcome;
+	}
+
+	/**
+	 * Stops running the queue and stops the wheels.
+	 */
+	public void stop( ) {
+		if( !finished )
+			outcome = MoveOutcome.INTERRUPTED;
+		finished = true;
+		wheels.stop( );
+	}
+
+	/**
+	 * A queued move, strafe or turn relative to where the segment before it ends.
+	 */
+	protected static class Segment {
+		protected final double forward;
+		protected final double left;
+		protected final double turn;
+		protected final float speed;
+
+		protected Segment( double forward, double left, double turn, float speed ) {
+			this.forward = forward;
+			this.left = left;
+			this.turn = turn;
+			this.speed = speed;
+		}
+
+		protected boolean isTurn( ) {
+			return forward == 0 && left == 0;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.hazenrobotics.commoncode.movement;
+
+/**
+ * Decides when a measured move of {@link TwoEncoderWheels} or {@link MecanumEncoderWheels} is
+ * finished. Besides the wheels reaching their targets, a move can finish early once every wheel has
+ * settled close enough to its target, give up when a wheel stalls, or give up after a timeout, so
+ * that autonomous does not waste time waiting for the last few counts or hang against a wall.
+ * {@link MotionQueue}, {@link PurePursuitFollower} and {@link RamseteFollower} use its timeout and
+ * settle time too.
+ * <p>
+ * Stall detection and a timeout are on by default, so a wheel which can't quite reach its target
+ * gives up instead of hanging the OpMode. Settling is off until it is set, and any check can be
+ * turned off by setting it to 0. The policy can be changed between moves, but should not be changed
+ * during one.
+ *
+ * @see MoveOutcome
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class MoveExitPolicy {
+
+	/**
+	 * Which wheels have to reach their targets for the move to be completed.
+	 */
+	public enum Completion {
+		/**
+		 * The move is completed as soon as any wheel reaches its target.
+		 */
+		ANY_MOTOR,
+		/**
+		 * The move is completed once every wheel has reached its target.
+		 */
+		ALL_MOTORS
+	}
+
+	/**
+	 * The default speed in counts per second below which a wheel counts as stalled.
+	 */
+	public static final double DEFAULT_STALL_VELOCITY = 20;
+	/**
+	 * The default time in milliseconds a wheel has to stay stalled, long enough for the wheels to
+	 * speed up at the start of a move.
+	 */
+	public static final long DEFAULT_STALL_TIME_MILLIS = 1000;
+	/**
+	 * The default longest time in milliseconds a move can take, which is the length of autonomous.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+	protected Completion completion = null;
+	protected int settleTolerance = 0;
+	protected long settleTimeMillis = 0;
+	protected double stallVelocity = DEFAULT_STALL_VELOCITY;
+	protected long stallTimeMillis = DEFAULT_STALL_TIME_MILLIS;
+	protected long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	/**
+	 * Changes which wheels have to reach their targets for the move to be completed. By default
+	 * RUN_TO_POSITION moves finish when any wheel is done and
+	 * {@link TwoEncoderWheels#enablePositionControl position controlled} moves finish when every
+	 * wheel is, which is how they have always behaved.
+	 *
+	 * @param completion Which wheels have to finish, or null for the default of the move mode
+	 * @return This policy
+	 */
+	public MoveExitPolicy setCompletion( Completion completion ) {
+		this.completion = completion;
+		return this;
+	}
+
+	/**
+	 * Makes the move finish once every wheel has stayed within a tolerance of its target for a
+	 * length of time, rather than waiting for the motor controller to decide it is done.
+	 *
+	 * @param tolerance  How many counts away from its target each wheel can be
+	 * @param timeMillis How long every wheel has to stay within the tolerance, in milliseconds
+	 * @return This policy
+	 */
+	public MoveExitPolicy setSettle( int tolerance, long timeMillis ) {
+		this.settleTolerance = Math.abs( tolerance );
+		this.settleTimeMillis = Math.max( 0, timeMillis );
+		return this;
+	}
+
+	/**
+	 * Makes the move give up when a wheel which has not reached its target keeps moving slower
+	 * than a velocity for a length of time. Defaults to 20 counts per second for 1 second.
+	 * <p>
+	 * A wheel which has to move less than the others, such as the inside wheel of a curve, is
+	 * compared against the same share of the velocity, and a wheel within a few position tolerances
+	 * of its target never counts as stalled, so wheels slowly closing the last few counts are not
+	 * mistaken for stalls.
+	 *
+	 * @param velocity   The speed in counts per second below which a wheel counts as stalled, or 0
+	 *                   to turn stall detection off
+	 * @param timeMillis How long a wheel has to stay stalled, in milliseconds, which should be long
+	 *                   enough for the wheels to speed up at the start of the move
+	 * @return This policy
+	 */
+	public MoveExitPolicy setStallDetection( double velocity, long timeMillis ) {
+		this.stallVelocity = Math.abs( velocity );
+		this.stallTimeMillis = Math.max( 0, timeMillis );
+		return this;
+	}
+
+	/**
+	 * Makes the move give up after a length of time. Defaults to 30 seconds.
+	 *
+	 * @param timeoutMillis The longest the move can take in milliseconds, or 0 for no limit
+	 * @return This policy
+	 */
+	public MoveExitPolicy setTimeout( long timeoutMillis ) {
+		this.timeoutMillis = Math.max( 0, timeoutMillis );
+		return this;
+	}
+
+	/**
+	 * Gets which wheels have to reach their targets for the move to be completed.
+	 *
+	 * @return The completion, or null for the default of the move mode
+	 */
+	public Completion getCompletion( ) {
+		return completion;
+	}
+
+	/**
+	 * Checks if moves can finish by settling within a tolerance.
+	 *
+	 * @return True if a settle time has been set
+	 */
+	public boolean isSettleEnabled( ) {
+		return settleTimeMillis > 0;
+	}
+
+	/**
+	 * Checks if moves give up when a wheel stalls.
+	 *
+	 * @return True if a stall velocity and time have been set
+	 */
+	public boolean isStallDetectionEnabled( ) {
+		return stallVelocity > 0 && stallTimeMillis > 0;
+	}
+
+	/**
+	 * Gets the longest a move can take.
+	 *
+	 * @return The timeout in milliseconds, or 0 for no limit
+	 */
+	public long getTimeout( ) {
+		return timeoutMillis;
+	}
+}
@@ -0,0 +1,189 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+import com.hazenrobotics.commoncode.sensors.EncoderVelocityEstimator;
+
+/**
+ * Watches the motors of a measured move each loop and decides when it is finished using a
+ * {@link MoveExitPolicy}. The encoders are read through the wheels' shared
+ * {@link EncoderVelocityEstimator velocity estimators}, and all of its state is in arrays made
+ * once, so checking a move does not make new objects. During a move the monitor is the one place
+ * the estimators are updated each loop; everything else in the move only reads them.
+ */
+class MoveMonitor {
+
+	private static final long NANOS_PER_MILLI = 1000000;
+	//How many position tolerances a wheel has to be from its target before it can count as stalled
+	private static final int STALL_ERROR_FACTOR = 4;
+
+	private final OpModeInterface opModeInterface;
+	private final EncoderVelocityEstimator[] encoders;
+	private final int[] targets;
+	//How far each motor has to move, as a share of the furthest any motor has to move
+	private final double[] travelShares;
+	//When each motor started moving slower than the stall velocity, or 0 if it is not
+	private final long[] slowSinceNanos;
+
+	private MoveExitPolicy policy;
+	private boolean usesBusy;
+	private boolean readsEncoders;
+	private int positionTolerance;
+	private long startNanos;
+	//When every motor came within the settle tolerance, or 0 if they are not
+	private long settledSinceNanos;
+	private MoveOutcome outcome = null;
+
+	/**
+	 * Creates a monitor for the motors of the given encoders.
+	 *
+	 * @param opModeInterface An interface used to check if the OpMode is still running
+	 * @param encoders        The estimators for the motors which will be moved
+	 */
+	MoveMonitor( OpModeInterface opModeInterface, EncoderVelocityEstimator... encoders ) {
+		this.opModeInterface = opModeInterface;
+		this.encoders = encoders;
+		targets = new int[encoders.length];
+		travelShares = new double[encoders.length];
+		slowSinceNanos = new long[encoders.length];
+	}
+
+	/**
+	 * Sets the position a motor is moving to, which must be done for each motor before
+	 * {@link #begin(MoveExitPolicy, boolean, int, boolean)}.
+	 *
+	 * @param index  The index of the motor in the order given to the constructor
+	 * @param target The target position in counts
+	 */
+	void setTarget( int index, int target ) {
+		targets[index] = target;
+	}
+
+	/**
+	 * Gets the position a motor is moving to.
+	 *
+	 * @param index The index of the motor in the order given to the constructor
+	 * @return The target position in counts
+	 */
+	int getTarget( int index ) {
+		return targets[index];
+	}
+
+	/**
+	 * Starts watching a move.
+	 *
+	 * @param policy            The policy deciding when the move is finished
+	 * @param usesBusy          True if the motors are in RUN_TO_POSITION, so a motor is done when
+	 *                          it is no longer busy, or false if a motor is done once it is within
+	 *                          the position tolerance
+	 * @param positionTolerance How close a motor has to be to its target to be done when not using
+	 *                          RUN_TO_POSITION, and how stall detection judges a motor to be
+	 *                          nearly there
+	 * @param readsEncoders     True if something else in the move reads the estimators every loop,
+	 *                          such as traction control, so they have to be updated even when the
+	 *                          monitor itself does not need the positions
+	 */
+	void begin( MoveExitPolicy policy, boolean usesBusy, int positionTolerance, boolean readsEncoders ) {
+		this.policy = policy;
+		this.usesBusy = usesBusy;
+		this.positionTolerance = positionTolerance;
+		this.readsEncoders = readsEncoders;
+		startNanos = System.nanoTime( );
+		settledSinceNanos = 0;
+		outcome = null;
+		int maxTravel = 0;
+		for( int i = 0; i < encoders.length; i++ ) {
+			encoders[i].update( );
+			slowSinceNanos[i] = 0;
+			travelShares[i] = Math.abs( targets[i] - encoders[i].getPosition( ) );
+			maxTravel = Math.max( maxTravel, (int) travelShares[i] );
+		}
+		for( int i = 0; i < encoders.length; i++ )
+			travelShares[i] = maxTravel > 0 ? travelShares[i] / maxTravel : 0;
+	}
+
+	/**
+	 * Checks the motors and decides if the move is finished.
+	 *
+	 * @return True if the move is finished, in which case {@link #getOutcome()} says why
+	 */
+	boolean update( ) {
+		long now = System.nanoTime( );
+		if( !opModeInterface.opModeIsActive( ) )
+			return finish( MoveOutcome.INTERRUPTED );
+		if( policy.timeoutMillis > 0 && now - startNanos >= policy.timeoutMillis * NANOS_PER_MILLI )
+			return finish( MoveOutcome.TIMED_OUT );
+
+		boolean settleEnabled = policy.isSettleEnabled( );
+		boolean stallEnabled = policy.isStallDetectionEnabled( );
+		//RUN_TO_POSITION moves which only wait for the motors need no position reads
+		boolean readsPositions = !usesBusy || settleEnabled || stallEnabled || readsEncoders;
+
+		MoveExitPolicy.Completion completion = policy.completion != null ? policy.completion
+				: usesBusy ? MoveExitPolicy.Completion.ANY_MOTOR : MoveExitPolicy.Completion.ALL_MOTORS;
+		boolean anyDone = false;
+		boolean allDone = true;
+		boolean allSettled = true;
+		boolean stalled = false;
+		for( int i = 0; i < encoders.length; i++ ) {
+			if( readsPositions )
+				encoders[i].update( );
+			int error = Math.abs( targets[i] - encoders[i].getPosition( ) );
+			boolean done = usesBusy ? !encoders[i].getMotor( ).isBusy( ) : error <= positionTolerance;
+			anyDone |= done;
+			allDone &= done;
+			allSettled &= error <= policy.settleTolerance;
+
+			if( stallEnabled ) {
+				//A wheel creeping the last few counts into its target, or with only a small part of a
+				//curved move, is meant to be slow, so it only counts as stalled when it is well short
+				//of its target and slower than its share of the stall velocity
+				if( done || error <= STALL_ERROR_FACTOR * positionTolerance
+						|| Math.abs( encoders[i].getVelocity( ) ) >= policy.stallVelocity * travelShares[i] )
+					slowSinceNanos[i] = 0;
+				else if( slowSinceNanos[i] == 0 )
+					slowSinceNanos[i] = now;
+				else if( now - slowSinceNanos[i] >= policy.stallTimeMillis * NANOS_PER_MILLI )
+					stalled = true;
+			}
+		}
+
+		if( completion == MoveExitPolicy.Completion.ANY_MOTOR ? anyDone : allDone )
+			return finish( MoveOutcome.COMPLETED );
+		if( settleEnabled ) {
+			if( !allSettled )
+				settledSinceNanos = 0;
+			else if( settledSinceNanos == 0 )
+				settledSinceNanos = now;
+			else if( now - settledSinceNanos >= policy.settleTimeMillis * NANOS_PER_MILLI )
+				return finish( MoveOutcome.SETTLED );
+		}
+		if( stalled )
+			return finish( MoveOutcome.STALLED );
+		return false;
+	}
+
+	private boolean finish( MoveOutcome outcome ) {
+		this.outcome = outcome;
+		return true;
+	}
+
+	/**
+	 * Gets the position of a motor read by the last update, so the move does not have to read it
+	 * again. Only valid when not using RUN_TO_POSITION.
+	 *
+	 * @param index The index of the motor in the order given to the constructor
+	 * @return The position in counts
+	 */
+	int getPosition( int index ) {
+		return encoders[index].getPosition( );
+	}
+
+	/**
+	 * Gets why the last move finished.
+	 *
+	 * @return The outcome, or null if no move has finished
+	 */
+	MoveOutcome getOutcome( ) {
+		return outcome;
+	}
+}
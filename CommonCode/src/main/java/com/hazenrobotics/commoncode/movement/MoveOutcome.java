@@ -0,0 +1,38 @@
+package com.hazenrobotics.commoncode.movement;
+
+/**
+ * Why a measured move, a {@link MotionQueue}, a {@link PurePursuitFollower} or a
+ * {@link RamseteFollower} finished.
+ *
+ * @see MoveExitPolicy
+ */
+public enum MoveOutcome {
+	/**
+	 * The wheels reached their targets, as decided by the policy's
+	 * {@link MoveExitPolicy.Completion completion}.
+	 */
+	COMPLETED,
+	/**
+	 * Every wheel stayed within the settle tolerance of its target for the settle time, or a motion
+	 * queue or path follower stopped closing in on its end for the settle time.
+	 */
+	SETTLED,
+	/**
+	 * A wheel which had not reached its target stayed slower than the stall velocity for the stall
+	 * time, such as when the robot is pushing against a wall.
+	 */
+	STALLED,
+	/**
+	 * The move took longer than the timeout.
+	 */
+	TIMED_OUT,
+	/**
+	 * A trajectory's time ran out without the robot reaching the end tolerance of its end, such as
+	 * when it was blocked or fell behind.
+	 */
+	MISSED,
+	/**
+	 * The OpMode stopped before the move finished.
+	 */
+	INTERRUPTED
+}
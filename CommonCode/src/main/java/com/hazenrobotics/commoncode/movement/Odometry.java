@@ -0,0 +1,50 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+import com.hazenrobotics.commoncode.sensors.HeadingProvider;
+
+/**
+ * Continuously tracks the robot's position and heading on the field by integrating how much its
+ * wheels have moved. {@link #update()} should be called once every loop.
+ *
+ * @see TwoWheelOdometry
+ * @see MecanumOdometry
+ */
+public interface Odometry extends HeadingProvider {
+
+	/**
+	 * Reads the encoders and integrates the movement since the last update into the pose.
+	 */
+	void update( );
+
+	/**
+	 * Copies the current pose into the given pose, so no new object has to be made.
+	 *
+	 * @param result The pose which will be set to the current pose
+	 * @return The given pose
+	 */
+	Pose getPose( Pose result );
+
+	/**
+	 * Gets the current x position.
+	 *
+	 * @return The x position in inches
+	 */
+	double getX( );
+
+	/**
+	 * Gets the current y position.
+	 *
+	 * @return The y position in inches
+	 */
+	double getY( );
+
+	/**
+	 * Sets the current pose, such as the robot's starting position on the field.
+	 *
+	 * @param x       The x position in inches
+	 * @param y       The y position in inches
+	 * @param heading The heading in radians, counter-clockwise positive
+	 */
+	void setPose( double x, double y, double heading );
+}
@@ -0,0 +1,285 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.LoopTimer;
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+import com.hazenrobotics.commoncode.models.distances.Distance;
+import com.hazenrobotics.commoncode.models.poses.Pose;
+import com.hazenrobotics.commoncode.movement.paths.Path;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * Follows a {@link Path} by steering every loop towards a point which is a set distance further
+ * along the path than the robot (the lookahead point), using the live pose from {@link Odometry}.
+ * Since the robot never has to stop between the lines of a path, routes with many legs can be
+ * driven continuously.
+ * <p>
+ * Either call {@link #follow(Path)} to drive the whole path, or {@link #start(Path)} and then
+ * {@link #update()} every loop to follow it alongside other code. The path is finished once the
+ * robot is within the end tolerance of its end or has driven past it, or earlier as decided by the
+ * {@link #setExitPolicy(MoveExitPolicy) exit policy}.
+ *
+ * @see TwoWheelsPurePursuit
+ * @see MecanumPurePursuit
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public abstract class PurePursuitFollower {
+
+	protected static final DistanceUnit DISTANCE_UNIT = DistanceUnit.INCH;
+	protected static final double DEFAULT_LOOKAHEAD = 12;
+	protected static final double DEFAULT_END_TOLERANCE = 1;
+	protected static final double DEFAULT_SLOWDOWN_DISTANCE = 12;
+	//The smallest fraction of the speed used while slowing down, so the robot does not stall short of the end
+	protected static final double MIN_SLOWDOWN_SPEED = 0.25;
+	protected static final long DEFAULT_SETTLE_TIME_MILLIS = 500;
+	protected static final long NANOS_PER_MILLI = 1000000;
+
+	protected final OpModeInterface opModeInterface;
+	protected final LoopTimer loopTimer;
+	protected final Odometry odometry;
+
+	protected double lookahead = DEFAULT_LOOKAHEAD;
+	protected double endTolerance = DEFAULT_END_TOLERANCE;
+	protected double slowdownDistance = DEFAULT_SLOWDOWN_DISTANCE;
+	protected float speed;
+	protected MoveExitPolicy exitPolicy = new MoveExitPolicy( ).setSettle( 0, DEFAULT_SETTLE_TIME_MILLIS );
+
+	protected Path path = null;
+	//How far along the path the robot has made it, which only ever increases
+	protected double progress = 0;
+	protected boolean finished = true;
+	protected MoveOutcome outcome = null;
+	protected long startNanos = 0;
+	protected long settledSinceNanos = 0;
+	protected double settledDistance = 0;
+
+	protected final Pose pose = new Pose( );
+	protected final Pose lookaheadPose = new Pose( );
+
+	/**
+	 * Creates a follower which drives with the given speed.
+	 *
+	 * @param opModeInterface An interface used to idle while following a path
+	 * @param loopTimer       The timer which paces the loop while following a path, usually the
+	 *                        wheels' own
+	 * @param odometry        The odometry which gives the robot's live pose
+	 * @param speed           The percent of maximum speed which wheels will move at, should be
+	 *                        between 0f and 1f
+	 */
+	protected PurePursuitFollower( OpModeInterface opModeInterface, LoopTimer loopTimer, Odometry odometry, float speed ) {
+		this.opModeInterface = opModeInterface;
+		this.loopTimer = loopTimer;
+		this.odometry = odometry;
+		this.speed = Math.abs( speed );
+	}
+
+	/**
+	 * Changes how far ahead along the path the robot steers towards. Longer distances give smoother
+	 * but wider paths around corners. Defaults to 12 inches.
+	 *
+	 * @param lookahead The lookahead distance
+	 */
+	public void setLookahead( Distance lookahead ) {
+		this.lookahead = Math.max( lookahead.getValue( DISTANCE_UNIT ), DEFAULT_END_TOLERANCE );
+	}
+
+	/**
+	 * Changes how close to the end of the path the robot has to be to finish. Defaults to 1 inch.
+	 *
+	 * @param endTolerance The distance to the end which counts as having reached it
+	 */
+	public void setEndTolerance( Distance endTolerance ) {
+		this.endTolerance = Math.abs( endTolerance.getValue( DISTANCE_UNIT ) );
+	}
+
+	/**
+	 * Changes the distance from the end of the path at which the robot starts to slow down.
+	 * Defaults to 12 inches.
+	 *
+	 * @param slowdownDistance The distance from the end to start slowing down at
+	 */
+	public void setSlowdownDistance( Distance slowdownDistance ) {
+		this.slowdownDistance = Math.abs( slowdownDistance.getValue( DISTANCE_UNIT ) );
+	}
+
+	/**
+	 * Changes the speed paths are followed at.
+	 *
+	 * @param speed The percent of maximum speed which wheels will move at, should be between 0f and
+	 *              1f
+	 */
+	public void setSpeed( float speed ) {
+		this.speed = Math.abs( speed );
+	}
+
+	/**
+	 * Changes when the follower gives up on reaching the end of the path exactly. Only the timeout
+	 * and the settle time of the policy are used, since the follower measures the robot's pose
+	 * rather than counts: the follower has settled once the robot is near the end and has not closed
+	 * in on it by more than the end tolerance for the settle time. Defaults to settling after half a
+	 * second and timing out after 30 seconds.
+	 *
+	 * @param exitPolicy The policy to use for the following paths
+	 */
+	public void setExitPolicy( MoveExitPolicy exitPolicy ) {
+		this.exitPolicy = exitPolicy;
+	}
+
+	/**
+	 * Gets the policy which decides when the follower gives up on reaching the end exactly.
+	 *
+	 * @return The current exit policy
+	 */
+	public MoveExitPolicy getExitPolicy( ) {
+		return exitPolicy;
+	}
+
+	/**
+	 * Follows the whole path, returning once the robot reaches its end, the
+	 * {@link #setExitPolicy(MoveExitPolicy) exit policy} finishes it early, or the OpMode stops.
+	 *
+	 * @param path The path to follow
+	 * @return Why the path finished
+	 */
+	public MoveOutcome follow( Path path ) {
+		start( path );
+		loopTimer.start( );
+		while( !update( ) && opModeInterface.opModeIsActive( ) ) {
+			loopTimer.waitForNextLoop( opModeInterface );
+		}
+		stop( );
+		return outcome;
+	}
+
+	/**
+	 * Starts following a path from its beginning, without blocking. {@link #update()} must then be
+	 * called every loop.
+	 *
+	 * @param path The path to follow
+	 */
+	public void start( Path path ) {
+		this.path = path;
+		progress = 0;
+		finished = false;
+		outcome = null;
+		startNanos = System.nanoTime( );
+		settledSinceNanos = 0;
+	}
+
+	/**
+	 * Updates the odometry and steers the robot towards the lookahead point. Stops the wheels once
+	 * the end of the path has been reached, or once the {@link #setExitPolicy(MoveExitPolicy) exit
+	 * policy} finishes the path early.
+	 *
+	 * @return True if the end of the path has been reached (or no path was started), otherwise false
+	 */
+	public boolean update( ) {
+		if( finished )
+			return true;
+		long now = System.nanoTime( );
+		if( exitPolicy.getTimeout( ) > 0 && now - startNanos >= exitPolicy.getTimeout( ) * NANOS_PER_MILLI )
+			return finish( MoveOutcome.TIMED_OUT );
+
+		odometry.update( );
+		odometry.getPose( pose );
+
+		//Only searches the path near the robot's progress so it can't jump ahead where the path crosses itself
+		progress = Math.max( progress, path.findClosestDistance( pose.x, pose.y, path.getSegment( progress ), progress + lookahead ) );
+
+		int last = path.getPointCount( ) - 1;
+		double endX = path.getX( last );
+		double endY = path.getY( last );
+		double distanceToEnd = Math.hypot( endX - pose.x, endY - pose.y );
+		if( path.getLength( ) - progress <= lookahead ) {
+			//Driving past the end finishes too, since a robot which can't reverse would circle back for it
+			double overshoot = (pose.x - endX) * (endX - path.getX( last - 1 )) + (pose.y - endY) * (endY - path.getY( last - 1 ));
+			if( distanceToEnd <= endTolerance || overshoot > 0 )
+				return finish( MoveOutcome.COMPLETED );
+			//Stops waiting for the last of the distance once it has stopped closing in for the settle time
+			if( settledSinceNanos == 0 || distanceToEnd < settledDistance - endTolerance ) {
+				settledSinceNanos = now;
+				settledDistance = distanceToEnd;
+			} else if( exitPolicy.isSettleEnabled( ) && now - settledSinceNanos >= exitPolicy.settleTimeMillis * NANOS_PER_MILLI )
+				return finish( MoveOutcome.SETTLED );
+		}
+
+		path.getPose( progress + lookahead, lookaheadPose );
+
+		//The lookahead point relative to the robot
+		double deltaX = lookaheadPose.x - pose.x;
+		double deltaY = lookaheadPose.y - pose.y;
+		double cos = Math.cos( pose.heading );
+		double sin = Math.sin( pose.heading );
+		double forward = deltaX * cos + deltaY * sin;
+		double left = -deltaX * sin + deltaY * cos;
+
+		double slowdown = slowdownDistance > 0 ? Math.max( MIN_SLOWDOWN_SPEED, Math.min( 1, distanceToEnd / slowdownDistance ) ) : 1;
+		drive( forward, left, (float) (speed * slowdown) );
+		return false;
+	}
+
+	/**
+	 * Checks if the follower has reached the end of its path.
+	 *
+	 * @return True if the end has been reached or no path was started
+	 */
+	public boolean isFinished( ) {
+		return finished;
+	}
+
+	/**
+	 * Gets how far along the current path the robot has made it.
+	 *
+	 * @return The distance along the path in inches
+	 */
+	public double getProgress( ) {
+		return progress;
+	}
+
+	/**
+	 * Gets why the last path finished.
+	 *
+	 * @return The outcome, which is {@link MoveOutcome#INTERRUPTED} if the path was stopped early,
+	 * or null if it is still being followed
+	 */
+	public MoveOutcome getOutcome( ) {
+		return outcome;
+	}
+
+	/**
+	 * Stops following the path and stops the wheels.
+	 */
+	public void stop( ) {
+		if( !finished )
+			outcome = MoveOutcome.INTERRUPTED;
+		finished = true;
+		stopWheels( );
+	}
+
+	/**
+	 * Stops the wheels and finishes the path for the given reason.
+	 *
+	 * @param outcome Why the path finished
+	 * @return True, so it can be returned from {@link #update()}
+	 */
+	protected boolean finish( MoveOutcome outcome ) {
+		this.outcome = outcome;
+		finished = true;
+		stopWheels( );
+		return true;
+	}
+
+	/**
+	 * Drives the wheels towards the lookahead point.
+	 *
+	 * @param forward The distance in inches the lookahead point is in front of the robot
+	 * @param left    The distance in inches the lookahead point is to the left of the robot
+	 * @param speed   The speed to drive at, between 0f and 1f
+	 */
+	protected abstract void drive( double forward, double left, float speed );
+
+	/**
+	 * Stops the wheels being driven.
+	 */
+	protected abstract void stopWheels( );
+}
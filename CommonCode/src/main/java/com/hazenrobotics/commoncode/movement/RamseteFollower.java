@@ -0,0 +1,253 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.RamseteController;
+import com.hazenrobotics.commoncode.control.SimpleMotorFeedforward;
+import com.hazenrobotics.commoncode.models.distances.Distance;
+import com.hazenrobotics.commoncode.models.poses.Pose;
+import com.hazenrobotics.commoncode.movement.paths.Trajectory;
+import com.hazenrobotics.commoncode.movement.paths.TrajectoryState;
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * Drives {@link TwoEncoderWheels} along a {@link Trajectory} in time, using a {@link RamseteController}
+ * to correct the difference between the trajectory and the live pose from {@link Odometry}. The
+ * velocity of each wheel is turned into power with a {@link SimpleMotorFeedforward} model, so the
+ * curves are smooth and fast without having to stop and turn between them. The distance between the
+ * wheels is read from the wheels' {@link TwoEncoderWheels.EncoderConfiguration encoder configuration},
+ * so it always agrees with the odometry.
+ * <p>
+ * Either call {@link #follow(Trajectory)} to drive the whole trajectory, or
+ * {@link #start(Trajectory)} and then {@link #update()} every loop to follow it alongside other
+ * code. The wheels run without their encoders while following, since the feedforward model gives
+ * open-loop power, and are put back in their previous mode once it stops.
+ * <p>
+ * The trajectory is completed once its duration has passed and the robot is within the end
+ * tolerance of its end. A robot which was blocked or fell behind is given the
+ * {@link #setExitPolicy(MoveExitPolicy) exit policy's} settle time to coast in, and otherwise finishes
+ * as {@link MoveOutcome#MISSED missed}.
+ *
+ * @see RamseteController
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class RamseteFollower {
+
+	protected static final DistanceUnit DISTANCE_UNIT = DistanceUnit.INCH;
+	protected static final double NANOS_PER_SECOND = 1e9;
+	protected static final double DEFAULT_END_TOLERANCE = 1;
+	protected static final long DEFAULT_SETTLE_TIME_MILLIS = 500;
+	protected static final long NANOS_PER_MILLI = 1000000;
+
+	protected final TwoEncoderWheels wheels;
+	protected final Odometry odometry;
+	protected final RamseteController controller;
+	protected SimpleMotorFeedforward feedforward;
+
+	protected double endTolerance = DEFAULT_END_TOLERANCE;
+	protected MoveExitPolicy exitPolicy = new MoveExitPolicy( ).setSettle( 0, DEFAULT_SETTLE_TIME_MILLIS );
+
+	protected Trajectory trajectory = null;
+	protected long startNanos = 0;
+	protected boolean finished = true;
+	protected MoveOutcome outcome = null;
+	//The mode the wheels were in before following, to put them back in once it stops
+	protected DcMotor.RunMode previousMode = null;
+
+	protected final Pose pose = new Pose( );
+	protected final TrajectoryState reference = new TrajectoryState( );
+	protected final TwoWheels.Coefficients coefficients = new TwoWheels.Coefficients( );
+
+	/**
+	 * Creates a follower with the commonly used controller gains.
+	 *
+	 * @param wheels      The wheels which will drive
+	 * @param odometry    The odometry which gives the robot's live pose
+	 * @param feedforward The model of the power needed for a wheel velocity (in inches per second)
+	 *                    and acceleration (in inches per second squared)
+	 */
+	public RamseteFollower( TwoEncoderWheels wheels, Odometry odometry, SimpleMotorFeedforward feedforward ) {
+		this( wheels, odometry, feedforward, new RamseteController( ) );
+	}
+
+	/**
+	 * Creates a follower with the given controller.
+	 *
+	 * @param wheels      The wheels which will drive
+	 * @param odometry    The odometry which gives the robot's live pose
+	 * @param feedforward The model of the power needed for a wheel velocity (in inches per second)
+	 *                    and acceleration (in inches per second squared)
+	 * @param controller  The controller which corrects errors from the trajectory
+	 */
+	public RamseteFollower( TwoEncoderWheels wheels, Odometry odometry, SimpleMotorFeedforward feedforward, RamseteController controller ) {
+		this.wheels = wheels;
+		this.odometry = odometry;
+		this.feedforward = feedforward;
+		this.controller = controller;
+	}
+
+	/**
+	 * Changes the model used to turn wheel velocities into power.
+	 *
+	 * @param feedforward The new feedforward model
+	 */
+	public void setFeedforward( SimpleMotorFeedforward feedforward ) {
+		this.feedforward = feedforward;
+	}
+
+	/**
+	 * Changes how close to the end of the trajectory the robot has to be for it to be completed.
+	 * Defaults to 1 inch.
+	 *
+	 * @param endTolerance The distance to the end which counts as having reached it
+	 */
+	public void setEndTolerance( Distance endTolerance ) {
+		this.endTolerance = Math.abs( endTolerance.getValue( DISTANCE_UNIT ) );
+	}
+
+	/**
+	 * Changes when the follower gives up on the trajectory. Only the timeout and the settle time of
+	 * the policy are used: the timeout is measured from the start of the trajectory, and the settle
+	 * time is how long after the trajectory's duration the robot has to reach the end tolerance.
+	 * Defaults to settling for half a second and timing out after 30 seconds.
+	 *
+	 * @param exitPolicy The policy to use for the following trajectories
+	 */
+	public void setExitPolicy( MoveExitPolicy exitPolicy ) {
+		this.exitPolicy = exitPolicy;
+	}
+
+	/**
+	 * Gets the policy which decides when the follower gives up on the trajectory.
+	 *
+	 * @return The current exit policy
+	 */
+	public MoveExitPolicy getExitPolicy( ) {
+		return exitPolicy;
+	}
+
+	/**
+	 * Follows the whole trajectory, returning once it has finished or the OpMode stops.
+	 *
+	 * @param trajectory The trajectory to follow
+	 * @return Why the trajectory finished
+	 */
+	public MoveOutcome follow( Trajectory trajectory ) {
+		start( trajectory );
+		wheels.loopTimer.start( );
+		while( !update( ) && wheels.opModeInterface.opModeIsActive( ) ) {
+			wheels.loopTimer.waitForNextLoop( wheels.opModeInterface );
+		}
+		stop( );
+		return outcome;
+	}
+
+	/**
+	 * Starts following a trajectory from its beginning, without blocking. {@link #update()} must
+	 * then be called every loop.
+	 *
+	 * @param trajectory The trajectory to follow
+	 */
+	public void start( Trajectory trajectory ) {
+		if( previousMode == null ) {
+			previousMode = wheels.getMode( );
+			wheels.setMode( DcMotor.RunMode.RUN_WITHOUT_ENCODER );
+		}
+		this.trajectory = trajectory;
+		startNanos = System.nanoTime( );
+		finished = false;
+		outcome = null;
+	}
+
+	/**
+	 * Updates the odometry and sets the wheel powers to track the trajectory at the current time.
+	 * Stops the wheels once the robot has reached the end after the trajectory's duration has
+	 * passed, or once the {@link #setExitPolicy(MoveExitPolicy) exit policy} gives up on it.
+	 *
+	 * @return True if the trajectory has finished (or none was started), otherwise false
+	 */
+	public boolean update( ) {
+		if( finished )
+			return true;
+		long now = System.nanoTime( );
+		long elapsedNanos = now - startNanos;
+		if( exitPolicy.getTimeout( ) > 0 && elapsedNanos >= exitPolicy.getTimeout( ) * NANOS_PER_MILLI )
+			return finish( MoveOutcome.TIMED_OUT );
+
+		odometry.update( );
+		odometry.getPose( pose );
+
+		double time = elapsedNanos / NANOS_PER_SECOND;
+		if( time > trajectory.getDuration( ) ) {
+			trajectory.sample( trajectory.getDuration( ), reference );
+			if( Math.hypot( reference.pose.x - pose.x, reference.pose.y - pose.y ) <= endTolerance )
+				return finish( MoveOutcome.COMPLETED );
+			//Once the trajectory is over the controller has nothing left to drive towards, so the robot only gets time to coast in
+			double overtime = time - trajectory.getDuration( );
+			if( !exitPolicy.isSettleEnabled( ) || overtime * NANOS_PER_SECOND >= exitPolicy.settleTimeMillis * NANOS_PER_MILLI )
+				return finish( MoveOutcome.MISSED );
+			wheels.stop( );
+			return false;
+		}
+
+		trajectory.sample( time, reference );
+		controller.calculate( pose, reference );
+
+		double trackWidth = wheels.encoderConfig.getRobotDiameterValue( );
+		double velocity = controller.getVelocity( );
+		double turnVelocity = controller.getAngularVelocity( ) * trackWidth / 2;
+		//Each side's acceleration is estimated from the trajectory's, scaled by how much faster that side goes around the curve
+		double turnRatio = reference.curvature * trackWidth / 2;
+		coefficients.left = (float) feedforward.calculate( velocity - turnVelocity, reference.acceleration * (1 - turnRatio) );
+		coefficients.right = (float) feedforward.calculate( velocity + turnVelocity, reference.acceleration * (1 + turnRatio) );
+		wheels.setPower( coefficients, 1f );
+		return false;
+	}
+
+	/**
+	 * Checks if the follower has finished its trajectory.
+	 *
+	 * @return True if the trajectory has finished or none was started
+	 */
+	public boolean isFinished( ) {
+		return finished;
+	}
+
+	/**
+	 * Gets why the last trajectory finished.
+	 *
+	 * @return The outcome, which is {@link MoveOutcome#INTERRUPTED} if the trajectory was stopped
+	 * early, or null if it is still being followed
+	 */
+	public MoveOutcome getOutcome( ) {
+		return outcome;
+	}
+
+	/**
+	 * Stops following the trajectory, stops the wheels and puts them back in the mode they were in
+	 * before it started.
+	 */
+	public void stop( ) {
+		if( !finished )
+			outcome = MoveOutcome.INTERRUPTED;
+		finish( outcome );
+	}
+
+	/**
+	 * Stops the wheels, puts them back in their previous mode and finishes the trajectory for the
+	 * given reason.
+	 *
+	 * @param outcome Why the trajectory finished
+	 * @return True, so it can be returned from {@link #update()}
+	 */
+	protected boolean finish( MoveOutcome outcome ) {
+		this.outcome = outcome;
+		finished = true;
+		wheels.stop( );
+		if( previousMode != null ) {
+			wheels.setMode( previousMode );
+			previousMode = null;
+		}
+		return true;
+	}
+}
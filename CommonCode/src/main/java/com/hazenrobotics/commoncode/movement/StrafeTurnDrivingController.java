@@ -1,10 +1,18 @@
 package com.hazenrobotics.commoncode.movement;
 
+import com.hazenrobotics.commoncode.control.FastTrig;
+import com.hazenrobotics.commoncode.control.ResponseCurve;
+import com.hazenrobotics.commoncode.control.SlewRateLimiter;
+import com.hazenrobotics.commoncode.sensors.HeadingProvider;
 import com.qualcomm.robotcore.hardware.Gamepad;
 
 /**
  * A Driving Controller for Mecanum Wheels where the left stick controls the the forward-back and
  * left-right strafing movement, and the x-axis on the right stick controls turning.
+ * <p>
+ * By default the left stick moves the robot relative to the way it is facing. With
+ * {@link #enableFieldCentric(HeadingProvider)} it instead moves the robot relative to the field, so
+ * pushing up always drives away from the driver no matter which way the robot is turned.
  *
  * @see MecanumWheels
  */
@@ -14,6 +22,20 @@ public class StrafeTurnDrivingController implements DrivingController {
 	protected Gamepad controller;
 	protected MecanumWheels wheels;
 	protected float speed;
+	protected ResponseCurve translationCurve = ResponseCurve.LINEAR;
+	protected ResponseCurve turnCurve = ResponseCurve.LINEAR;
+	//Reused every update so driving does not make new objects each loop
+	protected final MecanumWheels.Coefficients wheelCoefficients = new MecanumWheels.Coefficients( );
+
+	//Gives the heading used to drive field-centric, or null to drive relative to the robot
+	protected HeadingProvider headingProvider = null;
+	//The heading which counts as facing away from the driver
+	protected double fieldHeadingOffset = 0;
+
+	//Limit how quickly each axis of motion can change, or null for no limit
+	protected SlewRateLimiter forwardLimiter = null;
+	protected SlewRateLimiter strafeLimiter = null;
+	protected SlewRateLimiter turnLimiter = null;
 
 	/**
 	 * Create a driving controller with the specified wheels and controller input
@@ -49,30 +71,137 @@ public class StrafeTurnDrivingController implements DrivingController {
 		this.speed = maxSpeed;
 	}
 
+	/**
+	 * Changes how the sticks map to motion, such as to add a deadband or finer control at low
+	 * speeds. Both default to {@link ResponseCurve#LINEAR}.
+	 *
+	 * @param translationCurve The curve applied to how far the left stick is pushed, keeping the
+	 *                         direction it is pushed in
+	 * @param turnCurve        The curve applied to the right stick's x-axis
+	 */
+	public void setResponseCurves( ResponseCurve translationCurve, ResponseCurve turnCurve ) {
+		this.translationCurve = translationCurve;
+		this.turnCurve = turnCurve;
+	}
+
+	/**
+	 * Makes the left stick move the robot relative to the field instead of the robot. The heading is
+	 * read once per update, and the robot's current heading is treated as facing away from the
+	 * driver until {@link #resetFieldHeading()} is called.
+	 *
+	 * @param headingProvider Gives the robot's heading, such as a gyro sensor or odometry
+	 */
+	public void enableFieldCentric( HeadingProvider headingProvider ) {
+		this.headingProvider = headingProvider;
+		resetFieldHeading( );
+	}
+
+	/**
+	 * Makes the left stick move the robot relative to the way it is facing again.
+	 */
+	public void disableFieldCentric( ) {
+		headingProvider = null;
+	}
+
+	/**
+	 * Checks if the left stick moves the robot relative to the field.
+	 *
+	 * @return True if driving field-centric, otherwise false
+	 */
+	public boolean isFieldCentric( ) {
+		return headingProvider != null;
+	}
+
+	/**
+	 * Makes the way the robot is currently facing count as away from the driver, such as after
+	 * the heading has drifted or the robot was placed facing a different way.
+	 */
+	public void resetFieldHeading( ) {
+		if( headingProvider != null )
+			fieldHeadingOffset = headingProvider.getHeadingRadians( );
+	}
+
+	/**
+	 * Limits how quickly the robot can speed up or slow down along each axis, so the wheels do not
+	 * slip or brown out the robot when the sticks are moved suddenly.
+	 *
+	 * @param forwardRate The largest change in forwards power per second, where going from stopped
+	 *                    to full power is a change of 1
+	 * @param strafeRate  The largest change in strafing power per second
+	 * @param turnRate    The largest change in turning power per second
+	 */
+	public void setAccelerationLimits( float forwardRate, float strafeRate, float turnRate ) {
+		setAccelerationLimits( new SlewRateLimiter( forwardRate ), new SlewRateLimiter( strafeRate ), new SlewRateLimiter( turnRate ) );
+	}
+
+	/**
+	 * Limits how quickly the robot can speed up or slow down along each axis using the given
+	 * limiters, such as ones which allow slowing down faster than speeding up. The limits are
+	 * applied relative to the robot, even when driving field-centric, since that is what the wheels
+	 * feel.
+	 *
+	 * @param forwardLimiter The limiter for forwards power, or null for no limit
+	 * @param strafeLimiter  The limiter for strafing power, or null for no limit
+	 * @param turnLimiter    The limiter for turning power, or null for no limit
+	 */
+	public void setAccelerationLimits( SlewRateLimiter forwardLimiter, SlewRateLimiter strafeLimiter, SlewRateLimiter turnLimiter ) {
+		this.forwardLimiter = forwardLimiter;
+		this.strafeLimiter = strafeLimiter;
+		this.turnLimiter = turnLimiter;
+	}
+
+	/**
+	 * Lets the robot's motion follow the sticks straight away again.
+	 */
+	public void disableAccelerationLimit( ) {
+		setAccelerationLimits( null, null, null );
+	}
+
 	@Override
 	public void updateMotion( ) {
-		float turn_x = controller.right_stick_x; //Stick that determines how far robot is turning
+		float turn_x = turnCurve.apply( controller.right_stick_x ); //Stick that determines how far robot is turning
 		float x = controller.left_stick_x;
 		float y = -controller.left_stick_y; //Up on the stick is negative, so the value is negated to correct for this
 
-		//Used to determine the greatest possible value of y +/- x to scale them
-		float magnitude = Math.abs( y ) + Math.abs( x ) + Math.abs( turn_x );
-		//Used to prevent setting motor to power over 1
-		float scale = Math.max( 1, magnitude );
+		//Shapes how far the stick is pushed rather than each axis, so diagonals are not pulled towards the axes
+		//Sticks can reach past 1 in the corners, which is left unscaled as the curve ends at 1
+		float stickMagnitude = Math.min( (float) Math.sqrt( x * x + y * y ), 1f );
+		if( stickMagnitude > 0 ) {
+			float shaping = translationCurve.apply( stickMagnitude ) / stickMagnitude;
+			x *= shaping;
+			y *= shaping;
+		}
 
-		MecanumWheels.Coefficients wheelCoefficients = new MecanumWheels.Coefficients( );
+		if( headingProvider != null ) {
+			//Rotates the stick from the field to the robot, reading the heading only once per update
+			double heading = headingProvider.getHeadingRadians( ) - fieldHeadingOffset;
+			float cos = FastTrig.cos( heading );
+			float sin = FastTrig.sin( heading );
+			float fieldX = x;
+			x = fieldX * cos + y * sin;
+			y = y * cos - fieldX * sin;
+		}
 
-		//Algorithm for calculating the power that is set to the wheels
-		wheelCoefficients.leftFront = (y + x + turn_x) / scale;
-		wheelCoefficients.rightFront = (y - x - turn_x) / scale;
-		wheelCoefficients.leftBack = (y - x + turn_x) / scale;
-		wheelCoefficients.rightBack = (y + x - turn_x) / scale;
+		if( forwardLimiter != null )
+			y = forwardLimiter.calculate( y );
+		if( strafeLimiter != null )
+			x = strafeLimiter.calculate( x );
+		if( turnLimiter != null )
+			turn_x = turnLimiter.calculate( turn_x );
 
+		//Forwards is up on the left stick, right is right on the left stick and clockwise is right on the right stick
+		wheels.calculateMotion( y, x, turn_x, wheelCoefficients );
 		wheels.setPower( wheelCoefficients, speed );
 	}
 
 	@Override
 	public void stopMotion( ) {
 		wheels.stop( );
+		if( forwardLimiter != null )
+			forwardLimiter.reset( 0f );
+		if( strafeLimiter != null )
+			strafeLimiter.reset( 0f );
+		if( turnLimiter != null )
+			turnLimiter.reset( 0f );
 	}
 }
@@ -1,5 +1,7 @@
 package com.hazenrobotics.commoncode.movement;
 
+import com.hazenrobotics.commoncode.control.ResponseCurve;
+import com.hazenrobotics.commoncode.control.SlewRateLimiter;
 import com.qualcomm.robotcore.hardware.Gamepad;
 
 /**
@@ -14,6 +16,13 @@ public class TankControlsDrivingController implements DrivingController {
 	protected Gamepad controller;
 	protected TwoWheels wheels;
 	protected float speed;
+	protected ResponseCurve responseCurve = ResponseCurve.LINEAR;
+	//Reused every update so driving does not make new objects each loop
+	protected final TwoWheels.Coefficients wheelCoefficients = new TwoWheels.Coefficients( );
+
+	//Limit how quickly each side's power can change, or null for no limit
+	protected SlewRateLimiter leftLimiter = null;
+	protected SlewRateLimiter rightLimiter = null;
 
 	/**
 	 * Create a driving controller with the specified wheels and controller input
@@ -49,14 +58,57 @@ public class TankControlsDrivingController implements DrivingController {
 		this.speed = maxSpeed;
 	}
 
+	/**
+	 * Changes how the sticks map to wheel power, such as to add a deadband or finer control at low
+	 * speeds. Defaults to {@link ResponseCurve#LINEAR}.
+	 *
+	 * @param responseCurve The curve applied to both sticks
+	 */
+	public void setResponseCurve( ResponseCurve responseCurve ) {
+		this.responseCurve = responseCurve;
+	}
+
+	/**
+	 * Limits how quickly each side's power can change, so the wheels do not slip or brown out the
+	 * robot when the sticks are moved suddenly.
+	 *
+	 * @param rate The largest change in power per second, where going from stopped to full power
+	 *             is a change of 1
+	 */
+	public void setAccelerationLimit( float rate ) {
+		setAccelerationLimits( new SlewRateLimiter( rate ), new SlewRateLimiter( rate ) );
+	}
+
+	/**
+	 * Limits how quickly each side's power can change using the given limiters, such as ones which
+	 * allow slowing down faster than speeding up.
+	 *
+	 * @param leftLimiter  The limiter for the left wheel's power, or null for no limit
+	 * @param rightLimiter The limiter for the right wheel's power, or null for no limit
+	 */
+	public void setAccelerationLimits( SlewRateLimiter leftLimiter, SlewRateLimiter rightLimiter ) {
+		this.leftLimiter = leftLimiter;
+		this.rightLimiter = rightLimiter;
+	}
+
+	/**
+	 * Lets the wheel powers follow the sticks straight away again.
+	 */
+	public void disableAccelerationLimit( ) {
+		setAccelerationLimits( null, null );
+	}
+
 	@Override
 	public void updateMotion( ) {
-		TwoWheels.Coefficients wheelCoefficients = new TwoWheels.Coefficients( );
-
 		//Left and right sticks control wheel power
 		//Up on the stick is negative, so the value is negated to correct for this
-		wheelCoefficients.left = -controller.left_stick_y;
-		wheelCoefficients.right = -controller.right_stick_y;
+		wheelCoefficients.left = responseCurve.apply( -controller.left_stick_y );
+		wheelCoefficients.right = responseCurve.apply( -controller.right_stick_y );
+
+		if( leftLimiter != null )
+			wheelCoefficients.left = leftLimiter.calculate( wheelCoefficients.left );
+		if( rightLimiter != null )
+			wheelCoefficients.right = rightLimiter.calculate( wheelCoefficients.right );
 
 		wheels.setPower( wheelCoefficients, speed );
 	}
@@ -64,5 +116,9 @@ public class TankControlsDrivingController implements DrivingController {
 	@Override
 	public void stopMotion( ) {
 		wheels.stop( );
+		if( leftLimiter != null )
+			leftLimiter.reset( 0f );
+		if( rightLimiter != null )
+			rightLimiter.reset( 0f );
 	}
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.control.ControlExecutor;
+import com.hazenrobotics.commoncode.control.SingleWriterSlot;
+import com.hazenrobotics.commoncode.models.poses.Pose;
+
+/**
+ * Drives mecanum wheels from a {@link ControlExecutor}'s thread, so the wheels are updated at a
+ * steady rate no matter how long the OpMode's own loop takes. The OpMode thread sets the motion with
+ * {@link #drive(float, float, float, float)} and reads the pose with {@link #getPose(Pose)}, which
+ * never block.
+ * <p>
+ * While the executor is running, the wheels and odometry must only be used through this class, since
+ * they are being used from the executor's thread. The wheels are stopped on that thread when the
+ * executor stops or an update fails.
+ * <pre>
+ * ThreadedMecanumDrive drive = new ThreadedMecanumDrive( wheels, odometry );
+ * ControlExecutor executor = new ControlExecutor( drive, 10 );
+ * executor.start( );
+ * while( opModeIsActive( ) )
+ *     drive.drive( -gamepad1.left_stick_y, gamepad1.left_stick_x, gamepad1.right_stick_x, 1f );
+ * executor.stop( );
+ * </pre>
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class ThreadedMecanumDrive implements ControlExecutor.Task {
+
+	protected static final int FORWARD = 0;
+	protected static final int RIGHT = 1;
+	protected static final int CLOCKWISE = 2;
+	protected static final int SPEED = 3;
+
+	protected static final int X = 0;
+	protected static final int Y = 1;
+	protected static final int HEADING = 2;
+
+	protected final MecanumWheels wheels;
+	protected final Odometry odometry;
+
+	//Written by the OpMode thread and read by the executor's
+	protected final SingleWriterSlot command = new SingleWriterSlot( 4 );
+	//Written by the executor's thread and read by the OpMode thread
+	protected final SingleWriterSlot state = new SingleWriterSlot( 3 );
+
+	//Only used on the executor's thread
+	protected final double[] commandValues = new double[4];
+	protected final MecanumWheels.Coefficients coefficients = new MecanumWheels.Coefficients( );
+	//Only used on the OpMode thread
+	protected final double[] stateValues = new double[3];
+
+	/**
+	 * Creates a drive for the given wheels, without tracking the pose.
+	 *
+	 * @param wheels The wheels to drive
+	 */
+	public ThreadedMecanumDrive( MecanumWheels wheels ) {
+		this( wheels, null );
+	}
+
+	/**
+	 * Creates a drive for the given wheels, which also updates the given odometry every loop.
+	 *
+	 * @param wheels   The wheels to drive
+	 * @param odometry The odometry to update, or null to not track the pose
+	 */
+	public ThreadedMecanumDrive( MecanumWheels wheels, Odometry odometry ) {
+		this.wheels = wheels;
+		this.odometry = odometry;
+	}
+
+	/**
+	 * Sets how the wheels should move, which they will start doing on the executor's next loop.
+	 * Should only be called from one thread.
+	 *
+	 * @param forward   How much to move forwards, between -1f and 1f
+	 * @param right     How much to strafe right, between -1f and 1f
+	 * @param clockwise How much to turn clockwise, between -1f and 1f
+	 * @param speed     The speed at which the wheels will move
+	 */
+	public void drive( float forward, float right, float clockwise, float speed ) {
+		command.beginWrite( );
+		command.set( FORWARD, forward );
+		command.set( RIGHT, right );
+		command.set( CLOCKWISE, clockwise );
+		command.set( SPEED, speed );
+		command.endWrite( );
+	}
+
+	/**
+	 * Stops the wheels on the executor's next loop. Should only be called from the same thread as
+	 * {@link #drive(float, float, float, float)}.
+	 */
+	public void stop( ) {
+		drive( 0f, 0f, 0f, 0f );
+	}
+
+	@Override
+	public void update( double dt ) {
+		if( odometry != null ) {
+			odometry.update( );
+			state.beginWrite( );
+			state.set( X, odometry.getX( ) );
+			state.set( Y, odometry.getY( ) );
+			state.set( HEADING, odometry.getHeadingRadians( ) );
+			state.endWrite( );
+		}
+
+		command.read( commandValues );
+		wheels.calculateMotion( (float) commandValues[FORWARD], (float) commandValues[RIGHT],
+				(float) commandValues[CLOCKWISE], coefficients );
+		wheels.setPower( coefficients, (float) commandValues[SPEED] );
+	}
+
+	@Override
+	public void onStop( ) {
+		wheels.stop( );
+	}
+
+	/**
+	 * Copies the pose from the executor's last loop into the given pose. Should only be called from
+	 * one thread.
+	 *
+	 * @param result The pose which will be set
+	 * @return The given pose, which is all zeros if no odometry is being updated
+	 */
+	public Pose getPose( Pose result ) {
+		state.read( stateValues );
+		return result.set( stateValues[X], stateValues[Y], stateValues[HEADING] );
+	}
+
+	/**
+	 * Gets the number of poses published by the executor, such as to check if it is still running.
+	 *
+	 * @return The number of poses
+	 */
+	public long getPoseVersion( ) {
+		return state.getVersion( );
+	}
+}
@@ -0,0 +1,230 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.sensors.EncoderVelocityEstimator;
+import com.hazenrobotics.commoncode.sensors.HeadingProvider;
+
+/**
+ * Detects when a mecanum wheel is slipping and backs off its power until it grips again, so the
+ * robot can accelerate harder without its encoders losing track of where it is.
+ * <p>
+ * A mecanum drivetrain only moves in three ways (forwards, sideways and turning) but has four
+ * wheels, so the wheel velocities always have to satisfy
+ * {@code leftFront + rightFront = leftBack + rightBack}. A wheel spinning faster than the ground
+ * breaks this. With a {@link HeadingProvider} such as a gyro, the turning of each diagonal pair of
+ * wheels can also be checked against the real rotation, which tells which pair is slipping. A wheel
+ * is only taken to be slipping if it is spinning too fast in the direction it is being driven,
+ * since that is what a wheel losing grip does.
+ * <p>
+ * Enable it with {@link MecanumEncoderWheels#enableTractionControl(HeadingProvider)}, which then
+ * runs it on every power written to the wheels, which blocking moves do every loop. It only acts
+ * while something keeps the wheels' encoders updated, such as blocking moves or
+ * {@link MecanumOdometry}; otherwise every wheel gets its full power.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TractionControl {
+
+	public static final int LEFT_FRONT = 0;
+	public static final int LEFT_BACK = 1;
+	public static final int RIGHT_FRONT = 2;
+	public static final int RIGHT_BACK = 3;
+
+	protected static final double DEFAULT_SLIP_THRESHOLD = 6;
+	protected static final double DEFAULT_BACKOFF_RATE = 4;
+	protected static final double DEFAULT_RECOVERY_RATE = 2;
+	protected static final double DEFAULT_MIN_FACTOR = 0.3;
+	protected static final double NANOS_PER_SECOND = 1e9;
+	//Updates further apart than this are not used, and encoders not read for this long are not trusted, since the rates would be stale
+	protected static final double MAX_DT = 0.25;
+
+	protected final MecanumEncoderWheels wheels;
+	protected final HeadingProvider headingProvider;
+
+	protected double slipThreshold = DEFAULT_SLIP_THRESHOLD;
+	protected double backoffRate = DEFAULT_BACKOFF_RATE;
+	protected double recoveryRate = DEFAULT_RECOVERY_RATE;
+	protected double minFactor = DEFAULT_MIN_FACTOR;
+
+	//How much of each wheel's power is let through, in the order of the constants above
+	protected final double[] factors = { 1, 1, 1, 1 };
+	//How much faster than the others each wheel is spinning in its driven direction, in inches per second
+	protected final double[] slip = new double[4];
+	protected final boolean[] slipping = new boolean[4];
+
+	protected long lastUpdateNanos = 0;
+	protected double lastHeading;
+
+	/**
+	 * Creates traction control for the given wheels.
+	 *
+	 * @param wheels          The wheels whose powers will be limited
+	 * @param headingProvider The source of the robot's real rotation, such as a gyro sensor, or null
+	 *                        to only use the wheels, which can't tell which of two wheels slipped
+	 */
+	public TractionControl( MecanumEncoderWheels wheels, HeadingProvider headingProvider ) {
+		this.wheels = wheels;
+		this.headingProvider = headingProvider;
+	}
+
+	/**
+	 * Changes how much faster than the others a wheel has to spin to be slipping. Defaults to 6
+	 * inches per second.
+	 *
+	 * @param slipThreshold The speed difference in inches per second
+	 */
+	public void setSlipThreshold( double slipThreshold ) {
+		this.slipThreshold = Math.abs( slipThreshold );
+	}
+
+	/**
+	 * Changes how quickly a slipping wheel's power is backed off and given back once it grips.
+	 * Defaults to backing off at 4 and recovering at 2 per second, to no less than 0.3 of the power.
+	 *
+	 * @param backoffRate  The fraction of power taken away per second while slipping
+	 * @param recoveryRate The fraction of power given back per second once gripping
+	 * @param minFactor    The smallest fraction of power a wheel can be backed off to
+	 */
+	public void setBackoff( double backoffRate, double recoveryRate, double minFactor ) {
+		this.backoffRate = Math.abs( backoffRate );
+		this.recoveryRate = Math.abs( recoveryRate );
+		this.minFactor = Math.max( 0, Math.min( 1, minFactor ) );
+	}
+
+	/**
+	 * Checks each wheel for slip from the velocities of the wheels' shared estimators and updates how
+	 * much of its power is let through. The estimators are only read here, so the wheels' encoders
+	 * should already have been updated this loop, which blocking moves and odometry do. If they
+	 * have not been updated recently, such as in a teleop loop without odometry, the velocities
+	 * can't be trusted, so every wheel is given its full power back instead.
+	 *
+	 * @param leftFrontPower  The power about to be written to the front left wheel
+	 * @param leftBackPower   The power about to be written to the back left wheel
+	 * @param rightFrontPower The power about to be written to the front right wheel
+	 * @param rightBackPower  The power about to be written to the back right wheel
+	 */
+	public void update( float leftFrontPower, float leftBackPower, float rightFrontPower, float rightBackPower ) {
+		long now = System.nanoTime( );
+		if( isStale( wheels.leftFrontEncoder, now ) || isStale( wheels.leftBackEncoder, now )
+				|| isStale( wheels.rightFrontEncoder, now ) || isStale( wheels.rightBackEncoder, now ) ) {
+			reset( );
+			return;
+		}
+		double dt = (now - lastUpdateNanos) / NANOS_PER_SECOND;
+		boolean first = lastUpdateNanos == 0;
+		lastUpdateNanos = now;
+
+		MecanumEncoderWheels.EncoderConfiguration config = wheels.encoderConfig;
+		double leftFront = config.getVelocityValue( wheels.leftFrontEncoder.getVelocity( ) );
+		double leftBack = config.getVelocityValue( wheels.leftBackEncoder.getVelocity( ) );
+		double rightFront = config.getVelocityValue( wheels.rightFrontEncoder.getVelocity( ) );
+		double rightBack = config.getVelocityValue( wheels.rightBackEncoder.getVelocity( ) );
+
+		double heading = headingProvider != null ? headingProvider.getHeadingRadians( ) : 0;
+		double headingChange = heading - lastHeading;
+		lastHeading = heading;
+		if( first || dt <= 0 || dt > MAX_DT )
+			return;
+
+		if( headingProvider != null ) {
+			//How fast each wheel should move for the real rotation, which is clockwise positive for the wheels
+			double rotation = -headingChange / dt * config.getRobotDiameterValue( ) / 2;
+			//Each diagonal pair moves apart by twice the rotation, so anything more is one of them slipping
+			double frontLeftPair = leftFront - rightBack - 2 * rotation;
+			double backLeftPair = leftBack - rightFront - 2 * rotation;
+			slip[LEFT_FRONT] = frontLeftPair;
+			slip[RIGHT_BACK] = -frontLeftPair;
+			slip[LEFT_BACK] = backLeftPair;
+			slip[RIGHT_FRONT] = -backLeftPair;
+		} else {
+			//Without the real rotation, only the wheels on the same side of the constraint can be told apart
+			double inconsistency = leftFront + rightFront - leftBack - rightBack;
+			slip[LEFT_FRONT] = inconsistency;
+			slip[RIGHT_FRONT] = inconsistency;
+			slip[LEFT_BACK] = -inconsistency;
+			slip[RIGHT_BACK] = -inconsistency;
+		}
+
+		updateFactor( LEFT_FRONT, leftFrontPower, dt );
+		updateFactor( LEFT_BACK, leftBackPower, dt );
+		updateFactor( RIGHT_FRONT, rightFrontPower, dt );
+		updateFactor( RIGHT_BACK, rightBackPower, dt );
+	}
+
+	/**
+	 * Checks if an estimator has gone too long without being updated for its velocity to be used.
+	 *
+	 * @param encoder The estimator of a wheel
+	 * @param now     The current time from {@link System#nanoTime()}
+	 * @return True if the estimator has not been updated in the last {@link #MAX_DT} seconds
+	 */
+	protected boolean isStale( EncoderVelocityEstimator encoder, long now ) {
+		return encoder.getLastUpdateNanos( ) == 0 || (now - encoder.getLastUpdateNanos( )) / NANOS_PER_SECOND > MAX_DT;
+	}
+
+	/**
+	 * Backs off a wheel if it is slipping in the direction it is driven, otherwise gives its power
+	 * back.
+	 *
+	 * @param wheel The index of the wheel
+	 * @param power The power about to be written to the wheel
+	 * @param dt    The time since the last update in seconds
+	 */
+	protected void updateFactor( int wheel, float power, double dt ) {
+		slip[wheel] *= Math.signum( power );
+		slipping[wheel] = slip[wheel] > slipThreshold;
+		if( slipping[wheel] )
+			factors[wheel] = Math.max( minFactor, factors[wheel] - backoffRate * dt );
+		else
+			factors[wheel] = Math.min( 1, factors[wheel] + recoveryRate * dt );
+	}
+
+	/**
+	 * Gets how much of a wheel's power is let through.
+	 *
+	 * @param wheel The index of the wheel, such as {@link #LEFT_FRONT}
+	 * @return The fraction of the power, between the minimum factor and 1
+	 */
+	public double getFactor( int wheel ) {
+		return factors[wheel];
+	}
+
+	/**
+	 * Checks if a wheel was slipping in the last update.
+	 *
+	 * @param wheel The index of the wheel, such as {@link #LEFT_FRONT}
+	 * @return True if the wheel is slipping
+	 */
+	public boolean isSlipping( int wheel ) {
+		return slipping[wheel];
+	}
+
+	/**
+	 * Checks if any wheel was slipping in the last update, such as to warn that odometry may be off.
+	 *
+	 * @return True if any wheel is slipping
+	 */
+	public boolean isAnySlipping( ) {
+		return slipping[LEFT_FRONT] || slipping[LEFT_BACK] || slipping[RIGHT_FRONT] || slipping[RIGHT_BACK];
+	}
+
+	/**
+	 * Gets how much faster than it should a wheel was spinning in the direction it is driven.
+	 *
+	 * @param wheel The index of the wheel, such as {@link #LEFT_FRONT}
+	 * @return The slip speed in inches per second, which is negative or small while gripping
+	 */
+	public double getSlip( int wheel ) {
+		return slip[wheel];
+	}
+
+	/**
+	 * Gives every wheel its full power back, such as when starting a new move.
+	 */
+	public void reset( ) {
+		for( int i = 0; i < factors.length; i++ ) {
+			factors[i] = 1;
+			slip[i] = 0;
+			slipping[i] = false;
+		}
+		lastUpdateNanos = 0;
+	}
+}
@@ -1,5 +1,7 @@
 package com.hazenrobotics.commoncode.movement;
 
+import com.hazenrobotics.commoncode.control.PIDFController;
+import com.hazenrobotics.commoncode.control.SimpleMotorFeedforward;
 import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
 import com.hazenrobotics.commoncode.models.angles.Angle;
 import com.hazenrobotics.commoncode.models.angles.UnnormalizedAngleUnit;
@@ -7,6 +9,7 @@ import com.hazenrobotics.commoncode.models.angles.directions.RotationDirection;
 import com.hazenrobotics.commoncode.models.angles.directions.SimpleDirection;
 import com.hazenrobotics.commoncode.models.conditions.Condition;
 import com.hazenrobotics.commoncode.models.distances.Distance;
+import com.hazenrobotics.commoncode.sensors.EncoderVelocityEstimator;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
@@ -25,8 +28,40 @@ import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 @SuppressWarnings("unused,WeakerAccess")
 public class TwoEncoderWheels extends TwoWheels implements EncoderWheels {
 
+	protected static final int DEFAULT_POSITION_TOLERANCE = 10;
+	//The static friction term keeps a wheel moving once its error is too small for the proportional term alone
+	protected static final PIDFController.Gains DEFAULT_POSITION_GAINS = new PIDFController.Gains( 0.005, 0, 0.0002, 0, 0, 0.05 );
+	protected static final double DEFAULT_VELOCITY_KP = 0.01;
+
 	protected EncoderConfiguration encoderConfig;
 
+	/*
+	 * Position loops closed in the library by runByCounts() when position control is enabled,
+	 * otherwise the motor controller's RUN_TO_POSITION mode is used.
+	 */
+	protected boolean usePositionControl = false;
+	protected int positionTolerance = DEFAULT_POSITION_TOLERANCE;
+	protected final PIDFController leftController = new PIDFController( new PIDFController.Gains( DEFAULT_POSITION_GAINS ) );
+	protected final PIDFController rightController = new PIDFController( new PIDFController.Gains( DEFAULT_POSITION_GAINS ) );
+
+	/*
+	 * Velocity loops closed in the library by timed moves when velocity control is enabled, otherwise
+	 * the motor controller's RUN_USING_ENCODER mode holds the speed.
+	 */
+	protected boolean useVelocityControl = false;
+	//True while a timed move is running its velocity loops, so written powers are fractions of the top speed
+	protected boolean closingVelocityLoops = false;
+	protected double maxVelocity = 0;
+	protected final PIDFController leftVelocityController = new PIDFController( new PIDFController.Gains( DEFAULT_VELOCITY_KP, 0, 0 ) );
+	protected final PIDFController rightVelocityController = new PIDFController( new PIDFController.Gains( DEFAULT_VELOCITY_KP, 0, 0 ) );
+
+	//Shared readers of each wheel's encoder, which also estimate the wheel's velocity
+	protected final EncoderVelocityEstimator leftEncoder;
+	protected final EncoderVelocityEstimator rightEncoder;
+
+	protected MoveExitPolicy exitPolicy = new MoveExitPolicy( );
+	protected final MoveMonitor moveMonitor;
+
 	/**
 	 * Initializes the class to use the two wheels with the given configuration of names, speed, and
 	 * encoder settings.
@@ -40,6 +75,9 @@ public class TwoEncoderWheels extends TwoWheels implements EncoderWheels {
 	public TwoEncoderWheels( OpModeInterface opModeInterface, WheelConfiguration wheelConfig, EncoderConfiguration encoderConfig, SpeedSettings speeds ) {
 		super( opModeInterface, wheelConfig, speeds );
 		this.encoderConfig = encoderConfig;
+		leftEncoder = new EncoderVelocityEstimator( left );
+		rightEncoder = new EncoderVelocityEstimator( right );
+		moveMonitor = new MoveMonitor( opModeInterface, leftEncoder, rightEncoder );
 	}
 
 	/**
@@ -77,7 +115,7 @@ public class TwoEncoderWheels extends TwoWheels implements EncoderWheels {
 		distance = distance.positivized( );
 
 		int baseCounts = encoderConfig.getMoveCounts( distance );
-		Counts counts = Counts.fromCoefficients( calculateMove( direction ), baseCounts );
+		Counts counts = Counts.fromCoefficients( calculateMove( direction, moveCoefficients ), baseCounts );
 		runByCounts( counts, Math.abs( speed ) );
 	}
 
@@ -130,7 +168,7 @@ public class TwoEncoderWheels extends TwoWheels implements EncoderWheels {
 		angle = angle.positivized( );
 
 		int baseCounts = encoderConfig.getTurnCounts( angle );
-		Counts counts = Counts.fromCoefficients( calculateTurn( direction ), baseCounts );
+		Counts counts = Counts.fromCoefficients( calculateTurn( direction, turnCoefficients ), baseCounts );
 		runByCounts( counts, Math.abs( speed ) );
 	}
 
@@ -151,31 +189,297 @@ public class TwoEncoderWheels extends TwoWheels implements EncoderWheels {
 	}
 
 	/**
-	 * Moves for a given number of counts on each wheel at a given speed
+	 * Makes measured moves close their position loops in this library using the given gains, rather
+	 * than the motor controller's built in RUN_TO_POSITION mode, so their settling can be tuned and
+	 * is the same no matter which hub the motors are connected to.
+	 *
+	 * @param gains     The gains for each wheel's position controller, where the error is in counts
+	 *                  and the output is motor power
+	 * @param tolerance How many counts away from its target a wheel can be and still be considered
+	 *                  to have reached it, within which the gains' static friction term is not
+	 *                  applied
+	 */
+	public void enablePositionControl( PIDFController.Gains gains, int tolerance ) {
+		leftController.setGains( gains );
+		rightController.setGains( gains );
+		positionTolerance = Math.abs( tolerance );
+		leftController.setStaticDeadband( positionTolerance );
+		rightController.setStaticDeadband( positionTolerance );
+		usePositionControl = true;
+	}
+
+	/**
+	 * Makes measured moves use the motor controller's built in RUN_TO_POSITION mode again.
+	 */
+	public void disablePositionControl( ) {
+		usePositionControl = false;
+	}
+
+	/**
+	 * Checks if measured moves close their position loops in this library.
+	 *
+	 * @return True if {@link #enablePositionControl(PIDFController.Gains, int) position control} is
+	 * enabled, false if RUN_TO_POSITION is used
+	 */
+	public boolean isPositionControlEnabled( ) {
+		return usePositionControl;
+	}
+
+	/**
+	 * Makes timed moves hold the speed of each wheel with velocity loops closed in this library,
+	 * using the default feedback gain.
+	 *
+	 * @param feedforward The feedforward of the wheels, with velocities in inches per second
+	 * @see #enableVelocityControl(SimpleMotorFeedforward, double)
+	 */
+	public void enableVelocityControl( SimpleMotorFeedforward feedforward ) {
+		enableVelocityControl( feedforward, DEFAULT_VELOCITY_KP );
+	}
+
+	/**
+	 * Makes timed moves hold the speed of each wheel with velocity loops closed in this library,
+	 * rather than the motor controller's RUN_USING_ENCODER mode, using a feedforward measured by a
+	 * {@link DriveCharacterizer} so most of the power is known ahead of time. The power of each wheel
+	 * becomes a fraction of the top speed which can be held at full power.
+	 *
+	 * @param feedforward The feedforward of the wheels, with velocities in inches per second
+	 * @param kP          The gain multiplied by each wheel's velocity error in inches per second
+	 * @throws IllegalArgumentException If the feedforward has no velocity gain
+	 */
+	public void enableVelocityControl( SimpleMotorFeedforward feedforward, double kP ) {
+		if( feedforward.kV <= 0 )
+			throw new IllegalArgumentException( "The feedforward needs a velocity gain to control velocity." );
+		PIDFController.Gains gains = new PIDFController.Gains( kP, 0, 0, feedforward.kV, feedforward.kA, feedforward.kS );
+		leftVelocityController.setGains( gains );
+		rightVelocityController.setGains( gains );
+		maxVelocity = feedforward.getMaxVelocity( 1 );
+		useVelocityControl = true;
+	}
+
+	/**
+	 * Makes timed moves use the motor controller's RUN_USING_ENCODER mode again.
+	 */
+	public void disableVelocityControl( ) {
+		useVelocityControl = false;
+	}
+
+	/**
+	 * Checks if timed moves close their velocity loops in this library.
+	 *
+	 * @return True if {@link #enableVelocityControl(SimpleMotorFeedforward, double) velocity control}
+	 * is enabled
+	 */
+	public boolean isVelocityControlEnabled( ) {
+		return useVelocityControl;
+	}
+
+	/**
+	 * Reads every wheel's encoder once and updates its velocity estimate. Anything sharing the
+	 * estimators, such as odometry or a feedback controller, can then use the readings without
+	 * reading the encoders again.
+	 */
+	public void updateEncoders( ) {
+		leftEncoder.update( );
+		rightEncoder.update( );
+	}
+
+	/**
+	 * Gets the shared encoder reader and velocity estimator of the left wheel.
+	 *
+	 * @return The left wheel's estimator
+	 */
+	public EncoderVelocityEstimator getLeftEncoder( ) {
+		return leftEncoder;
+	}
+
+	/**
+	 * Gets the shared encoder reader and velocity estimator of the right wheel.
+	 *
+	 * @return The right wheel's estimator
+	 */
+	public EncoderVelocityEstimator getRightEncoder( ) {
+		return rightEncoder;
+	}
+
+	/**
+	 * Changes when measured moves are finished, such as to finish early once the wheels have
+	 * settled, give up when a wheel stalls, or give up after a timeout.
+	 *
+	 * @param exitPolicy The policy to use for the following moves
+	 */
+	public void setExitPolicy( MoveExitPolicy exitPolicy ) {
+		this.exitPolicy = exitPolicy;
+	}
+
+	/**
+	 * Gets the policy which decides when measured moves are finished.
+	 *
+	 * @return The current exit policy
+	 */
+	public MoveExitPolicy getExitPolicy( ) {
+		return exitPolicy;
+	}
+
+	/**
+	 * Gets why the last measured move finished, such as to retry a move which stalled.
+	 *
+	 * @return The outcome of the last move, or null if no move has finished
+	 */
+	public MoveOutcome getLastOutcome( ) {
+		return moveMonitor.getOutcome( );
+	}
+
+	/**
+	 * Moves for a given number of counts on each wheel at a given speed, until the
+	 * {@link #setExitPolicy(MoveExitPolicy) exit policy} decides the move is finished.
 	 *
 	 * @param counts The number of counts which the wheels will move
 	 * @param speed  The percent of maximum speed which wheels will turn at, should be between 0f and
 	 *               1f
+	 * @return Why the move finished
 	 */
-	void runByCounts( Counts counts, float speed ) {
+	MoveOutcome runByCounts( Counts counts, float speed ) {
 		//If a negative speed was passed here, we are moving backwards overall
 		counts = speed < 0 ? counts.negated( ) : counts;
 		speed = Math.abs( speed );
 
-		left.setTargetPosition( left.getCurrentPosition( ) + counts.left );
-		right.setTargetPosition( right.getCurrentPosition( ) + counts.right );
+		if( usePositionControl )
+			return runByPositionControl( counts, speed );
+
+		setTargets( counts );
+		left.setTargetPosition( moveMonitor.getTarget( 0 ) );
+		right.setTargetPosition( moveMonitor.getTarget( 1 ) );
+
+		setMode( DcMotor.RunMode.RUN_TO_POSITION );
+
+		Coefficients coefficients = counts.toCoefficient( );
+		beginHeadingHold( coefficients );
+		setPower( coefficients, speed );
+		moveMonitor.begin( exitPolicy, true, positionTolerance, false );
+		loopTimer.start( );
+		profiler.startLoop( );
+		while( !moveMonitor.update( ) ) {
+			profiler.mark( conditionPhase );
+			//In RUN_TO_POSITION only the size of the power matters, so correcting slows one side down
+			updatePower( coefficients, speed );
+			profiler.mark( drivePhase );
+			loopTimer.waitForNextLoop( opModeInterface );
+			profiler.mark( waitPhase );
+			profiler.endLoop( );
+		}
+		stop( );
 
-		left.setMode( DcMotor.RunMode.RUN_TO_POSITION );
-		right.setMode( DcMotor.RunMode.RUN_TO_POSITION );
+		setMode( DcMotor.RunMode.RUN_USING_ENCODER );
+		return moveMonitor.getOutcome( );
+	}
 
-		setPower( counts.toCoefficient( ), speed );
-		while( left.isBusy( ) && right.isBusy( ) ) {
-			opModeInterface.idle( );
+	@Override
+	public void runByCoefficients( Condition condition, Coefficients coefficients, float speed ) {
+		if( !useVelocityControl ) {
+			super.runByCoefficients( condition, coefficients, speed );
+			return;
+		}
+		leftVelocityController.reset( );
+		rightVelocityController.reset( );
+		//The library controls the power directly, so the motor controller's own loop is disabled
+		setMode( DcMotor.RunMode.RUN_WITHOUT_ENCODER );
+
+		//Timed moves have no move monitor reading the encoders, so they are read once a loop as the powers are written
+		updateEncoders( );
+		closingVelocityLoops = true;
+		super.runByCoefficients( condition, coefficients, speed );
+		closingVelocityLoops = false;
+
+		setMode( DcMotor.RunMode.RUN_USING_ENCODER );
+	}
+
+	@Override
+	protected void updatePower( Coefficients coefficients, float speed ) {
+		//The velocity loops need new measurements every loop, so the powers are written every loop
+		if( closingVelocityLoops ) {
+			updateEncoders( );
+			setPower( holdHeading( coefficients ), speed );
+		} else {
+			super.updatePower( coefficients, speed );
+		}
+	}
+
+	@Override
+	protected void writePower( float leftPower, float rightPower ) {
+		if( closingVelocityLoops ) {
+			leftPower = (float) leftVelocityController.calculateVelocity( leftPower * maxVelocity,
+					encoderConfig.getVelocityValue( leftEncoder.getVelocity( ) ) );
+			rightPower = (float) rightVelocityController.calculateVelocity( rightPower * maxVelocity,
+					encoderConfig.getVelocityValue( rightEncoder.getVelocity( ) ) );
+		}
+		super.writePower( leftPower, rightPower );
+	}
+
+	/**
+	 * Gives the move monitor the target of each wheel, the given counts from where it is now.
+	 *
+	 * @param counts The number of counts which the wheels will move
+	 */
+	private void setTargets( Counts counts ) {
+		moveMonitor.setTarget( 0, left.getCurrentPosition( ) + counts.left );
+		moveMonitor.setTarget( 1, right.getCurrentPosition( ) + counts.right );
+	}
+
+	/**
+	 * Moves for a given number of counts on each wheel by closing a position loop for each wheel,
+	 * until the {@link #setExitPolicy(MoveExitPolicy) exit policy} decides the move is finished,
+	 * which by default is once both wheels are within the position tolerance of their targets, or
+	 * once a wheel stalls short of its target.
+	 *
+	 * @param counts The number of counts which the wheels will move
+	 * @param speed  The percent of maximum speed which wheels will turn at, should be between 0f and
+	 *               1f
+	 * @return Why the move finished
+	 */
+	protected MoveOutcome runByPositionControl( Counts counts, float speed ) {
+		setTargets( counts );
+		int leftTarget = moveMonitor.getTarget( 0 );
+		int rightTarget = moveMonitor.getTarget( 1 );
+
+		//Limits each wheel proportionally to its share of the move so the wheels stay in step
+		Coefficients limits = counts.toCoefficient( );
+		setOutputLimit( leftController, limits.left * speed );
+		setOutputLimit( rightController, limits.right * speed );
+		beginHeadingHold( limits );
+
+		//The library controls the power directly, so the motor controller's own loop is disabled
+		setMode( DcMotor.RunMode.RUN_WITHOUT_ENCODER );
+
+		moveMonitor.begin( exitPolicy, false, positionTolerance, false );
+		loopTimer.start( );
+		profiler.startLoop( );
+		//The monitor reads every position each loop, so the controllers use its readings
+		while( !moveMonitor.update( ) ) {
+			profiler.mark( conditionPhase );
+			float correction = calculateHeadingCorrection( );
+			writePower( boundRange( (float) leftController.calculate( leftTarget, moveMonitor.getPosition( 0 ) ) - correction ),
+					boundRange( (float) rightController.calculate( rightTarget, moveMonitor.getPosition( 1 ) ) + correction ) );
+			profiler.mark( drivePhase );
+			loopTimer.waitForNextLoop( opModeInterface );
+			profiler.mark( waitPhase );
+			profiler.endLoop( );
 		}
 		stop( );
 
-		left.setMode( DcMotor.RunMode.RUN_USING_ENCODER );
-		right.setMode( DcMotor.RunMode.RUN_USING_ENCODER );
+		setMode( DcMotor.RunMode.RUN_USING_ENCODER );
+		return moveMonitor.getOutcome( );
+	}
+
+	/**
+	 * Resets a wheel's position controller and bounds its output to plus or minus the given limit.
+	 *
+	 * @param controller The controller to prepare for a new move
+	 * @param limit      The largest power the controller may output, in either direction
+	 */
+	private static void setOutputLimit( PIDFController controller, float limit ) {
+		limit = Math.abs( limit );
+		controller.setOutputRange( -limit, limit );
+		controller.reset( );
 	}
 
 	public static class Counts {
@@ -425,6 +729,37 @@ public class TwoEncoderWheels extends TwoWheels implements EncoderWheels {
 			return getMoveCounts( distance );
 		}
 
+		/**
+		 * Gets the distance a wheel traveled to move the given number of counts, the reverse of
+		 * {@link #getMoveCounts(Distance)}.
+		 *
+		 * @param counts The number of counts the wheel moved
+		 * @return The distance value in inches, including wheel calibration adjustment
+		 */
+		public float getDistanceValue( int counts ) {
+			return counts / (countsPerUnit * calibrationMultiplier);
+		}
+
+		/**
+		 * Gets the speed of a wheel turning at the given number of counts per second, such as from
+		 * an {@link EncoderVelocityEstimator}.
+		 *
+		 * @param countsPerSecond The velocity of the wheel's encoder
+		 * @return The velocity value in inches per second, including wheel calibration adjustment
+		 */
+		public double getVelocityValue( double countsPerSecond ) {
+			return countsPerSecond / (countsPerUnit * calibrationMultiplier);
+		}
+
+		/**
+		 * Gets the diameter of the robot, being the distance between the two wheels.
+		 *
+		 * @return The robot diameter value in inches
+		 */
+		public float getRobotDiameterValue( ) {
+			return distancePerSpin.getValue( DISTANCE_UNIT ) / (float) Math.PI;
+		}
+
 		/**
 		 * Changes the calibration multiplier, which is used to adjust the amount of counts
 		 * which will be moved to account for predictable error.
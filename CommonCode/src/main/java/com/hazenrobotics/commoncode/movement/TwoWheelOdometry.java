@@ -0,0 +1,101 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+
+/**
+ * Odometry for {@link TwoEncoderWheels}, which treats each update's movement as an arc of constant
+ * curvature from the difference between the left and right wheels. Each update reads every encoder
+ * once through the wheels' shared {@link com.hazenrobotics.commoncode.sensors.EncoderVelocityEstimator
+ * velocity estimators}, so with the hubs' bulk caching enabled it costs a single bulk read.
+ *
+ * @see TwoEncoderWheels
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TwoWheelOdometry implements Odometry {
+
+	protected final TwoEncoderWheels wheels;
+	protected final Pose pose = new Pose( );
+
+	protected int lastLeft;
+	protected int lastRight;
+
+	protected double forwardVelocity = 0;
+	protected double angularVelocity = 0;
+
+	/**
+	 * Creates odometry which tracks the given wheels, starting at the origin facing along the x
+	 * axis.
+	 *
+	 * @param wheels The wheels whose encoders will be integrated
+	 */
+	public TwoWheelOdometry( TwoEncoderWheels wheels ) {
+		this.wheels = wheels;
+		wheels.updateEncoders( );
+		lastLeft = wheels.leftEncoder.getPosition( );
+		lastRight = wheels.rightEncoder.getPosition( );
+	}
+
+	@Override
+	public void update( ) {
+		wheels.updateEncoders( );
+		int left = wheels.leftEncoder.getPosition( );
+		int right = wheels.rightEncoder.getPosition( );
+
+		TwoEncoderWheels.EncoderConfiguration config = wheels.encoderConfig;
+		double leftDistance = config.getDistanceValue( left - lastLeft );
+		double rightDistance = config.getDistanceValue( right - lastRight );
+		lastLeft = left;
+		lastRight = right;
+
+		double headingChange = (rightDistance - leftDistance) / config.getRobotDiameterValue( );
+		pose.integrateTwist( (leftDistance + rightDistance) / 2, 0, headingChange );
+
+		double leftVelocity = config.getVelocityValue( wheels.leftEncoder.getVelocity( ) );
+		double rightVelocity = config.getVelocityValue( wheels.rightEncoder.getVelocity( ) );
+		forwardVelocity = (leftVelocity + rightVelocity) / 2;
+		angularVelocity = (rightVelocity - leftVelocity) / config.getRobotDiameterValue( );
+	}
+
+	/**
+	 * Gets the robot's forwards velocity, estimated from the wheels' recent encoder readings.
+	 *
+	 * @return The velocity in inches per second, relative to the robot
+	 */
+	public double getForwardVelocity( ) {
+		return forwardVelocity;
+	}
+
+	/**
+	 * Gets the robot's turning velocity, estimated from the wheels' recent encoder readings.
+	 *
+	 * @return The counter-clockwise angular velocity in radians per second
+	 */
+	public double getAngularVelocity( ) {
+		return angularVelocity;
+	}
+
+	@Override
+	public Pose getPose( Pose result ) {
+		return result.set( pose );
+	}
+
+	@Override
+	public double getX( ) {
+		return pose.x;
+	}
+
+	@Override
+	public double getY( ) {
+		return pose.y;
+	}
+
+	@Override
+	public double getHeadingRadians( ) {
+		return pose.heading;
+	}
+
+	@Override
+	public void setPose( double x, double y, double heading ) {
+		pose.set( x, y, heading );
+	}
+}
@@ -0,0 +1,59 @@
+package com.hazenrobotics.commoncode.movement;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * A drive characterizer for {@link TwoEncoderWheels}, which drives both wheels with the same power
+ * and measures their average velocity.
+ *
+ * @see DriveCharacterizer
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TwoWheelsCharacterizer extends DriveCharacterizer {
+
+	protected final TwoEncoderWheels wheels;
+	protected final DcMotor[] motors;
+
+	/**
+	 * Creates a characterizer for the given wheels.
+	 *
+	 * @param wheels The wheels which will be tested
+	 */
+	public TwoWheelsCharacterizer( TwoEncoderWheels wheels ) {
+		super( wheels.opModeInterface );
+		this.wheels = wheels;
+		motors = new DcMotor[]{ wheels.left, wheels.right };
+	}
+
+	@Override
+	protected DcMotor[] getMotors( ) {
+		return motors;
+	}
+
+	@Override
+	protected void setMode( DcMotor.RunMode mode ) {
+		wheels.setMode( mode );
+	}
+
+	@Override
+	protected DcMotor.RunMode getMode( ) {
+		return wheels.getMode( );
+	}
+
+	@Override
+	protected void updateEncoders( ) {
+		wheels.updateEncoders( );
+	}
+
+	@Override
+	protected double getDistance( ) {
+		int counts = (wheels.leftEncoder.getPosition( ) + wheels.rightEncoder.getPosition( )) / 2;
+		return wheels.encoderConfig.getDistanceValue( counts );
+	}
+
+	@Override
+	protected double getVelocity( ) {
+		double counts = (wheels.leftEncoder.getVelocity( ) + wheels.rightEncoder.getVelocity( )) / 2;
+		return wheels.encoderConfig.getVelocityValue( counts );
+	}
+}
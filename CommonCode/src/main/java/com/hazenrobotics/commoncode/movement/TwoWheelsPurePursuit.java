@@ -0,0 +1,56 @@
+package com.hazenrobotics.commoncode.movement;
+
+/**
+ * A pure pursuit follower for {@link TwoEncoderWheels}, which drives along the arc that passes
+ * through the lookahead point by setting the difference between the wheel speeds from the arc's
+ * curvature. The distance between the wheels is read from the wheels'
+ * {@link TwoEncoderWheels.EncoderConfiguration encoder configuration}, so it always agrees with the
+ * odometry.
+ *
+ * @see PurePursuitFollower
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TwoWheelsPurePursuit extends PurePursuitFollower {
+
+	protected final TwoEncoderWheels wheels;
+	protected final TwoWheels.Coefficients coefficients = new TwoWheels.Coefficients( );
+
+	/**
+	 * Creates a follower for the given wheels which follows at their default move speed.
+	 *
+	 * @param wheels   The wheels which will drive
+	 * @param odometry The odometry which gives the robot's live pose
+	 */
+	public TwoWheelsPurePursuit( TwoEncoderWheels wheels, Odometry odometry ) {
+		this( wheels, odometry, wheels.speeds.move );
+	}
+
+	/**
+	 * Creates a follower for the given wheels.
+	 *
+	 * @param wheels   The wheels which will drive
+	 * @param odometry The odometry which gives the robot's live pose
+	 * @param speed    The percent of maximum speed which wheels will move at, should be between 0f
+	 *                 and 1f
+	 */
+	public TwoWheelsPurePursuit( TwoEncoderWheels wheels, Odometry odometry, float speed ) {
+		super( wheels.opModeInterface, wheels.loopTimer, odometry, speed );
+		this.wheels = wheels;
+	}
+
+	@Override
+	protected void drive( double forward, double left, float speed ) {
+		double distanceSquared = forward * forward + left * left;
+		//The curvature of the arc from the robot, tangent to its heading, through the lookahead point
+		double curvature = distanceSquared > 0 ? 2 * left / distanceSquared : 0;
+		double trackWidth = wheels.encoderConfig.getRobotDiameterValue( );
+		coefficients.left = (float) (1 - curvature * trackWidth / 2);
+		coefficients.right = (float) (1 + curvature * trackWidth / 2);
+		wheels.setPower( coefficients, speed );
+	}
+
+	@Override
+	protected void stopWheels( ) {
+		wheels.stop( );
+	}
+}
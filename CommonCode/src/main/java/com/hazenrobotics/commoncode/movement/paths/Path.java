@@ -0,0 +1,174 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+
+/**
+ * A path made of straight lines between points on the field, measured in inches. The distance along
+ * the path to each point is calculated when the path is made, so finding positions along it while
+ * following does not allocate anything.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class Path {
+
+	protected final double[] x;
+	protected final double[] y;
+	//The distance along the path from the first point to each point
+	protected final double[] distances;
+
+	/**
+	 * Creates a path through the given points in order.
+	 *
+	 * @param x The x positions of the points in inches
+	 * @param y The y positions of the points in inches, must be the same length as x
+	 */
+	public Path( double[] x, double[] y ) {
+		if( x.length != y.length )
+			throw new IllegalArgumentException( "A path needs the same number of x and y positions." );
+		if( x.length < 2 )
+			throw new IllegalArgumentException( "A path needs at least two points." );
+		this.x = x.clone( );
+		this.y = y.clone( );
+		distances = new double[x.length];
+		for( int i = 1; i < x.length; i++ ) {
+			distances[i] = distances[i - 1] + Math.hypot( x[i] - x[i - 1], y[i] - y[i - 1] );
+		}
+	}
+
+	/**
+	 * Creates a path through the given points in order.
+	 *
+	 * @param points Alternating x and y positions of the points in inches, such as
+	 *               {@code x0, y0, x1, y1, ...}
+	 * @return The new path
+	 */
+	public static Path fromPoints( double... points ) {
+		if( points.length % 2 != 0 )
+			throw new IllegalArgumentException( "Points must be given as x and y pairs." );
+		double[] x = new double[points.length / 2];
+		double[] y = new double[points.length / 2];
+		for( int i = 0; i < x.length; i++ ) {
+			x[i] = points[2 * i];
+			y[i] = points[2 * i + 1];
+		}
+		return new Path( x, y );
+	}
+
+	/**
+	 * Gets the number of points on the path.
+	 *
+	 * @return The number of points
+	 */
+	public int getPointCount( ) {
+		return x.length;
+	}
+
+	/**
+	 * Gets the x position of a point on the path.
+	 *
+	 * @param index The index of the point
+	 * @return The x position in inches
+	 */
+	public double getX( int index ) {
+		return x[index];
+	}
+
+	/**
+	 * Gets the y position of a point on the path.
+	 *
+	 * @param index The index of the point
+	 * @return The y position in inches
+	 */
+	public double getY( int index ) {
+		return y[index];
+	}
+
+	/**
+	 * Gets the total length of the path.
+	 *
+	 * @return The length in inches
+	 */
+	public double getLength( ) {
+		return distances[distances.length - 1];
+	}
+
+	/**
+	 * Gets the distance along the path to a point.
+	 *
+	 * @param index The index of the point
+	 * @return The distance in inches from the start of the path
+	 */
+	public double getDistance( int index ) {
+		return distances[index];
+	}
+
+	/**
+	 * Finds which segment (the line from a point to the next) contains the given distance along
+	 * the path.
+	 *
+	 * @param distance The distance in inches from the start of the path
+	 * @return The index of the point at the start of the segment
+	 */
+	public int getSegment( double distance ) {
+		int low = 0;
+		int high = distances.length - 2;
+		while( low < high ) {
+			int middle = (low + high + 1) >>> 1;
+			if( distances[middle] <= distance )
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the position on the path at a distance along it, and the direction of the path there.
+	 * Distances past either end are clamped to the end.
+	 *
+	 * @param distance The distance in inches from the start of the path
+	 * @param result   The pose which will be set to the position, with the heading being the
+	 *                 direction of the path
+	 * @return The given pose
+	 */
+	public Pose getPose( double distance, Pose result ) {
+		distance = Math.max( 0, Math.min( getLength( ), distance ) );
+		int segment = getSegment( distance );
+		double segmentLength = distances[segment + 1] - distances[segment];
+		double fraction = segmentLength > 0 ? (distance - distances[segment]) / segmentLength : 0;
+		double deltaX = x[segment + 1] - x[segment];
+		double deltaY = y[segment + 1] - y[segment];
+		return result.set( x[segment] + deltaX * fraction, y[segment] + deltaY * fraction, Math.atan2( deltaY, deltaX ) );
+	}
+
+	/**
+	 * Finds the distance along the path of the point on it closest to a position, only searching
+	 * the segments in the given range so that a follower does not skip ahead to where the path
+	 * crosses itself.
+	 *
+	 * @param positionX    The x position in inches
+	 * @param positionY    The y position in inches
+	 * @param firstSegment The first segment to search
+	 * @param maxDistance  Segments starting further along the path than this are not searched
+	 * @return The distance along the path in inches of the closest point
+	 */
+	public double findClosestDistance( double positionX, double positionY, int firstSegment, double maxDistance ) {
+		double closestDistance = distances[firstSegment];
+		double closestSquared = Double.MAX_VALUE;
+		for( int i = firstSegment; i < x.length - 1 && distances[i] <= maxDistance; i++ ) {
+			double deltaX = x[i + 1] - x[i];
+			double deltaY = y[i + 1] - y[i];
+			double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+			//How far along the segment the position projects to, bounded to the segment
+			double fraction = lengthSquared > 0 ? ((positionX - x[i]) * deltaX + (positionY - y[i]) * deltaY) / lengthSquared : 0;
+			fraction = Math.max( 0, Math.min( 1, fraction ) );
+			double offsetX = x[i] + deltaX * fraction - positionX;
+			double offsetY = y[i] + deltaY * fraction - positionY;
+			double squared = offsetX * offsetX + offsetY * offsetY;
+			if( squared < closestSquared ) {
+				closestSquared = squared;
+				closestDistance = distances[i] + fraction * (distances[i + 1] - distances[i]);
+			}
+		}
+		return closestDistance;
+	}
+}
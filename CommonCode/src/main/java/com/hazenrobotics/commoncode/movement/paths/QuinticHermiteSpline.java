@@ -0,0 +1,140 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+/**
+ * A curve between two points where the position, first derivative and second derivative are given
+ * at both ends, so that splines joined end to end are smooth through the points between them. The
+ * curve is parameterized from 0 at the start to 1 at the end, which is not proportional to the
+ * distance along it; {@link TrajectoryGenerator} handles reparameterizing it by distance.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class QuinticHermiteSpline {
+
+	//Polynomial coefficients from the constant term up to the fifth power
+	protected final double[] xCoefficients;
+	protected final double[] yCoefficients;
+
+	/**
+	 * Creates a spline with the given values at each end.
+	 *
+	 * @param startX                 The x position at the start
+	 * @param startY                 The y position at the start
+	 * @param startDerivativeX       The x first derivative at the start
+	 * @param startDerivativeY       The y first derivative at the start
+	 * @param startSecondDerivativeX The x second derivative at the start
+	 * @param startSecondDerivativeY The y second derivative at the start
+	 * @param endX                   The x position at the end
+	 * @param endY                   The y position at the end
+	 * @param endDerivativeX         The x first derivative at the end
+	 * @param endDerivativeY         The y first derivative at the end
+	 * @param endSecondDerivativeX   The x second derivative at the end
+	 * @param endSecondDerivativeY   The y second derivative at the end
+	 */
+	public QuinticHermiteSpline( double startX, double startY, double startDerivativeX, double startDerivativeY, double startSecondDerivativeX, double startSecondDerivativeY,
+								 double endX, double endY, double endDerivativeX, double endDerivativeY, double endSecondDerivativeX, double endSecondDerivativeY ) {
+		xCoefficients = calculateCoefficients( startX, startDerivativeX, startSecondDerivativeX, endX, endDerivativeX, endSecondDerivativeX );
+		yCoefficients = calculateCoefficients( startY, startDerivativeY, startSecondDerivativeY, endY, endDerivativeY, endSecondDerivativeY );
+	}
+
+	/**
+	 * Expands the quintic Hermite basis functions into the coefficients of a polynomial for one axis.
+	 */
+	private static double[] calculateCoefficients( double p0, double v0, double a0, double p1, double v1, double a1 ) {
+		return new double[]{
+				p0,
+				v0,
+				a0 / 2,
+				-10 * p0 - 6 * v0 - 1.5 * a0 + 0.5 * a1 - 4 * v1 + 10 * p1,
+				15 * p0 + 8 * v0 + 1.5 * a0 - a1 + 7 * v1 - 15 * p1,
+				-6 * p0 - 3 * v0 - 0.5 * a0 + 0.5 * a1 - 3 * v1 + 6 * p1
+		};
+	}
+
+	/**
+	 * Gets the x position at a point on the spline.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The x position
+	 */
+	public double getX( double t ) {
+		return evaluate( xCoefficients, t );
+	}
+
+	/**
+	 * Gets the y position at a point on the spline.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The y position
+	 */
+	public double getY( double t ) {
+		return evaluate( yCoefficients, t );
+	}
+
+	/**
+	 * Gets the x first derivative at a point on the spline.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The x first derivative
+	 */
+	public double getDerivativeX( double t ) {
+		return evaluateDerivative( xCoefficients, t );
+	}
+
+	/**
+	 * Gets the y first derivative at a point on the spline.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The y first derivative
+	 */
+	public double getDerivativeY( double t ) {
+		return evaluateDerivative( yCoefficients, t );
+	}
+
+	/**
+	 * Gets the x second derivative at a point on the spline.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The x second derivative
+	 */
+	public double getSecondDerivativeX( double t ) {
+		return evaluateSecondDerivative( xCoefficients, t );
+	}
+
+	/**
+	 * Gets the y second derivative at a point on the spline.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The y second derivative
+	 */
+	public double getSecondDerivativeY( double t ) {
+		return evaluateSecondDerivative( yCoefficients, t );
+	}
+
+	/**
+	 * Gets the curvature at a point on the spline, which is one over the radius of the circle the
+	 * spline is turning along there.
+	 *
+	 * @param t The parameter between 0 and 1
+	 * @return The curvature, counter-clockwise positive
+	 */
+	public double getCurvature( double t ) {
+		double dx = getDerivativeX( t );
+		double dy = getDerivativeY( t );
+		double speedSquared = dx * dx + dy * dy;
+		if( speedSquared == 0 )
+			return 0;
+		return (dx * getSecondDerivativeY( t ) - dy * getSecondDerivativeX( t )) / (speedSquared * Math.sqrt( speedSquared ));
+	}
+
+	//Horner's method for each polynomial, so no powers are calculated
+	private static double evaluate( double[] c, double t ) {
+		return c[0] + t * (c[1] + t * (c[2] + t * (c[3] + t * (c[4] + t * c[5]))));
+	}
+
+	private static double evaluateDerivative( double[] c, double t ) {
+		return c[1] + t * (2 * c[2] + t * (3 * c[3] + t * (4 * c[4] + t * 5 * c[5])));
+	}
+
+	private static double evaluateSecondDerivative( double[] c, double t ) {
+		return 2 * c[2] + t * (6 * c[3] + t * (12 * c[4] + t * 20 * c[5]));
+	}
+}
@@ -0,0 +1,122 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+/**
+ * A trajectory stored as a table of states at increasing times, so sampling it is just a binary
+ * search and a linear interpolation between two rows. Nothing is calculated from the path itself
+ * while following, which makes it cheap enough to sample every loop.
+ *
+ * @see TrajectoryGenerator
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TabulatedTrajectory implements Trajectory {
+
+	protected final double[] time;
+	protected final double[] x;
+	protected final double[] y;
+	protected final double[] heading;
+	protected final double[] velocity;
+	protected final double[] acceleration;
+	protected final double[] curvature;
+
+	/**
+	 * Creates a trajectory from columns of states. The arrays are used directly rather than copied,
+	 * so they should not be changed afterwards.
+	 *
+	 * @param time         The time of each state in seconds, in increasing order
+	 * @param x            The x position of each state in inches
+	 * @param y            The y position of each state in inches
+	 * @param heading      The heading of each state in radians
+	 * @param velocity     The forwards velocity of each state in inches per second
+	 * @param acceleration The forwards acceleration of each state in inches per second squared
+	 * @param curvature    The curvature of each state in radians per inch
+	 */
+	public TabulatedTrajectory( double[] time, double[] x, double[] y, double[] heading, double[] velocity, double[] acceleration, double[] curvature ) {
+		int length = time.length;
+		if( length == 0 )
+			throw new IllegalArgumentException( "A trajectory needs at least one state." );
+		if( x.length != length || y.length != length || heading.length != length || velocity.length != length
+				|| acceleration.length != length || curvature.length != length )
+			throw new IllegalArgumentException( "Every column of a trajectory must have the same number of states." );
+		this.time = time;
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		this.velocity = velocity;
+		this.acceleration = acceleration;
+		this.curvature = curvature;
+	}
+
+	@Override
+	public double getDuration( ) {
+		return time[time.length - 1];
+	}
+
+	/**
+	 * Gets the number of states in the table.
+	 *
+	 * @return The number of states
+	 */
+	public int getStateCount( ) {
+		return time.length;
+	}
+
+	@Override
+	public TrajectoryState sample( double sampleTime, TrajectoryState result ) {
+		int last = time.length - 1;
+		if( sampleTime <= time[0] )
+			return getState( 0, result );
+		if( sampleTime >= time[last] )
+			return getState( last, result );
+
+		//Finds the last state at or before the sample time
+		int low = 0;
+		int high = last;
+		while( high - low > 1 ) {
+			int middle = (low + high) >>> 1;
+			if( time[middle] <= sampleTime )
+				low = middle;
+			else
+				high = middle;
+		}
+
+		double fraction = (sampleTime - time[low]) / (time[high] - time[low]);
+		result.time = sampleTime;
+		result.pose.set( interpolate( x, low, fraction ), interpolate( y, low, fraction ), interpolate( heading, low, fraction ) );
+		result.velocity = interpolate( velocity, low, fraction );
+		result.acceleration = acceleration[low];
+		result.curvature = interpolate( curvature, low, fraction );
+		result.angularVelocity = result.velocity * result.curvature;
+		return result;
+	}
+
+	/**
+	 * Copies a row of the table into a state.
+	 *
+	 * @param index  The index of the state
+	 * @param result The state which will be set
+	 * @return The given state
+	 */
+	public TrajectoryState getState( int index, TrajectoryState result ) {
+		result.time = time[index];
+		result.pose.set( x[index], y[index], heading[index] );
+		result.velocity = velocity[index];
+		result.acceleration = acceleration[index];
+		result.curvature = curvature[index];
+		result.angularVelocity = velocity[index] * curvature[index];
+		return result;
+	}
+
+	/**
+	 * Makes a path through the positions of the trajectory, such as for a
+	 * {@link com.hazenrobotics.commoncode.movement.PurePursuitFollower pure pursuit follower}.
+	 *
+	 * @return A new path through every state's position
+	 */
+	public Path toPath( ) {
+		return new Path( x, y );
+	}
+
+	private static double interpolate( double[] column, int index, double fraction ) {
+		return column[index] + (column[index + 1] - column[index]) * fraction;
+	}
+}
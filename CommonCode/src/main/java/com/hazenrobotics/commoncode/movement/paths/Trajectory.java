@@ -0,0 +1,27 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+/**
+ * A path which is parameterized by time, so it gives where the robot should be and how it should
+ * be moving at every moment while driving it.
+ *
+ * @see TrajectoryState
+ */
+public interface Trajectory {
+
+	/**
+	 * Gets how long it takes to drive the whole trajectory.
+	 *
+	 * @return The duration in seconds
+	 */
+	double getDuration( );
+
+	/**
+	 * Finds the state of the trajectory at a given time. Times before the start or after the end
+	 * give the first or last state.
+	 *
+	 * @param time   The time since the start of the trajectory in seconds
+	 * @param result The state which will be set, so no new object has to be made
+	 * @return The given state
+	 */
+	TrajectoryState sample( double time, TrajectoryState result );
+}
@@ -0,0 +1,189 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and loads {@link TabulatedTrajectory tabulated trajectories} in a compact binary file, so
+ * trajectories which never change can be generated once ahead of time instead of every time an
+ * OpMode is initialized. Nothing here depends on the robot SDK, so the files can be written by a
+ * normal Java program on a computer and then copied on to the phone.
+ *
+ * <p>The file is little-endian. It starts with a 16 byte header holding the magic number
+ * {@link #MAGIC}, the format {@link #VERSION}, the number of trajectories and a CRC32 checksum of
+ * everything after the header. Each trajectory then has its number of states followed by the time,
+ * x, y, heading, velocity, acceleration and curvature columns as doubles.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public final class TrajectoryFile {
+
+	/**
+	 * The first four bytes of every trajectory file, "HRTJ" in ASCII.
+	 */
+	public static final int MAGIC = 0x4A545248;
+	/**
+	 * The version of the format which is written, files of any other version cannot be read.
+	 */
+	public static final int VERSION = 1;
+
+	protected static final int HEADER_SIZE = 16;
+	protected static final int COLUMNS = 7;
+	private static final int CHECKSUM_CHUNK = 8192;
+
+	private TrajectoryFile( ) {}
+
+	/**
+	 * Writes trajectories to a file, replacing it if it already exists.
+	 *
+	 * @param file         The file to write
+	 * @param trajectories The trajectories to store, in the order they will be loaded
+	 * @throws IOException If the file could not be written
+	 */
+	public static void write( File file, TabulatedTrajectory... trajectories ) throws IOException {
+		try( OutputStream output = new FileOutputStream( file ) ) {
+			write( output, trajectories );
+		}
+	}
+
+	/**
+	 * Writes trajectories to a stream. The stream is not closed.
+	 *
+	 * @param output       The stream to write to
+	 * @param trajectories The trajectories to store, in the order they will be loaded
+	 * @throws IOException If the stream could not be written to
+	 */
+	public static void write( OutputStream output, TabulatedTrajectory... trajectories ) throws IOException {
+		int size = HEADER_SIZE;
+		for( TabulatedTrajectory trajectory : trajectories )
+			size += 4 + trajectory.getStateCount( ) * COLUMNS * 8;
+
+		ByteBuffer buffer = ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+		buffer.position( HEADER_SIZE );
+		for( TabulatedTrajectory trajectory : trajectories ) {
+			int count = trajectory.getStateCount( );
+			buffer.putInt( count );
+			DoubleBuffer columns = buffer.asDoubleBuffer( );
+			columns.put( trajectory.time ).put( trajectory.x ).put( trajectory.y ).put( trajectory.heading )
+					.put( trajectory.velocity ).put( trajectory.acceleration ).put( trajectory.curvature );
+			buffer.position( buffer.position( ) + count * COLUMNS * 8 );
+		}
+
+		CRC32 checksum = new CRC32( );
+		checksum.update( buffer.array( ), HEADER_SIZE, size - HEADER_SIZE );
+		buffer.putInt( 0, MAGIC );
+		buffer.putShort( 4, (short) VERSION );
+		buffer.putShort( 6, (short) 0 );
+		buffer.putInt( 8, trajectories.length );
+		buffer.putInt( 12, (int) checksum.getValue( ) );
+		output.write( buffer.array( ) );
+	}
+
+	/**
+	 * Loads all of the trajectories in a file by mapping it into memory.
+	 *
+	 * @param file The file to read
+	 * @return The trajectories in the order they were written
+	 * @throws IOException If the file could not be read or is not a valid trajectory file
+	 */
+	public static TabulatedTrajectory[] read( File file ) throws IOException {
+		try( FileInputStream input = new FileInputStream( file ) ) {
+			FileChannel channel = input.getChannel( );
+			return read( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size( ) ) );
+		}
+	}
+
+	/**
+	 * Loads all of the trajectories from a stream, such as an Android asset. The stream is read to
+	 * its end but not closed.
+	 *
+	 * @param input The stream to read from
+	 * @return The trajectories in the order they were written
+	 * @throws IOException If the stream could not be read or is not a valid trajectory file
+	 */
+	public static TabulatedTrajectory[] read( InputStream input ) throws IOException {
+		byte[] bytes = new byte[Math.max( HEADER_SIZE, input.available( ) )];
+		int length = 0;
+		int read;
+		while( (read = input.read( bytes, length, bytes.length - length )) != -1 ) {
+			length += read;
+			if( length == bytes.length ) {
+				byte[] larger = new byte[bytes.length * 2];
+				System.arraycopy( bytes, 0, larger, 0, length );
+				bytes = larger;
+			}
+		}
+		return read( ByteBuffer.wrap( bytes, 0, length ) );
+	}
+
+	/**
+	 * Loads all of the trajectories from a buffer holding the contents of a trajectory file, between
+	 * its position and limit.
+	 *
+	 * @param buffer The buffer to read from
+	 * @return The trajectories in the order they were written
+	 * @throws IOException If the buffer does not hold a valid trajectory file
+	 */
+	public static TabulatedTrajectory[] read( ByteBuffer buffer ) throws IOException {
+		ByteBuffer data = buffer.slice( ).order( ByteOrder.LITTLE_ENDIAN );
+		if( data.remaining( ) < HEADER_SIZE || data.getInt( 0 ) != MAGIC )
+			throw new IOException( "Not a trajectory file." );
+		int version = data.getShort( 4 );
+		if( version != VERSION )
+			throw new IOException( "Unsupported trajectory file version " + version + "." );
+		int trajectoryCount = data.getInt( 8 );
+		if( checksum( data ) != data.getInt( 12 ) )
+			throw new IOException( "The trajectory file is corrupted, its checksum does not match." );
+
+		TabulatedTrajectory[] trajectories = new TabulatedTrajectory[Math.max( 0, trajectoryCount )];
+		data.position( HEADER_SIZE );
+		for( int i = 0; i < trajectories.length; i++ ) {
+			if( data.remaining( ) < 4 )
+				throw new IOException( "The trajectory file ends early." );
+			int count = data.getInt( );
+			if( count <= 0 || (long) count * COLUMNS * 8 > data.remaining( ) )
+				throw new IOException( "The trajectory file ends early." );
+			DoubleBuffer columns = data.asDoubleBuffer( );
+			double[] time = new double[count];
+			double[] x = new double[count];
+			double[] y = new double[count];
+			double[] heading = new double[count];
+			double[] velocity = new double[count];
+			double[] acceleration = new double[count];
+			double[] curvature = new double[count];
+			columns.get( time ).get( x ).get( y ).get( heading ).get( velocity ).get( acceleration ).get( curvature );
+			data.position( data.position( ) + count * COLUMNS * 8 );
+			trajectories[i] = new TabulatedTrajectory( time, x, y, heading, velocity, acceleration, curvature );
+		}
+		return trajectories;
+	}
+
+	/**
+	 * Calculates the checksum of everything after the header. Mapped buffers have no backing array,
+	 * so they are copied through a small chunk at a time.
+	 */
+	private static int checksum( ByteBuffer data ) {
+		CRC32 checksum = new CRC32( );
+		if( data.hasArray( ) ) {
+			checksum.update( data.array( ), data.arrayOffset( ) + HEADER_SIZE, data.limit( ) - HEADER_SIZE );
+		} else {
+			ByteBuffer body = data.duplicate( );
+			body.position( HEADER_SIZE );
+			byte[] chunk = new byte[Math.min( CHECKSUM_CHUNK, body.remaining( ) )];
+			while( body.hasRemaining( ) ) {
+				int length = Math.min( chunk.length, body.remaining( ) );
+				body.get( chunk, 0, length );
+				checksum.update( chunk, 0, length );
+			}
+		}
+		return (int) checksum.getValue( );
+	}
+}
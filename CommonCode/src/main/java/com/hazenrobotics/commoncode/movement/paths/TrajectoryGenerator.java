@@ -0,0 +1,243 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+
+/**
+ * Builds {@link TabulatedTrajectory trajectories} from quintic Hermite splines through a list of
+ * waypoints. The splines are reparameterized by distance into evenly spaced samples, and then the
+ * velocity at each sample is planned so that the robot never goes faster than the limits given
+ * here, including slowing down through tight curves. All of the work is done once when generating,
+ * so the resulting trajectory can be sampled every loop without any recalculation.
+ *
+ * <p>Distances are in inches, times in seconds and headings in radians, counter-clockwise positive.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TrajectoryGenerator {
+
+	/**
+	 * How many times each spline is evaluated to measure its length before it is resampled by distance.
+	 */
+	protected static final int SPLINE_SAMPLES = 512;
+	/**
+	 * How much longer the tangent at each waypoint is made than the distance to the neighbouring
+	 * waypoint; larger values give rounder curves.
+	 */
+	protected static final double TANGENT_SCALE = 1.2;
+
+	protected double maxVelocity;
+	protected double maxAcceleration;
+	protected double maxCentripetalAcceleration = Double.POSITIVE_INFINITY;
+	protected double trackWidth = 0;
+	protected double resolution = 0.5;
+	protected double startVelocity = 0;
+	protected double endVelocity = 0;
+
+	/**
+	 * Creates a generator with the given limits and no curvature limit.
+	 *
+	 * @param maxVelocity     The fastest the robot will be planned to drive, in inches per second
+	 * @param maxAcceleration The fastest the robot will be planned to speed up or slow down, in
+	 *                        inches per second squared
+	 */
+	public TrajectoryGenerator( double maxVelocity, double maxAcceleration ) {
+		if( maxVelocity <= 0 || maxAcceleration <= 0 )
+			throw new IllegalArgumentException( "The velocity and acceleration limits must be positive." );
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+	}
+
+	/**
+	 * Limits the sideways acceleration in curves, which slows the robot down around tight curves so
+	 * it does not slide. Defaults to no limit.
+	 *
+	 * @param maxCentripetalAcceleration The largest centripetal acceleration in inches per second squared
+	 * @return This generator
+	 */
+	public TrajectoryGenerator setMaxCentripetalAcceleration( double maxCentripetalAcceleration ) {
+		this.maxCentripetalAcceleration = maxCentripetalAcceleration;
+		return this;
+	}
+
+	/**
+	 * Sets the distance between the wheels of a two wheel drive, so that the outer wheel in a curve
+	 * is kept under the maximum velocity rather than just the center of the robot. Defaults to 0,
+	 * which ignores the wheels.
+	 *
+	 * @param trackWidth The distance between the left and right wheels in inches
+	 * @return This generator
+	 */
+	public TrajectoryGenerator setTrackWidth( double trackWidth ) {
+		this.trackWidth = trackWidth;
+		return this;
+	}
+
+	/**
+	 * Sets the distance between each state of the generated trajectories. Defaults to half an inch.
+	 *
+	 * @param resolution The distance between states in inches
+	 * @return This generator
+	 */
+	public TrajectoryGenerator setResolution( double resolution ) {
+		if( resolution <= 0 )
+			throw new IllegalArgumentException( "The resolution must be positive." );
+		this.resolution = resolution;
+		return this;
+	}
+
+	/**
+	 * Sets the velocities the trajectories start and end at, such as to join one trajectory on to
+	 * another without stopping. Both default to 0.
+	 *
+	 * @param startVelocity The velocity at the start in inches per second
+	 * @param endVelocity   The velocity at the end in inches per second
+	 * @return This generator
+	 */
+	public TrajectoryGenerator setEndpointVelocities( double startVelocity, double endVelocity ) {
+		this.startVelocity = startVelocity;
+		this.endVelocity = endVelocity;
+		return this;
+	}
+
+	/**
+	 * Generates a trajectory which passes through each waypoint facing along its heading. The curve
+	 * has no second derivative at each waypoint, so it is smooth but the curvature is not always
+	 * continuous across them.
+	 *
+	 * @param waypoints At least two poses for the trajectory to pass through, in order, which must not
+	 *                  all be at the same point
+	 * @return A new trajectory through the waypoints
+	 */
+	public TabulatedTrajectory generate( Pose... waypoints ) {
+		if( waypoints.length < 2 )
+			throw new IllegalArgumentException( "A trajectory needs at least two waypoints." );
+
+		QuinticHermiteSpline[] splines = new QuinticHermiteSpline[waypoints.length - 1];
+		for( int i = 0; i < splines.length; i++ ) {
+			Pose start = waypoints[i];
+			Pose end = waypoints[i + 1];
+			double scale = TANGENT_SCALE * start.distanceTo( end );
+			splines[i] = new QuinticHermiteSpline(
+					start.x, start.y, scale * Math.cos( start.heading ), scale * Math.sin( start.heading ), 0, 0,
+					end.x, end.y, scale * Math.cos( end.heading ), scale * Math.sin( end.heading ), 0, 0 );
+		}
+		return generate( splines );
+	}
+
+	/**
+	 * Generates a trajectory along splines which are joined end to end.
+	 *
+	 * @param splines The splines to follow, in order, which must not all have zero length
+	 * @return A new trajectory along the splines
+	 */
+	public TabulatedTrajectory generate( QuinticHermiteSpline... splines ) {
+		if( splines.length == 0 )
+			throw new IllegalArgumentException( "A trajectory needs at least one spline." );
+
+		//Measures the length along each spline at evenly spaced parameters
+		double[][] lengths = new double[splines.length][];
+		double totalLength = 0;
+		for( int i = 0; i < splines.length; i++ ) {
+			lengths[i] = measureLengths( splines[i] );
+			totalLength += lengths[i][SPLINE_SAMPLES];
+		}
+		//A path with no length has no distance to sample it by or to accelerate over
+		if( !(totalLength > 0) )
+			throw new IllegalArgumentException( "The path must have some length." );
+
+		//A short path which starts or ends at rest needs a state between its ends to speed up to, or it could take no time at all
+		int minCount = startVelocity > 0 && endVelocity > 0 ? 2 : 3;
+		int count = Math.max( minCount, (int) Math.ceil( totalLength / resolution ) + 1 );
+		double step = totalLength / (count - 1);
+		double[] x = new double[count];
+		double[] y = new double[count];
+		double[] heading = new double[count];
+		double[] curvature = new double[count];
+
+		//Resamples the splines at evenly spaced distances, walking forwards through the length tables
+		int spline = 0;
+		int sample = 0;
+		double splineStart = 0;
+		for( int i = 0; i < count; i++ ) {
+			double distance = Math.min( i * step, totalLength );
+			while( spline < splines.length - 1 && distance > splineStart + lengths[spline][SPLINE_SAMPLES] ) {
+				splineStart += lengths[spline][SPLINE_SAMPLES];
+				spline++;
+				sample = 0;
+			}
+			double[] table = lengths[spline];
+			double local = distance - splineStart;
+			while( sample < SPLINE_SAMPLES - 1 && table[sample + 1] < local )
+				sample++;
+			double sampleLength = table[sample + 1] - table[sample];
+			double fraction = sampleLength > 0 ? Math.max( 0, Math.min( 1, (local - table[sample]) / sampleLength ) ) : 0;
+			double t = (sample + fraction) / SPLINE_SAMPLES;
+
+			QuinticHermiteSpline current = splines[spline];
+			x[i] = current.getX( t );
+			y[i] = current.getY( t );
+			double direction = Math.atan2( current.getDerivativeY( t ), current.getDerivativeX( t ) );
+			//Keeps the heading continuous rather than wrapping it to a half turn either way
+			heading[i] = i == 0 ? direction : heading[i - 1] + Math.IEEEremainder( direction - heading[i - 1], 2 * Math.PI );
+			curvature[i] = current.getCurvature( t );
+		}
+
+		double[] velocity = planVelocities( curvature, step );
+		double[] acceleration = new double[count];
+		double[] time = new double[count];
+		for( int i = 1; i < count; i++ ) {
+			double averageVelocity = (velocity[i - 1] + velocity[i]) / 2;
+			time[i] = time[i - 1] + (averageVelocity > 0 ? step / averageVelocity : 0);
+			acceleration[i - 1] = (velocity[i] * velocity[i] - velocity[i - 1] * velocity[i - 1]) / (2 * step);
+		}
+		return new TabulatedTrajectory( time, x, y, heading, velocity, acceleration, curvature );
+	}
+
+	/**
+	 * Finds the largest velocity at each state which respects the velocity, curvature and
+	 * acceleration limits, by limiting speeding up in a forwards pass and slowing down in a
+	 * backwards pass.
+	 */
+	protected double[] planVelocities( double[] curvature, double step ) {
+		int count = curvature.length;
+		double[] velocity = new double[count];
+		for( int i = 0; i < count; i++ ) {
+			double limit = maxVelocity;
+			double absCurvature = Math.abs( curvature[i] );
+			if( absCurvature > 0 ) {
+				limit = Math.min( limit, Math.sqrt( maxCentripetalAcceleration / absCurvature ) );
+				limit = Math.min( limit, maxVelocity / (1 + absCurvature * trackWidth / 2) );
+			}
+			velocity[i] = limit;
+		}
+		velocity[0] = Math.min( velocity[0], startVelocity );
+		velocity[count - 1] = Math.min( velocity[count - 1], endVelocity );
+
+		double accelerationDistance = 2 * maxAcceleration * step;
+		for( int i = 1; i < count; i++ )
+			velocity[i] = Math.min( velocity[i], Math.sqrt( velocity[i - 1] * velocity[i - 1] + accelerationDistance ) );
+		for( int i = count - 2; i >= 0; i-- )
+			velocity[i] = Math.min( velocity[i], Math.sqrt( velocity[i + 1] * velocity[i + 1] + accelerationDistance ) );
+		return velocity;
+	}
+
+	/**
+	 * Measures the length along a spline at evenly spaced parameters with Simpson's rule.
+	 */
+	private static double[] measureLengths( QuinticHermiteSpline spline ) {
+		double[] lengths = new double[SPLINE_SAMPLES + 1];
+		double dt = 1.0 / SPLINE_SAMPLES;
+		double previousSpeed = speed( spline, 0 );
+		for( int i = 1; i <= SPLINE_SAMPLES; i++ ) {
+			double t = i * dt;
+			double middleSpeed = speed( spline, t - dt / 2 );
+			double speed = speed( spline, t );
+			lengths[i] = lengths[i - 1] + dt * (previousSpeed + 4 * middleSpeed + speed) / 6;
+			previousSpeed = speed;
+		}
+		return lengths;
+	}
+
+	private static double speed( QuinticHermiteSpline spline, double t ) {
+		return Math.hypot( spline.getDerivativeX( t ), spline.getDerivativeY( t ) );
+	}
+}
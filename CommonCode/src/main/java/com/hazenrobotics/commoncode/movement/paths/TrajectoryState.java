@@ -0,0 +1,57 @@
+package com.hazenrobotics.commoncode.movement.paths;
+
+import com.hazenrobotics.commoncode.models.poses.Pose;
+
+/**
+ * Where a {@link Trajectory} wants the robot to be at a point in time, and how it should be moving
+ * there. States are mutable so they can be reused every loop without allocating new objects.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class TrajectoryState {
+
+	/**
+	 * The time since the start of the trajectory in seconds
+	 */
+	public double time = 0;
+
+	/**
+	 * The position and heading the robot should be at
+	 */
+	public final Pose pose = new Pose( );
+
+	/**
+	 * The forwards velocity in inches per second
+	 */
+	public double velocity = 0;
+
+	/**
+	 * The forwards acceleration in inches per second squared
+	 */
+	public double acceleration = 0;
+
+	/**
+	 * The counter-clockwise angular velocity in radians per second
+	 */
+	public double angularVelocity = 0;
+
+	/**
+	 * The curvature of the path in radians per inch, counter-clockwise positive
+	 */
+	public double curvature = 0;
+
+	/**
+	 * Sets this state to be the same as another.
+	 *
+	 * @param other The state to copy
+	 * @return This state
+	 */
+	public TrajectoryState set( TrajectoryState other ) {
+		time = other.time;
+		pose.set( other.pose );
+		velocity = other.velocity;
+		acceleration = other.acceleration;
+		angularVelocity = other.angularVelocity;
+		curvature = other.curvature;
+		return this;
+	}
+}
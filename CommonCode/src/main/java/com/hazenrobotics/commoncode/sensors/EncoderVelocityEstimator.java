@@ -0,0 +1,222 @@
+package com.hazenrobotics.commoncode.sensors;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * Estimates how fast a motor's encoder is turning from timestamped position readings. The velocity
+ * is the slope of a least-squares line through the last few readings, which is much less noisy
+ * than the change between just two readings, especially when the loop time varies. Readings which
+ * jump further than the motor could possibly turn are rejected as glitches, for both the velocity
+ * and the position.
+ * <p>
+ * Each {@link #update()} reads the encoder once and keeps the reading, so feedback controllers,
+ * stall detection and odometry can all share one estimator instead of each reading the encoder.
+ * The readings are kept in arrays made once, so updating does not make new objects.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class EncoderVelocityEstimator {
+
+	protected static final int DEFAULT_WINDOW_SIZE = 5;
+	protected static final long DEFAULT_MAX_SAMPLE_AGE_NANOS = 200000000;
+	protected static final double NANOS_PER_SECOND = 1e9;
+	//How many readings in a row can be rejected before they are taken to be real
+	protected static final int MAX_REJECTED_SAMPLES = 2;
+
+	protected final DcMotor motor;
+
+	//Ring buffers of the readings, where head is the index of the newest one
+	protected final long[] sampleNanos;
+	protected final int[] samplePositions;
+	protected int head = -1;
+	protected int sampleCount = 0;
+
+	protected long maxSampleAgeNanos = DEFAULT_MAX_SAMPLE_AGE_NANOS;
+	//The fastest believable velocity in counts per second, or 0 to accept every reading
+	protected double maxVelocity = 0;
+	protected int rejectedSamples = 0;
+	//When the estimator was last given a reading, or 0 if it has not been since it was made or reset
+	protected long lastUpdateNanos = 0;
+
+	protected int position = 0;
+	protected double velocity = 0;
+
+	/**
+	 * Creates an estimator for the given motor which fits a line through the last five readings.
+	 *
+	 * @param motor The motor whose encoder will be read, or null if readings are only given through
+	 *              {@link #update(int, long)}
+	 */
+	public EncoderVelocityEstimator( DcMotor motor ) {
+		this( motor, DEFAULT_WINDOW_SIZE );
+	}
+
+	/**
+	 * Creates an estimator for the given motor which fits a line through the given number of
+	 * readings. Larger windows are smoother but lag behind changes in speed more.
+	 *
+	 * @param motor      The motor whose encoder will be read, or null if readings are only given
+	 *                   through {@link #update(int, long)}
+	 * @param windowSize The number of readings used, at least 2
+	 */
+	public EncoderVelocityEstimator( DcMotor motor, int windowSize ) {
+		this.motor = motor;
+		windowSize = Math.max( windowSize, 2 );
+		sampleNanos = new long[windowSize];
+		samplePositions = new int[windowSize];
+	}
+
+	/**
+	 * Changes how old a reading can be before it is no longer used, so the estimate does not lag
+	 * after the estimator has not been updated for a while. The two newest readings are always
+	 * used. Defaults to 200 milliseconds.
+	 *
+	 * @param maxSampleAgeMillis The oldest reading used, in milliseconds
+	 * @return This estimator, so settings can be chained
+	 */
+	public EncoderVelocityEstimator setMaxSampleAge( long maxSampleAgeMillis ) {
+		this.maxSampleAgeNanos = Math.max( maxSampleAgeMillis, 0 ) * 1000000;
+		return this;
+	}
+
+	/**
+	 * Rejects readings which would mean the encoder turned faster than the given velocity since the
+	 * last reading, such as glitches from a loose encoder wire. If several readings in a row are
+	 * rejected they are taken to be real, so the estimator can not get stuck. By default every
+	 * reading is used.
+	 *
+	 * @param maxVelocity The fastest believable velocity in counts per second, or 0 to use every
+	 *                    reading
+	 * @return This estimator, so settings can be chained
+	 */
+	public EncoderVelocityEstimator setMaxVelocity( double maxVelocity ) {
+		this.maxVelocity = Math.abs( maxVelocity );
+		return this;
+	}
+
+	/**
+	 * Reads the motor's encoder and updates the velocity estimate.
+	 *
+	 * @return The new estimated velocity in counts per second
+	 */
+	public double update( ) {
+		return update( motor.getCurrentPosition( ), System.nanoTime( ) );
+	}
+
+	/**
+	 * Adds a reading which was taken elsewhere, such as from a bulk read of a whole hub, and
+	 * updates the velocity estimate.
+	 *
+	 * @param position  The encoder position in counts
+	 * @param timeNanos When the position was read, from {@link System#nanoTime()}
+	 * @return The new estimated velocity in counts per second
+	 */
+	public double update( int position, long timeNanos ) {
+		lastUpdateNanos = timeNanos;
+		if( sampleCount > 0 ) {
+			long dt = timeNanos - sampleNanos[head];
+			if( dt <= 0 )
+				return velocity;
+			if( maxVelocity > 0 && rejectedSamples < MAX_REJECTED_SAMPLES
+					&& Math.abs( position - samplePositions[head] ) > maxVelocity * dt / NANOS_PER_SECOND ) {
+				rejectedSamples++;
+				return velocity;
+			}
+			//A run of rejected readings was real, so the older readings no longer line up with it
+			if( rejectedSamples >= MAX_REJECTED_SAMPLES )
+				sampleCount = 0;
+		}
+		rejectedSamples = 0;
+		this.position = position;
+
+		head = (head + 1) % sampleNanos.length;
+		sampleNanos[head] = timeNanos;
+		samplePositions[head] = position;
+		sampleCount = Math.min( sampleCount + 1, sampleNanos.length );
+		velocity = fitVelocity( );
+		return velocity;
+	}
+
+	/**
+	 * Fits a least-squares line through the readings which are new enough. Times and positions are
+	 * taken relative to the newest reading so the sums stay small and precise.
+	 *
+	 * @return The slope of the line in counts per second
+	 */
+	protected double fitVelocity( ) {
+		long newestNanos = sampleNanos[head];
+		int newestPosition = samplePositions[head];
+
+		int count = 0;
+		double sumT = 0, sumP = 0, sumTT = 0, sumTP = 0;
+		for( int i = 0; i < sampleCount; i++ ) {
+			int index = (head - i + sampleNanos.length) % sampleNanos.length;
+			long age = newestNanos - sampleNanos[index];
+			if( i >= 2 && age > maxSampleAgeNanos )
+				break;
+			double t = -age / NANOS_PER_SECOND;
+			double p = samplePositions[index] - newestPosition;
+			sumT += t;
+			sumP += p;
+			sumTT += t * t;
+			sumTP += t * p;
+			count++;
+		}
+		if( count < 2 )
+			return 0;
+
+		double denominator = count * sumTT - sumT * sumT;
+		return denominator > 0 ? (count * sumTP - sumT * sumP) / denominator : 0;
+	}
+
+	/**
+	 * Gets the estimated velocity from the last update.
+	 *
+	 * @return The velocity in counts per second
+	 */
+	public double getVelocity( ) {
+		return velocity;
+	}
+
+	/**
+	 * Gets when the estimator was last updated, whether or not that reading was rejected, so code
+	 * which only reads the estimate can tell if it has gone stale.
+	 *
+	 * @return The time of the last update from {@link System#nanoTime()}, or 0 if it has not been
+	 * updated since it was made or reset
+	 */
+	public long getLastUpdateNanos( ) {
+		return lastUpdateNanos;
+	}
+
+	/**
+	 * Gets the last reading which was not rejected as a glitch, so the encoder does not have to be
+	 * read again and the position always agrees with the velocity.
+	 *
+	 * @return The position in counts
+	 */
+	public int getPosition( ) {
+		return position;
+	}
+
+	/**
+	 * Gets the motor whose encoder is read.
+	 *
+	 * @return The motor, or null if readings are only given through {@link #update(int, long)}
+	 */
+	public DcMotor getMotor( ) {
+		return motor;
+	}
+
+	/**
+	 * Forgets every reading, such as after the encoder has been reset. The position goes back to 0
+	 * until the next update, to match an encoder which has just been reset.
+	 */
+	public void reset( ) {
+		position = 0;
+		head = -1;
+		sampleCount = 0;
+		rejectedSamples = 0;
+		velocity = 0;
+		lastUpdateNanos = 0;
+	}
+}
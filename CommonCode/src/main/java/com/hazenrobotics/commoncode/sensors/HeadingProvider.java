@@ -0,0 +1,15 @@
+package com.hazenrobotics.commoncode.sensors;
+
+/**
+ * Anything which can report the heading of the robot, such as a gyro sensor or odometry.
+ */
+public interface HeadingProvider {
+
+	/**
+	 * Gets the current heading of the robot in radians. The heading is counter-clockwise positive
+	 * and continuous, so it keeps counting past a full rotation instead of wrapping back to 0.
+	 *
+	 * @return The current heading in radians
+	 */
+	double getHeadingRadians( );
+}
@@ -13,7 +13,7 @@ import java.nio.ByteOrder;
  * An I2c gyro sensor object which can determine its normalized and summative heading compared to
  * when it was last {@link #calibrate() calibrated}
  */
-public class I2cGyroSensor extends I2cSensor {
+public class I2cGyroSensor extends I2cSensor implements HeadingProvider {
 
 	protected static final int DEFAULT_ADDRESS = 0x20;
 	protected static final int HEADING_REG_START = 0x0;
@@ -96,6 +96,18 @@ public class I2cGyroSensor extends I2cSensor {
 		return new Angle( getIntegratedZValue( returnUnit ), returnUnit );
 	}
 
+	/**
+	 * Gets the current integrated Z value as a counter-clockwise positive heading, which is the
+	 * opposite sign of the integrated Z value since it counts up while turning clockwise.
+	 *
+	 * @return The negated Integrated Z value in radians
+	 * @see I2cGyroSensor#getIntegratedZValue(AngleUnit)
+	 */
+	@Override
+	public double getHeadingRadians( ) {
+		return -getIntegratedZValue( UnnormalizedAngleUnit.RADIANS );
+	}
+
 	/**
 	 * Gets the current heading value held by the sensor which loops back to 0 after you pass 360
 	 * degrees
@@ -0,0 +1,121 @@
+package com.hazenrobotics.commoncode.sensors;
+
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+/**
+ * Scales motor powers so that they give the same speed no matter how charged the battery is, by
+ * multiplying them by the nominal voltage divided by the battery's voltage. A power of 0.5 then
+ * always means half of the nominal voltage, so moves take the same time at the end of a match as at
+ * the start.
+ * <p>
+ * Reading the hub's voltage sensor is slow, so it is only read every
+ * {@link #setSamplePeriod(long) sample period} and smoothed, and every other call just uses the
+ * cached scale. One compensator can be shared by every set of wheels and mechanism on the robot.
+ */
+@SuppressWarnings("unused,WeakerAccess")
+public class VoltageCompensator {
+
+	protected static final double DEFAULT_NOMINAL_VOLTAGE = 12;
+	protected static final long DEFAULT_SAMPLE_PERIOD_MILLIS = 250;
+	//Readings below this are the sensor not being ready rather than a real voltage
+	protected static final double MIN_VALID_VOLTAGE = 5;
+	//How much each new reading moves the smoothed voltage, so a short dip while accelerating is ignored
+	protected static final double SMOOTHING = 0.5;
+
+	protected final VoltageSensor sensor;
+	protected final double nominalVoltage;
+	protected long samplePeriodNanos = DEFAULT_SAMPLE_PERIOD_MILLIS * 1000000;
+
+	protected double voltage;
+	protected double scale = 1;
+	protected long lastSampleNanos;
+	protected boolean hasReading = false;
+
+	/**
+	 * Creates a compensator which scales powers to a nominal 12 volts.
+	 *
+	 * @param sensor The voltage sensor of a hub, such as the first one in the hardware map
+	 */
+	public VoltageCompensator( VoltageSensor sensor ) {
+		this( sensor, DEFAULT_NOMINAL_VOLTAGE );
+	}
+
+	/**
+	 * Creates a compensator which scales powers to the given nominal voltage.
+	 *
+	 * @param sensor         The voltage sensor of a hub, such as the first one in the hardware map
+	 * @param nominalVoltage The voltage at which powers are left unchanged, usually a bit below a
+	 *                       fully charged battery so that there is room to scale up
+	 */
+	public VoltageCompensator( VoltageSensor sensor, double nominalVoltage ) {
+		this.sensor = sensor;
+		this.nominalVoltage = nominalVoltage;
+		voltage = nominalVoltage;
+		sample( System.nanoTime( ) );
+	}
+
+	/**
+	 * Changes how often the voltage sensor is read. Defaults to 250 milliseconds.
+	 *
+	 * @param samplePeriodMillis The time between readings in milliseconds
+	 */
+	public void setSamplePeriod( long samplePeriodMillis ) {
+		this.samplePeriodNanos = Math.max( samplePeriodMillis, 0 ) * 1000000;
+	}
+
+	/**
+	 * Gets the number powers are multiplied by, reading the voltage sensor if the sample period has
+	 * passed.
+	 *
+	 * @return The nominal voltage divided by the battery voltage
+	 */
+	public double getScale( ) {
+		long now = System.nanoTime( );
+		if( now - lastSampleNanos >= samplePeriodNanos )
+			sample( now );
+		return scale;
+	}
+
+	/**
+	 * Scales a power to the nominal voltage.
+	 *
+	 * @param power The power which would be used at the nominal voltage
+	 * @return The power to use at the current voltage, bounded between -1 and 1
+	 */
+	public double compensate( double power ) {
+		return Math.max( -1, Math.min( 1, power * getScale( ) ) );
+	}
+
+	/**
+	 * Gets the smoothed battery voltage from the last reading, without reading the sensor.
+	 *
+	 * @return The voltage in volts
+	 */
+	public double getVoltage( ) {
+		return voltage;
+	}
+
+	/**
+	 * Gets the voltage at which powers are left unchanged.
+	 *
+	 * @return The nominal voltage in volts
+	 */
+	public double getNominalVoltage( ) {
+		return nominalVoltage;
+	}
+
+	/**
+	 * Reads the voltage sensor and updates the scale.
+	 *
+	 * @param now The current time from {@link System#nanoTime()}
+	 */
+	protected void sample( long now ) {
+		lastSampleNanos = now;
+		double reading = sensor.getVoltage( );
+		if( reading < MIN_VALID_VOLTAGE )
+			return;
+		voltage = hasReading ? voltage + SMOOTHING * (reading - voltage) : reading;
+		hasReading = true;
+		scale = nominalVoltage / voltage;
+	}
+}
@@ -0,0 +1,173 @@
+package com.hazenrobotics.commoncode.testclasses;
+
+import com.hazenrobotics.commoncode.interfaces.OpModeInterface;
+import com.hazenrobotics.commoncode.models.angles.Angle;
+import com.hazenrobotics.commoncode.models.angles.UnnormalizedAngleUnit;
+import com.hazenrobotics.commoncode.models.angles.directions.RotationDirection;
+import com.hazenrobotics.commoncode.models.angles.directions.SimpleDirection;
+import com.hazenrobotics.commoncode.models.distances.Distance;
+import com.hazenrobotics.commoncode.movement.EncoderCalibrator;
+import com.hazenrobotics.commoncode.movement.TwoEncoderWheels;
+import com.hazenrobotics.commoncode.movement.TwoWheels;
+import com.hazenrobotics.commoncode.sensors.I2cGyroSensor;
+import com.hazenrobotics.commoncode.sensors.I2cRangeSensor;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * Class to calibrate the encoder configuration of a 2 motor robot by driving a series of moves
+ * and turns, measuring each with a range sensor and gyro, and fitting the calibration multiplier
+ * and robot diameter to them with an {@link EncoderCalibrator}.
+ * <br></br> Motors must be called "left" and "right", the range sensor "range" and the gyro
+ * "gyro". The range sensor must face forwards towards a wall at least 48 inches away.
+ * Change the constants below to match the robot, then copy the tuned values shown at the end into
+ * the robot's encoder configuration.
+ */
+public class TwoWheelsCalibration extends LinearOpMode {
+
+	protected static final int COUNTS_PER_REV = 1120;
+	protected static final Distance WHEEL_DIAMETER = new Distance( 4f, DistanceUnit.INCH );
+	protected static final Distance ROBOT_DIAMETER = new Distance( 16f, DistanceUnit.INCH );
+	//Each move is driven forwards then backwards, and each turn counter-clockwise then clockwise
+	protected static final float[] MOVE_INCHES = { 12f, 24f, 36f };
+	protected static final float[] TURN_DEGREES = { 90f, 180f, 360f };
+	//How long to wait after each trial so the robot and sensors have settled
+	protected static final long SETTLE_MILLIS = 500;
+
+	@Override
+	public void runOpMode( ) {
+		I2cRangeSensor range = new I2cRangeSensor( hardwareMap.i2cDevice.get( "range" ) );
+		I2cGyroSensor gyro = new I2cGyroSensor( hardwareMap.i2cDevice.get( "gyro" ) );
+		TwoEncoderWheels wheels = new TwoEncoderWheels( opModeInterface,
+				new TwoWheels.WheelConfiguration( "left", "right" ),
+				new TwoEncoderWheels.EncoderConfiguration( COUNTS_PER_REV, WHEEL_DIAMETER, ROBOT_DIAMETER ) );
+		EncoderCalibrator calibrator = new EncoderCalibrator( COUNTS_PER_REV, WHEEL_DIAMETER );
+
+		gyro.calibrate( );
+		while( gyro.isCalibrating( ) && !isStopRequested( ) ) {
+			telemetry.addData( "Status:", " Calibrating gyro" );
+			telemetry.update( );
+			idle( );
+		}
+		telemetry.addData( "Status:", " Ready, the robot must face a wall at least 48 inches away" );
+		telemetry.update( );
+
+		waitForStart( );
+
+		for( int i = 0; i < MOVE_INCHES.length && opModeIsActive( ); i++ ) {
+			Distance distance = new Distance( MOVE_INCHES[i], DistanceUnit.INCH );
+			recordMove( wheels, range, calibrator, distance, SimpleDirection.FORWARDS );
+			recordMove( wheels, range, calibrator, distance, SimpleDirection.BACKWARDS );
+		}
+		for( int i = 0; i < TURN_DEGREES.length && opModeIsActive( ); i++ ) {
+			Angle angle = new Angle( TURN_DEGREES[i], UnnormalizedAngleUnit.DEGREES );
+			recordTurn( wheels, gyro, calibrator, angle, RotationDirection.COUNTER_CLOCKWISE );
+			recordTurn( wheels, gyro, calibrator, angle, RotationDirection.CLOCKWISE );
+		}
+
+		Distance robotDiameter = calibrator.getRobotDiameter( );
+		while( opModeIsActive( ) ) {
+			telemetry.addData( "Calibration Multiplier:", " " + calibrator.getCalibrationMultiplier( ) );
+			telemetry.addData( "Robot Diameter (in):", " " + (robotDiameter != null ? robotDiameter.getValue( DistanceUnit.INCH ) : "none") );
+			telemetry.addData( "Move Error (in):", " " + calibrator.getMoveError( ) );
+			telemetry.addData( "Turn Error (deg):", " " + Math.toDegrees( calibrator.getTurnError( ) ) );
+			telemetry.update( );
+			idle( );
+		}
+	}
+
+	/**
+	 * Drives a move and adds it to the calibrator, using the change in the range sensor's reading as
+	 * how far the robot really moved.
+	 *
+	 * @param wheels     The wheels which will move
+	 * @param range      The range sensor facing the wall
+	 * @param calibrator The calibrator the move is added to
+	 * @param distance   The distance to move
+	 * @param direction  The direction to move in
+	 */
+	protected void recordMove( TwoEncoderWheels wheels, I2cRangeSensor range, EncoderCalibrator calibrator, Distance distance, SimpleDirection direction ) {
+		float before = range.getUltrasonicValue( DistanceUnit.INCH );
+		TwoEncoderWheels.Counts initial = TwoEncoderWheels.Counts.fromPosition( wheels );
+		wheels.move( distance, direction );
+		sleep( SETTLE_MILLIS );
+		TwoEncoderWheels.Counts counts = TwoEncoderWheels.Counts.fromPosition( wheels ).subtracted( initial );
+		//Moving forwards brings the wall closer
+		float moved = before - range.getUltrasonicValue( DistanceUnit.INCH );
+		calibrator.addMove( counts, new Distance( moved, DistanceUnit.INCH ) );
+	}
+
+	/**
+	 * Drives a turn and adds it to the calibrator, using the change in the gyro's heading as how far
+	 * the robot really turned.
+	 *
+	 * @param wheels     The wheels which will turn
+	 * @param gyro       The gyro measuring the robot's heading
+	 * @param calibrator The calibrator the turn is added to
+	 * @param angle      The angle to turn
+	 * @param direction  The direction to turn in
+	 */
+	protected void recordTurn( TwoEncoderWheels wheels, I2cGyroSensor gyro, EncoderCalibrator calibrator, Angle angle, RotationDirection direction ) {
+		double before = gyro.getHeadingRadians( );
+		TwoEncoderWheels.Counts initial = TwoEncoderWheels.Counts.fromPosition( wheels );
+		wheels.turn( angle, direction );
+		sleep( SETTLE_MILLIS );
+		TwoEncoderWheels.Counts counts = TwoEncoderWheels.Counts.fromPosition( wheels ).subtracted( initial );
+		double turned = gyro.getHeadingRadians( ) - before;
+		calibrator.addTurn( counts, turned );
+	}
+
+	//Gives the library's wheels access to this OpMode's hardware, gamepads and idling
+	protected final OpModeInterface opModeInterface = new OpModeInterface( ) {
+		@Override
+		public DcMotor getMotor( String name ) {
+			return hardwareMap.dcMotor.get( name );
+		}
+
+		@Override
+		public Servo getServo( String name ) {
+			return hardwareMap.get( Servo.class, name );
+		}
+
+		@Override
+		public DigitalChannel getDigitalChannel( String name ) {
+			return hardwareMap.get( DigitalChannel.class, name );
+		}
+
+		@Override
+		public HardwareDevice get( String name ) {
+			return hardwareMap.get( HardwareDevice.class, name );
+		}
+
+		@Override
+		public Gamepad getGamepad1( ) {
+			return gamepad1;
+		}
+
+		@Override
+		public Gamepad getGamepad2( ) {
+			return gamepad2;
+		}
+
+		@Override
+		public void idle( ) {
+			TwoWheelsCalibration.this.idle( );
+		}
+
+		@Override
+		public void sleep( long milliseconds ) {
+			TwoWheelsCalibration.this.sleep( milliseconds );
+		}
+
+		@Override
+		public boolean opModeIsActive( ) {
+			return TwoWheelsCalibration.this.opModeIsActive( );
+		}
+	};
+}